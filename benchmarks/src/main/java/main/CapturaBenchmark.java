@@ -0,0 +1,78 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import com.github.kwhat.jnativehook.mouse.NativeMouseEvent;
+
+/**
+ * Custo dos callbacks do CapturadorEventos com eventos sintéticos (sem hook nativo).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CapturaBenchmark {
+
+    private CapturadorEventos gravando;
+    private CapturadorEventos montagem;
+    private NativeMouseEvent arraste;
+    private NativeKeyEvent pressionaCtrlShiftA;
+    private NativeKeyEvent liberaCtrlShiftA;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        gravando = new CapturadorEventos();
+        gravando.prepararGravacao();
+        montagem = new CapturadorEventos(); // processar() direto, sem passar pela fila
+
+        arraste = new NativeMouseEvent(NativeMouseEvent.NATIVE_MOUSE_DRAGGED, 0, 640, 480, 0);
+        int modificadores = NativeKeyEvent.CTRL_MASK | NativeKeyEvent.SHIFT_MASK;
+        pressionaCtrlShiftA = new NativeKeyEvent(NativeKeyEvent.NATIVE_KEY_PRESSED, modificadores, 0,
+            NativeKeyEvent.VC_A, NativeKeyEvent.CHAR_UNDEFINED);
+        liberaCtrlShiftA = new NativeKeyEvent(NativeKeyEvent.NATIVE_KEY_RELEASED, modificadores, 0,
+            NativeKeyEvent.VC_A, NativeKeyEvent.CHAR_UNDEFINED);
+    }
+
+    /**
+     * Custo no callback do hook: só a cópia do evento para a fila; a ação é
+     * montada na thread consumidora. Arrastes não passam pelo filtro de movimento.
+     */
+    @Benchmark
+    public int ingestaoArraste() {
+        gravando.nativeMouseDragged(arraste);
+        return gravando.size();
+    }
+
+    @Benchmark
+    public int ingestaoTeclaComModificadores() {
+        gravando.nativeKeyPressed(pressionaCtrlShiftA);
+        gravando.nativeKeyReleased(liberaCtrlShiftA);
+        return gravando.size();
+    }
+
+    /**
+     * Trabalho que saiu do hook: nome da tecla, detalhes e criação da Acao.
+     */
+    @Benchmark
+    public void montagemTecla() {
+        long agora = System.currentTimeMillis();
+        int modificadores = pressionaCtrlShiftA.getModifiers();
+        montagem.processar(FilaEventosNativos.TECLA_PRESSIONADA, NativeKeyEvent.VC_A, modificadores, -1, -1, agora);
+        montagem.processar(FilaEventosNativos.TECLA_SOLTA, NativeKeyEvent.VC_A, modificadores, -1, -1, agora);
+    }
+}
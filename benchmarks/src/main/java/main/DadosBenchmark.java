@@ -0,0 +1,28 @@
+package main;
+
+import java.util.List;
+
+/**
+ * Gravações determinísticas para os benchmarks, produzidas pelo
+ * GeradorCargaSintetica com resolução de 1920x1080.
+ */
+final class DadosBenchmark {
+
+    private DadosBenchmark() {
+    }
+
+    static List<Acao> gerar(int quantidade, long semente) {
+        try {
+            return new GeradorCargaSintetica(semente, quantidade, 1920, 1080).gerarLista();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<Acao> semDelays(List<Acao> acoes) {
+        for (Acao acao : acoes) {
+            acao.setDelay(0);
+        }
+        return acoes;
+    }
+}
@@ -0,0 +1,54 @@
+package main;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sobrecarga da reprodução sem o Robot: compilação do plano e execução com
+ * SaidaEntrada.NULA e delays zerados.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReproducaoBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int acoes;
+
+    private List<Acao> gravacao;
+    private PlanoReproducao plano;
+    private ReprodutorEventos reprodutor;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        gravacao = DadosBenchmark.semDelays(DadosBenchmark.gerar(acoes, 42));
+        plano = PlanoReproducao.compilar(gravacao);
+        reprodutor = new ReprodutorEventos(SaidaEntrada.NULA);
+    }
+
+    @Benchmark
+    public PlanoReproducao compilarPlano() {
+        return PlanoReproducao.compilar(gravacao);
+    }
+
+    @Benchmark
+    public void executarPlano() {
+        reprodutor.reproduzirPlano(plano).join();
+    }
+}
@@ -0,0 +1,120 @@
+package main;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vazão de exportação e importação XML. Cada invocação processa a gravação
+ * inteira; divida o tempo pelo parâmetro "acoes" para obter ações/s.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class XmlBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Exportacao {
+        @Param({"10000", "1000000", "10000000"})
+        public int acoes;
+
+        // Extensão do arquivo: ".xml.gz" exporta compactado
+        @Param({".xml", ".xml.gz"})
+        public String formato;
+
+        List<Acao> gravacao;
+        File arquivo;
+
+        @Setup(Level.Trial)
+        public void preparar() throws Exception {
+            gravacao = DadosBenchmark.gerar(acoes, 42);
+            arquivo = File.createTempFile("bench-exportacao", formato);
+        }
+
+        @TearDown(Level.Trial)
+        public void limpar() {
+            arquivo.delete();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Importacao {
+        @Param({"10000", "1000000", "10000000"})
+        public int acoes;
+
+        @Param({".xml", ".xml.gz"})
+        public String formato;
+
+        File arquivo;
+
+        @Setup(Level.Trial)
+        public void preparar() throws Exception {
+            arquivo = File.createTempFile("bench-importacao", formato);
+            GerenciadorXML.exportarParaXML(DadosBenchmark.gerar(acoes, 42), arquivo.getAbsolutePath());
+        }
+
+        @TearDown(Level.Trial)
+        public void limpar() {
+            arquivo.delete();
+        }
+    }
+
+    /**
+     * Importação em trechos paralelos (ImportadorParalelo) sobre o mesmo
+     * arquivo, de 1 a N threads; compare com importar() para o ganho sobre
+     * o parser sequencial. Para outras contagens: -p threads=1,2,4,8,16,32
+     */
+    @State(Scope.Benchmark)
+    public static class ImportacaoParalela {
+        @Param({"1000000", "10000000"})
+        public int acoes;
+
+        @Param({"1", "2", "4", "8", "16"})
+        public int threads;
+
+        File arquivo;
+
+        @Setup(Level.Trial)
+        public void preparar() throws Exception {
+            arquivo = File.createTempFile("bench-importacao-paralela", ".xml");
+            GerenciadorXML.exportarParaXML(DadosBenchmark.gerar(acoes, 42), arquivo.getAbsolutePath());
+        }
+
+        @TearDown(Level.Trial)
+        public void limpar() {
+            arquivo.delete();
+        }
+    }
+
+    @Benchmark
+    public long exportar(Exportacao estado) throws Exception {
+        GerenciadorXML.exportarParaXML(estado.gravacao, estado.arquivo.getAbsolutePath());
+        return estado.arquivo.length();
+    }
+
+    @Benchmark
+    public List<Acao> importar(Importacao estado) throws Exception {
+        return GerenciadorXML.importarDeXML(estado.arquivo.getAbsolutePath());
+    }
+
+    @Benchmark
+    public List<Acao> importarParalelo(ImportacaoParalela estado) throws Exception {
+        return ImportadorParalelo.importar(estado.arquivo.toPath(), estado.threads, GerenciadorXML.Progresso.NENHUM);
+    }
+}
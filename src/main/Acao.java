@@ -10,6 +10,10 @@ public class Acao {
     private int x, y;
     private LocalDateTime timestamp;
     private long delay; // tempo em milissegundos até a próxima ação
+    private long duracao; // tempo pressionado em milissegundos (0 = não medido)
+    
+    private static final DateTimeFormatter FORMATO_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
     
     public enum TipoAcao {
         MOUSE_CLICK, MOUSE_MOVE, SCROLL, KEY_PRESS, KEY_RELEASE, KEY_TYPE
@@ -47,8 +51,27 @@ public class Acao {
     public long getDelay() { return delay; }
     public void setDelay(long delay) { this.delay = delay; }
     
+    /**
+     * Quanto tempo o botão ficou pressionado (MOUSE_CLICK) ou a tecla ficou
+     * pressionada (KEY_RELEASE), medido na captura. Zero em gravações antigas.
+     */
+    public long getDuracao() { return duracao; }
+    public void setDuracao(long duracao) { this.duracao = duracao; }
+    
+    /**
+     * Cópia independente, para transformações que ajustam delay ou detalhes
+     * sem alterar a gravação original.
+     */
+    public Acao copiar() {
+        Acao copia = new Acao(id, tipo, detalhes, x, y);
+        copia.timestamp = timestamp;
+        copia.delay = delay;
+        copia.duracao = duracao;
+        return copia;
+    }
+    
     public String getTimestampFormatted() {
-        return timestamp.format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"));
+        return timestamp.format(FORMATO_TIMESTAMP);
     }
     
     @Override
@@ -0,0 +1,119 @@
+package main;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Agenda no formato do cron: "minuto hora dia-do-mês mês dia-da-semana".
+ * Cada campo aceita *, números, intervalos (a-b), listas (a,b) e passos
+ * (* /n ou a-b/n). Também aceita @hourly, @daily e @weekly.
+ *
+ * Como no cron padrão, se dia-do-mês e dia-da-semana forem ambos restritos
+ * (nenhum começa com *), basta um dos dois: "0 9 1 * 1" roda no dia 1 e
+ * em toda segunda-feira.
+ */
+class AgendaCron {
+
+    private static final int LIMITE_ITERACOES = 366 * 24 * 60;
+
+    private final String expressao;
+    private final BitSet minutos;
+    private final BitSet horas;
+    private final BitSet diasMes;
+    private final BitSet meses;
+    private final BitSet diasSemana;
+    private final boolean diaOuSemana; // os dois campos de dia restritos: vale qualquer um
+
+    public AgendaCron(String expressao) {
+        String normalizada = switch (expressao.trim()) {
+            case "@hourly" -> "0 * * * *";
+            case "@daily" -> "0 0 * * *";
+            case "@weekly" -> "0 0 * * 0";
+            default -> expressao.trim();
+        };
+        String[] campos = normalizada.split("\\s+");
+        if (campos.length != 5) {
+            throw new IllegalArgumentException("Expressão cron deve ter 5 campos: " + expressao);
+        }
+        this.expressao = expressao;
+        this.minutos = campo(campos[0], 0, 59);
+        this.horas = campo(campos[1], 0, 23);
+        this.diasMes = campo(campos[2], 1, 31);
+        this.meses = campo(campos[3], 1, 12);
+        this.diasSemana = campo(campos[4], 0, 7);
+        if (diasSemana.get(7)) {
+            diasSemana.set(0); // 7 também é domingo
+        }
+        this.diaOuSemana = !campos[2].startsWith("*") && !campos[4].startsWith("*");
+    }
+
+    private static BitSet campo(String texto, int minimo, int maximo) {
+        BitSet valores = new BitSet(maximo + 1);
+        for (String parte : texto.split(",")) {
+            int passo = 1;
+            int barra = parte.indexOf('/');
+            if (barra >= 0) {
+                passo = Integer.parseInt(parte.substring(barra + 1));
+                parte = parte.substring(0, barra);
+            }
+            int inicio;
+            int fim;
+            if (parte.equals("*")) {
+                inicio = minimo;
+                fim = maximo;
+            } else if (parte.contains("-")) {
+                String[] limites = parte.split("-");
+                inicio = Integer.parseInt(limites[0]);
+                fim = Integer.parseInt(limites[1]);
+            } else {
+                inicio = Integer.parseInt(parte);
+                fim = barra >= 0 ? maximo : inicio;
+            }
+            if (inicio < minimo || fim > maximo || inicio > fim || passo <= 0) {
+                throw new IllegalArgumentException("Campo cron inválido: " + texto);
+            }
+            for (int v = inicio; v <= fim; v += passo) {
+                valores.set(v);
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Próximo instante (com precisão de minuto) estritamente posterior a depoisDe.
+     */
+    public LocalDateTime proximaExecucao(LocalDateTime depoisDe) {
+        LocalDateTime t = depoisDe.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        for (int i = 0; i < LIMITE_ITERACOES; i++) {
+            if (!meses.get(t.getMonthValue())) {
+                t = t.withDayOfMonth(1).withHour(0).withMinute(0).plusMonths(1);
+                continue;
+            }
+            if (!dia(t)) {
+                t = t.withHour(0).withMinute(0).plusDays(1);
+                continue;
+            }
+            if (!horas.get(t.getHour())) {
+                t = t.withMinute(0).plusHours(1);
+                continue;
+            }
+            if (minutos.get(t.getMinute())) {
+                return t;
+            }
+            t = t.plusMinutes(1);
+        }
+        throw new IllegalStateException("Nenhuma execução encontrada para: " + expressao);
+    }
+
+    private boolean dia(LocalDateTime t) {
+        boolean mes = diasMes.get(t.getDayOfMonth());
+        boolean semana = diasSemana.get(t.getDayOfWeek().getValue() % 7);
+        return diaOuSemana ? mes || semana : mes && semana;
+    }
+
+    @Override
+    public String toString() {
+        return expressao;
+    }
+}
@@ -0,0 +1,128 @@
+package main;
+
+import java.awt.HeadlessException;
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cola texto pela área de transferência do sistema: guarda o conteúdo atual,
+ * coloca o texto, envia o atalho de colar da plataforma (Ctrl+V ou Cmd+V) e
+ * restaura o conteúdo anterior. Preserva acentos e qualquer caractere
+ * Unicode, que a digitação tecla a tecla não consegue reproduzir.
+ */
+final class AreaTransferencia {
+
+    // Tempo para o aplicativo de destino ler a área de transferência antes da restauração
+    private static final int ESPERA_LEITURA_MS = 150;
+    private static final int TENTATIVAS = 5;
+
+    private AreaTransferencia() {
+    }
+
+    /**
+     * @return false se a área de transferência não estiver disponível (sem
+     *         interface gráfica ou ocupada por outro processo); nesse caso
+     *         nada foi enviado e o chamador deve digitar o texto
+     */
+    static boolean colar(SaidaEntrada saida, String texto) {
+        Clipboard area;
+        try {
+            area = Toolkit.getDefaultToolkit().getSystemClipboard();
+        } catch (HeadlessException e) {
+            return false;
+        }
+        Transferable anterior = copiar(area);
+        if (!definir(area, new StringSelection(texto))) {
+            return false;
+        }
+
+        int atalho = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() == InputEvent.META_DOWN_MASK
+            ? KeyEvent.VK_META : KeyEvent.VK_CONTROL;
+        saida.keyPress(atalho);
+        saida.keyPress(KeyEvent.VK_V);
+        saida.keyRelease(KeyEvent.VK_V);
+        saida.keyRelease(atalho);
+        saida.delay(ESPERA_LEITURA_MS);
+
+        if (anterior != null) {
+            definir(area, anterior);
+        }
+        return true;
+    }
+
+    /**
+     * Cópia imediata de todos os formatos do conteúdo atual. O Transferable
+     * original pode deixar de ser legível assim que outro dono assume a área
+     * de transferência, por isso os dados são lidos antes.
+     */
+    private static Transferable copiar(Clipboard area) {
+        Transferable atual;
+        try {
+            atual = area.getContents(null);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        if (atual == null) {
+            return null;
+        }
+        Map<DataFlavor, Object> dados = new LinkedHashMap<>();
+        for (DataFlavor formato : atual.getTransferDataFlavors()) {
+            try {
+                dados.put(formato, atual.getTransferData(formato));
+            } catch (Exception e) {
+                // Formato que não pode ser lido agora: fica de fora da restauração
+            }
+        }
+        if (dados.isEmpty()) {
+            return null;
+        }
+        return new Transferable() {
+            @Override
+            public DataFlavor[] getTransferDataFlavors() {
+                return dados.keySet().toArray(new DataFlavor[0]);
+            }
+
+            @Override
+            public boolean isDataFlavorSupported(DataFlavor formato) {
+                return dados.containsKey(formato);
+            }
+
+            @Override
+            public Object getTransferData(DataFlavor formato) throws UnsupportedFlavorException {
+                if (!dados.containsKey(formato)) {
+                    throw new UnsupportedFlavorException(formato);
+                }
+                return dados.get(formato);
+            }
+        };
+    }
+
+    /**
+     * Outro processo pode estar com a área de transferência aberta
+     * (IllegalStateException); tenta algumas vezes antes de desistir.
+     */
+    private static boolean definir(Clipboard area, Transferable conteudo) {
+        for (int i = 0; i < TENTATIVAS; i++) {
+            try {
+                area.setContents(conteudo, null);
+                return true;
+            } catch (IllegalStateException e) {
+                try {
+                    Thread.sleep(20L * (i + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
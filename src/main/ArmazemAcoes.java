@@ -0,0 +1,327 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Armazenamento das ações capturadas em segmentos de tamanho fixo. Quando as
+ * ações em memória passam do orçamento, os segmentos mais antigos são
+ * gravados em arquivos temporários num formato binário compacto (~40 bytes
+ * por ação, contra ~200 no heap) e relidos sob demanda, com cache por
+ * SoftReference, quando alguém lê ou percorre a gravação.
+ *
+ * Um único escritor (a thread do hook) e qualquer número de leitores. A
+ * gravação em disco acontece numa thread própria, então adicionar continua
+ * O(1) enquanto segmentos são despejados. Ações de segmentos fechados não
+ * devem ser alteradas: a cópia em disco não acompanharia a mudança.
+ *
+ * Orçamento: -Dmapeador.captura.memoriaMB (padrão: 1/4 do heap máximo).
+ */
+final class ArmazemAcoes implements Iterable<Acao> {
+
+    static final int TAMANHO_SEGMENTO = 4096;
+    // Estimativa de heap por ação: objeto, String de detalhes e LocalDateTime
+    static final int BYTES_POR_ACAO = 200;
+    static final long ORCAMENTO_PADRAO_BYTES = Long.getLong("mapeador.captura.memoriaMB", 0) > 0
+        ? Long.getLong("mapeador.captura.memoriaMB", 0) * 1024 * 1024
+        : Runtime.getRuntime().maxMemory() / 4;
+
+    private static final ExecutorService DESPEJO = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mapeador-despejo");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Bloco de TAMANHO_SEGMENTO ações. Em memória, {@code acoes} está
+     * preenchido; depois do despejo, só {@code arquivo}.
+     */
+    private static final class Segmento {
+        volatile Acao[] acoes;
+        volatile Path arquivo;
+        volatile SoftReference<Acao[]> carregado;
+
+        Segmento() {
+            this.acoes = new Acao[TAMANHO_SEGMENTO];
+        }
+
+        Acao[] ler() {
+            Acao[] emMemoria = acoes;
+            if (emMemoria != null) {
+                return emMemoria;
+            }
+            SoftReference<Acao[]> cache = carregado;
+            Acao[] lidas = cache != null ? cache.get() : null;
+            if (lidas == null) {
+                try {
+                    lidas = decodificar(ByteBuffer.wrap(Files.readAllBytes(arquivo)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao reler segmento " + arquivo, e);
+                }
+                carregado = new SoftReference<>(lidas);
+            }
+            return lidas;
+        }
+    }
+
+    private final long maximoEmMemoria;
+    private volatile Segmento[] segmentos = new Segmento[0];
+    private volatile int tamanho;
+    private volatile int despejados; // segmentos já em disco (sempre os primeiros)
+    private volatile long bytesEmDisco;
+    private volatile IOException falhaDespejo;
+    private Path diretorio;
+
+    ArmazemAcoes() {
+        this(ORCAMENTO_PADRAO_BYTES);
+    }
+
+    ArmazemAcoes(long orcamentoBytes) {
+        this.maximoEmMemoria = Math.max(TAMANHO_SEGMENTO, orcamentoBytes / BYTES_POR_ACAO);
+    }
+
+    // ===== ESCRITA (thread do hook) =====
+
+    void adicionar(Acao acao) {
+        int n = tamanho;
+        int indice = n % TAMANHO_SEGMENTO;
+        Segmento[] atuais = segmentos;
+        if (indice == 0) {
+            atuais = Arrays.copyOf(atuais, atuais.length + 1);
+            atuais[atuais.length - 1] = new Segmento();
+            segmentos = atuais;
+            if (atuais.length > 1) {
+                // O segmento anterior está completo e fechado
+                agendarDespejo();
+            }
+        }
+        atuais[atuais.length - 1].acoes[indice] = acao;
+        tamanho = n + 1; // publica a ação para os leitores
+    }
+
+    private int emMemoria() {
+        return tamanho - despejados * TAMANHO_SEGMENTO;
+    }
+
+    private void agendarDespejo() {
+        if (emMemoria() > maximoEmMemoria) {
+            DESPEJO.execute(this::despejar);
+        }
+    }
+
+    /**
+     * Grava os segmentos fechados mais antigos até voltar ao orçamento.
+     * O último segmento (em preenchimento) nunca é despejado.
+     */
+    private synchronized void despejar() {
+        Segmento[] atuais = segmentos;
+        while (emMemoria() > maximoEmMemoria && despejados < atuais.length - 1) {
+            Segmento segmento = atuais[despejados];
+            try {
+                if (diretorio == null) {
+                    diretorio = Files.createTempDirectory("mapeador-captura");
+                    diretorio.toFile().deleteOnExit();
+                }
+                Path arquivo = Files.createTempFile(diretorio, "segmento-", ".bin");
+                ByteBuffer dados = codificar(segmento.acoes);
+                Files.write(arquivo, Arrays.copyOf(dados.array(), dados.position()));
+                arquivo.toFile().deleteOnExit();
+                segmento.arquivo = arquivo; // antes de soltar o array: leitores dependem da ordem
+                segmento.acoes = null;
+                bytesEmDisco += dados.position();
+            } catch (IOException e) {
+                falhaDespejo = e; // segue em memória; o erro fica disponível para diagnóstico
+                return;
+            }
+            despejados++;
+        }
+    }
+
+    /**
+     * Descarta tudo, inclusive os arquivos temporários.
+     */
+    synchronized void limpar() {
+        Segmento[] atuais = segmentos;
+        segmentos = new Segmento[0];
+        tamanho = 0;
+        despejados = 0;
+        bytesEmDisco = 0;
+        for (Segmento segmento : atuais) {
+            if (segmento.arquivo != null) {
+                try {
+                    Files.deleteIfExists(segmento.arquivo);
+                } catch (IOException e) {
+                    // Arquivo temporário: deleteOnExit ainda tenta no encerramento
+                }
+            }
+        }
+    }
+
+    // ===== LEITURA =====
+
+    int size() {
+        return tamanho;
+    }
+
+    Acao get(int indice) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new IndexOutOfBoundsException("Índice " + indice + ", tamanho " + tamanho);
+        }
+        return segmentos[indice / TAMANHO_SEGMENTO].ler()[indice % TAMANHO_SEGMENTO];
+    }
+
+    boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    /**
+     * Visão imutável de [inicio, fim), sem cópia. As ações do intervalo já
+     * existem e não mudam de posição, então a visão continua válida enquanto
+     * a gravação cresce (até limpar()).
+     */
+    List<Acao> instantaneo(int inicio, int fim) {
+        Objects.checkFromToIndex(inicio, fim, tamanho);
+        return new Instantaneo(inicio, fim);
+    }
+
+    List<Acao> instantaneo() {
+        return new Instantaneo(0, tamanho);
+    }
+
+    private final class Instantaneo extends AbstractList<Acao> implements RandomAccess {
+        private final int inicio;
+        private final int fim;
+
+        Instantaneo(int inicio, int fim) {
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        public Acao get(int indice) {
+            Objects.checkIndex(indice, fim - inicio);
+            return ArmazemAcoes.this.get(inicio + indice);
+        }
+
+        @Override
+        public int size() {
+            return fim - inicio;
+        }
+
+        @Override
+        public Iterator<Acao> iterator() {
+            return new Cursor(inicio, fim);
+        }
+
+        @Override
+        public List<Acao> subList(int de, int ate) {
+            Objects.checkFromToIndex(de, ate, fim - inicio);
+            return new Instantaneo(inicio + de, inicio + ate);
+        }
+    }
+
+    /**
+     * Cursor a partir de {@code inicio} que acompanha a gravação: hasNext()
+     * passa a devolver true assim que novas ações chegam.
+     */
+    Cursor cursor(int inicio) {
+        return new Cursor(inicio, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Percorre as ações existentes no momento da chamada.
+     */
+    @Override
+    public Iterator<Acao> iterator() {
+        return new Cursor(0, tamanho);
+    }
+
+    /**
+     * Leitura sequencial que guarda o segmento atual, relendo um segmento
+     * despejado por vez em vez de uma busca por ação.
+     */
+    final class Cursor implements Iterator<Acao> {
+        private final int limite;
+        private int proximo;
+        private Acao[] bloco;
+
+        private Cursor(int inicio, int limite) {
+            this.proximo = inicio;
+            this.limite = limite;
+        }
+
+        /**
+         * Índice da próxima ação a ser devolvida.
+         */
+        int posicao() {
+            return proximo;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return proximo < Math.min(limite, tamanho);
+        }
+
+        @Override
+        public Acao next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int indice = proximo % TAMANHO_SEGMENTO;
+            if (indice == 0 || bloco == null) {
+                bloco = segmentos[proximo / TAMANHO_SEGMENTO].ler();
+            }
+            proximo++;
+            return bloco[indice];
+        }
+    }
+
+    int getSegmentosEmDisco() {
+        return despejados;
+    }
+
+    long getBytesEmDisco() {
+        return bytesEmDisco;
+    }
+
+    IOException getFalhaDespejo() {
+        return falhaDespejo;
+    }
+
+    // ===== FORMATO BINÁRIO (ver CodificadorAcoes) =====
+
+    private static ByteBuffer codificar(Acao[] acoes) {
+        ByteBuffer saida = ByteBuffer.allocate(acoes.length * 48);
+        CodificadorAcoes codificador = new CodificadorAcoes();
+        for (Acao acao : acoes) {
+            while (!codificador.escrever(acao, saida)) {
+                ByteBuffer maior = ByteBuffer.allocate(saida.capacity() * 2);
+                saida.flip();
+                saida = maior.put(saida);
+            }
+        }
+        return saida;
+    }
+
+    private static Acao[] decodificar(ByteBuffer entrada) {
+        CodificadorAcoes.Leitor leitor = new CodificadorAcoes.Leitor();
+        Acao[] acoes = new Acao[TAMANHO_SEGMENTO];
+        for (int i = 0; i < acoes.length; i++) {
+            acoes[i] = leitor.ler(entrada);
+        }
+        return acoes;
+    }
+}
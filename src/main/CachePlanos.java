@@ -0,0 +1,91 @@
+package main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de planos de reprodução por arquivo. Enquanto data de modificação e
+ * tamanho não mudam, o plano é devolvido sem ler o arquivo. Se mudarem, o
+ * conteúdo é lido e comparado por hash: só é reinterpretado se mudou de fato.
+ */
+class CachePlanos {
+
+    private static final class Entrada {
+        final long modificadoMs;
+        final long tamanho;
+        final byte[] hash;
+        final PlanoReproducao plano;
+
+        Entrada(long modificadoMs, long tamanho, byte[] hash, PlanoReproducao plano) {
+            this.modificadoMs = modificadoMs;
+            this.tamanho = tamanho;
+            this.hash = hash;
+            this.plano = plano;
+        }
+    }
+
+    /**
+     * Plano devolvido pelo cache e a forma como foi obtido.
+     */
+    public static final class Resultado {
+        public enum Origem { CACHE, HASH_IGUAL, INTERPRETADO }
+
+        public final PlanoReproducao plano;
+        public final Origem origem;
+
+        Resultado(PlanoReproducao plano, Origem origem) {
+            this.plano = plano;
+            this.origem = origem;
+        }
+    }
+
+    private final Map<Path, Entrada> entradas = new ConcurrentHashMap<>();
+
+    public Resultado obter(Path arquivo) throws Exception {
+        Path chave = arquivo.toAbsolutePath().normalize();
+        BasicFileAttributes atributos = Files.readAttributes(chave, BasicFileAttributes.class);
+        long modificadoMs = atributos.lastModifiedTime().toMillis();
+        long tamanho = atributos.size();
+
+        Entrada atual = entradas.get(chave);
+        if (atual != null && atual.modificadoMs == modificadoMs && atual.tamanho == tamanho) {
+            return new Resultado(atual.plano, Resultado.Origem.CACHE);
+        }
+
+        byte[] conteudo = Files.readAllBytes(chave);
+        byte[] hash = hash(conteudo);
+        if (atual != null && Arrays.equals(atual.hash, hash)) {
+            entradas.put(chave, new Entrada(modificadoMs, conteudo.length, hash, atual.plano));
+            return new Resultado(atual.plano, Resultado.Origem.HASH_IGUAL);
+        }
+
+        PlanoReproducao plano = PlanoReproducao.compilar(
+            GerenciadorXML.importarDeXML(new ByteArrayInputStream(conteudo)));
+        entradas.put(chave, new Entrada(modificadoMs, conteudo.length, hash, plano));
+        return new Resultado(plano, Resultado.Origem.INTERPRETADO);
+    }
+
+    public void invalidar(Path arquivo) {
+        entradas.remove(arquivo.toAbsolutePath().normalize());
+    }
+
+    public int tamanho() {
+        return entradas.size();
+    }
+
+    private static byte[] hash(byte[] conteudo) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(conteudo);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 indisponível", e);
+        }
+    }
+}
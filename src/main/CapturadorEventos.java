@@ -2,9 +2,14 @@ package main;
 
 
 import java.lang.System.Logger.Level;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 import com.github.kwhat.jnativehook.GlobalScreen;
@@ -23,10 +28,20 @@ import com.github.kwhat.jnativehook.mouse.NativeMouseWheelListener;
 class CapturadorEventos implements NativeKeyListener, NativeMouseListener, 
                                  NativeMouseMotionListener, NativeMouseWheelListener {
     
-    private List<Acao> acoes;
-    private boolean gravando;
+    private final ArmazemAcoes acoes;
+    private Acao ultimaAcao; // aguarda a próxima para ter o delay calculado
+    private volatile boolean gravando;
+    private volatile FilaEventosNativos fila;
+    private PoliticaPausas politicaPausas;
     private int contadorId;
     private boolean teclasPressionadas[];
+    // Instante do press de cada tecla e de cada botão, para medir quanto tempo ficaram pressionados
+    private final long[] teclaPressionadaEmMs = new long[256];
+    private final long[] botaoPressionadoEmMs = new long[8];
+    // Posição do press e se o botão já arrastou: o arraste é reproduzido com o botão pressionado
+    private final int[] botaoPressionadoX = new int[8];
+    private final int[] botaoPressionadoY = new int[8];
+    private final boolean[] botaoArrastando = new boolean[8];
     private long ultimoMovimentoTimestampMs;
     private static final long INTERVALO_MIN_MOVIMENTO_MS = 100;
     
@@ -38,14 +53,20 @@ class CapturadorEventos implements NativeKeyListener, NativeMouseListener,
     private int ultimoClickY;
     private static final long INTERVALO_DUPOLO_CLique_MS = 400;
     private static final int DISTANCIA_MAX_DUPOLO_CLique_PX = 3;
-    private EventoListener listener;
+    private final PublicadorAcoes publicador = new PublicadorAcoes();
     
-    public interface EventoListener {
-        void onNovoEvento(Acao acao);
-    }
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+    
+    // Thread própria para os callbacks do hook, em vez do despacho padrão do jnativehook
+    private static final ExecutorService DESPACHO = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mapeador-hook");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        return thread;
+    });
     
     public CapturadorEventos() {
-        this.acoes = new CopyOnWriteArrayList<>();
+        this.acoes = new ArmazemAcoes();
         this.gravando = false;
         this.contadorId = 1;
         this.teclasPressionadas = new boolean[256];
@@ -58,11 +79,16 @@ class CapturadorEventos implements NativeKeyListener, NativeMouseListener,
         
     }
     
-    public void setEventoListener(EventoListener listener) {
-        this.listener = listener;
+    /**
+     * Fluxo das ações capturadas. Cada assinante recebe as ações numa thread
+     * própria, com buffer e política de transbordo próprios, sem atrasar o hook.
+     */
+    public PublicadorAcoes getPublicador() {
+        return publicador;
     }
     
     public void iniciarCaptura() throws com.github.kwhat.jnativehook.NativeHookException {
+        GlobalScreen.setEventDispatcher(DESPACHO);
         if (!GlobalScreen.isNativeHookRegistered()) {
             GlobalScreen.registerNativeHook();
         }
@@ -71,14 +97,40 @@ class CapturadorEventos implements NativeKeyListener, NativeMouseListener,
         GlobalScreen.addNativeMouseMotionListener(this);
         GlobalScreen.addNativeMouseWheelListener(this);
         
-        this.gravando = true;
-        this.acoes.clear();
+        prepararGravacao();
+    }
+    
+    /**
+     * Zera o estado e passa a aceitar eventos, sem tocar no hook nativo.
+     * Usado por iniciarCaptura e pelos benchmarks, que injetam eventos diretamente.
+     */
+    void prepararGravacao() {
+        if (fila == null) {
+            fila = new FilaEventosNativos(FilaEventosNativos.CAPACIDADE_PADRAO, this::processar, "mapeador-formatacao");
+        }
+        // Tudo zerado antes de aceitar eventos: o callback do hook só olha gravando
+        this.acoes.limpar();
+        this.ultimaAcao = null;
         this.contadorId = 1;
+        this.politicaPausas = PoliticaPausas.doSistema();
+        Arrays.fill(botaoPressionadoEmMs, 0);
+        Arrays.fill(botaoArrastando, false);
+        this.gravando = true;
+    }
+    
+    /**
+     * Política aplicada às pausas da gravação atual ao parar (null se não configurada).
+     */
+    public PoliticaPausas getPoliticaPausas() {
+        return politicaPausas;
     }
     
     public void pararCaptura() {
         this.gravando = false;
-        calcularDelays();
+        if (fila != null) {
+            fila.esvaziar(); // eventos já aceitos ainda viram ações
+        }
+        this.ultimaAcao = null; // a última ação fica com delay 0
     }
     
     public void limparCaptura() throws NativeHookException {
@@ -91,34 +143,93 @@ class CapturadorEventos implements NativeKeyListener, NativeMouseListener,
         }
     }
     
-    private void calcularDelays() {
-        for (int i = 0; i < acoes.size() - 1; i++) {
-            Acao atual = acoes.get(i);
-            Acao proxima = acoes.get(i + 1);
-            
-            long delay = java.time.Duration.between(atual.getTimestamp(), proxima.getTimestamp()).toMillis();
-            atual.setDelay(delay);
-        }
-        
-        if (!acoes.isEmpty()) {
-            acoes.get(acoes.size() - 1).setDelay(0);
+    /**
+     * O delay de cada ação é calculado quando a seguinte chega, antes de o
+     * armazém fechar o segmento dela (segmentos fechados podem ir para o disco).
+     */
+    private void calcularDelay(Acao atual, Acao proxima, long seguradoMs) {
+        long delay = java.time.Duration.between(atual.getTimestamp(), proxima.getTimestamp()).toMillis();
+        atual.setDelay(Math.max(0, delay - seguradoMs));
+        if (politicaPausas != null) {
+            politicaPausas.aplicar(atual);
         }
     }
     
+    // Só a thread consumidora da fila chama: o filtro de gravação já foi feito no callback
     private void adicionarAcao(Acao acao) {
-        if (gravando) {
-            acoes.add(acao);
-            if (listener != null) {
-                listener.onNovoEvento(acao);
-            }
+        adicionarAcao(acao, 0);
+    }
+    
+    /**
+     * @param seguradoMs parte do intervalo até esta ação que a reprodução dela
+     *                   já refaz (o tempo de um clique pressionado); sai do
+     *                   delay da ação anterior para não ser contada duas vezes
+     */
+    private void adicionarAcao(Acao acao, long seguradoMs) {
+        if (ultimaAcao != null) {
+            calcularDelay(ultimaAcao, acao, seguradoMs);
         }
+        ultimaAcao = acao;
+        acoes.adicionar(acao);
+        Metricas.INSTANCIA.acaoCapturada(acao.getTipo());
+        publicador.publicar(acao);
     }
     
+    /**
+     * Visão imutável das ações gravadas até agora, sem cópia (ver instantaneo).
+     */
     public List<Acao> getAcoes() {
-        return new ArrayList<>(acoes);
+        return acoes.instantaneo();
+    }
+    
+    public boolean isEmpty() {
+        return acoes.isEmpty();
     }
     
-    // ============ MOUSE LISTENERS ============
+    /**
+     * Visão imutável de [inicio, fim); segue válida enquanto a gravação cresce.
+     */
+    public List<Acao> instantaneo(int inicio, int fim) {
+        return acoes.instantaneo(inicio, fim);
+    }
+    
+    /**
+     * Leitura sequencial a partir de {@code inicio}, que acompanha as ações
+     * que chegarem depois da criação do cursor.
+     */
+    public ArmazemAcoes.Cursor cursor(int inicio) {
+        return acoes.cursor(inicio);
+    }
+    
+    /**
+     * Armazenamento da gravação, para diagnóstico (segmentos em disco etc.).
+     */
+    ArmazemAcoes getArmazem() {
+        return acoes;
+    }
+
+    public int size() {
+        return acoes.size();
+    }
+
+    public Acao getAcao(int indice) {
+        return acoes.get(indice);
+    }
+    
+    // ============ CALLBACKS DO HOOK ============
+    // Rodam na thread de despacho: só copiam os campos do evento para a fila.
+    
+    private boolean enfileirar(int tipo, int codigo, int modificadores, int x, int y) {
+        FilaEventosNativos destino = fila;
+        if (!gravando || destino == null) {
+            return false;
+        }
+        if (!destino.registrar(tipo, codigo, modificadores, x, y, System.currentTimeMillis())) {
+            Metricas.INSTANCIA.eventoPerdido();
+            return false;
+        }
+        return true;
+    }
     
     @Override
     public void nativeMouseClicked(NativeMouseEvent e) {
@@ -127,113 +238,199 @@ class CapturadorEventos implements NativeKeyListener, NativeMouseListener,
     
     @Override
     public void nativeMousePressed(NativeMouseEvent e) {
-        // Nada a fazer no press; aguardamos o release para consolidar o(s) clique(s)
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.MOUSE_CLICK);
+        evento.concluir(enfileirar(FilaEventosNativos.BOTAO_PRESSIONADO, e.getButton(), 0, e.getX(), e.getY()));
     }
     
     @Override
     public void nativeMouseReleased(NativeMouseEvent e) {
-        String botao = switch (e.getButton()) {
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.MOUSE_CLICK);
+        evento.concluir(enfileirar(FilaEventosNativos.BOTAO_SOLTO, e.getButton(), 0, e.getX(), e.getY()));
+    }
+    
+    @Override
+    public void nativeMouseMoved(NativeMouseEvent e) {
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.MOUSE_MOVE);
+        evento.concluir(enfileirar(FilaEventosNativos.MOUSE_MOVIDO, 0, 0, e.getX(), e.getY()));
+    }
+    
+    @Override
+    public void nativeMouseDragged(NativeMouseEvent e) {
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.MOUSE_MOVE);
+        evento.concluir(enfileirar(FilaEventosNativos.MOUSE_ARRASTADO, 0, 0, e.getX(), e.getY()));
+    }
+    
+    @Override
+    public void nativeMouseWheelMoved(NativeMouseWheelEvent e) {
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.SCROLL);
+        evento.concluir(enfileirar(FilaEventosNativos.RODA, e.getWheelRotation(), 0, e.getX(), e.getY()));
+    }
+    
+    @Override
+    public void nativeKeyPressed(NativeKeyEvent e) {
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.KEY_PRESS);
+        evento.concluir(enfileirar(FilaEventosNativos.TECLA_PRESSIONADA, e.getKeyCode(), e.getModifiers(), -1, -1));
+    }
+    
+    @Override
+    public void nativeKeyReleased(NativeKeyEvent e) {
+        EventosJFR.CallbackCaptura evento = EventosJFR.CallbackCaptura.iniciar(Acao.TipoAcao.KEY_RELEASE);
+        evento.concluir(enfileirar(FilaEventosNativos.TECLA_SOLTA, e.getKeyCode(), e.getModifiers(), -1, -1));
+    }
+    
+    @Override
+    public void nativeKeyTyped(NativeKeyEvent e) {
+        // Desabilitado para evitar duplicidade com KEY_PRESS/KEY_RELEASE
+    }
+    
+    // ============ MONTAGEM DAS AÇÕES ============
+    // Thread consumidora da fila: filtros, nomes de tecla, detalhes e Acao.
+    
+    void processar(int tipo, int codigo, int modificadores, int x, int y, long tempoMs) {
+        switch (tipo) {
+            case FilaEventosNativos.BOTAO_PRESSIONADO -> botaoPressionado(codigo, x, y, tempoMs);
+            case FilaEventosNativos.BOTAO_SOLTO -> botaoSolto(codigo, x, y, tempoMs);
+            case FilaEventosNativos.MOUSE_MOVIDO -> mouseMovido(x, y, tempoMs);
+            case FilaEventosNativos.MOUSE_ARRASTADO -> mouseArrastado(x, y, tempoMs);
+            case FilaEventosNativos.RODA -> rodaMovida(codigo, x, y, tempoMs);
+            case FilaEventosNativos.TECLA_PRESSIONADA -> teclaPressionada(codigo, modificadores, tempoMs);
+            case FilaEventosNativos.TECLA_SOLTA -> teclaSolta(codigo, modificadores, tempoMs);
+            default -> { /* noop */ }
+        }
+    }
+    
+    private Acao novaAcao(Acao.TipoAcao tipo, String detalhes, int x, int y, long tempoMs) {
+        Acao acao = new Acao(contadorId++, tipo, detalhes, x, y);
+        acao.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(tempoMs), ZONA));
+        return acao;
+    }
+    
+    private void botaoPressionado(int botao, int x, int y, long tempoMs) {
+        // O clique é consolidado no release; aqui o instante, para a duração, e a posição, para o arraste
+        if (botao >= 0 && botao < botaoPressionadoEmMs.length) {
+            botaoPressionadoEmMs[botao] = tempoMs;
+            botaoPressionadoX[botao] = x;
+            botaoPressionadoY[botao] = y;
+            botaoArrastando[botao] = false;
+        }
+    }
+    
+    /**
+     * O primeiro arraste depois de um press grava antes o início do arraste,
+     * na posição e no instante do press: a reprodução pressiona o botão ali e
+     * só o solta no MOUSE_CLICK final.
+     */
+    private void mouseArrastado(int x, int y, long tempoMs) {
+        for (int botao = 0; botao < botaoPressionadoEmMs.length; botao++) {
+            if (botaoPressionadoEmMs[botao] > 0 && !botaoArrastando[botao]) {
+                botaoArrastando[botao] = true;
+                adicionarAcao(novaAcao(Acao.TipoAcao.MOUSE_MOVE, PlanoReproducao.INICIO_ARRASTE + nomeBotao(botao),
+                    botaoPressionadoX[botao], botaoPressionadoY[botao], botaoPressionadoEmMs[botao]));
+            }
+        }
+        adicionarAcao(novaAcao(Acao.TipoAcao.MOUSE_MOVE, "DRAG", x, y, tempoMs));
+    }
+    
+    private static String nomeBotao(int botaoNativo) {
+        return switch (botaoNativo) {
             case NativeMouseEvent.BUTTON1 -> "ESQUERDO";
             case NativeMouseEvent.BUTTON3 -> "MEIO";
             case NativeMouseEvent.BUTTON2 -> "DIREITO";
             default -> "DESCONHECIDO";
         };
-        long agora = System.currentTimeMillis();
+    }
+    
+    private void botaoSolto(int botaoNativo, int x, int y, long agora) {
+        String botao = nomeBotao(botaoNativo);
+        boolean arrastou = botaoNativo >= 0 && botaoNativo < botaoArrastando.length && botaoArrastando[botaoNativo];
         long ultimoClickMs;
-        switch (e.getButton()) {
+        switch (botaoNativo) {
             case NativeMouseEvent.BUTTON1 -> ultimoClickMs = ultimoClickEsqMs;
             case NativeMouseEvent.BUTTON3 -> ultimoClickMs = ultimoClickMeioMs;
             case NativeMouseEvent.BUTTON2 -> ultimoClickMs = ultimoClickDirMs;
             default -> ultimoClickMs = 0L;
         }
         int clicks = 1;
-        if (ultimoClickMs > 0
+        if (!arrastou && ultimoClickMs > 0
                 && (agora - ultimoClickMs) <= INTERVALO_DUPOLO_CLique_MS
-                && distancia(e.getX(), e.getY(), ultimoClickX, ultimoClickY) <= DISTANCIA_MAX_DUPOLO_CLique_PX) {
+                && distancia(x, y, ultimoClickX, ultimoClickY) <= DISTANCIA_MAX_DUPOLO_CLique_PX) {
             clicks = 2;
         }
         // Atualizar estado do Ãºltimo click para o botÃ£o correspondente
-        switch (e.getButton()) {
+        switch (botaoNativo) {
             case NativeMouseEvent.BUTTON1 -> ultimoClickEsqMs = agora;
             case NativeMouseEvent.BUTTON3 -> ultimoClickMeioMs = agora;
             case NativeMouseEvent.BUTTON2 -> ultimoClickDirMs = agora;
             default -> { /* noop */ }
         }
-        ultimoClickX = e.getX();
-        ultimoClickY = e.getY();
+        ultimoClickX = x;
+        ultimoClickY = y;
         String detalhes = String.format("%s_%d", botao, clicks);
-        Acao acao = new Acao(contadorId++, Acao.TipoAcao.MOUSE_CLICK, detalhes, e.getX(), e.getY());
-        adicionarAcao(acao);
+        Acao acao = novaAcao(Acao.TipoAcao.MOUSE_CLICK, detalhes, x, y, agora);
+        if (botaoNativo >= 0 && botaoNativo < botaoPressionadoEmMs.length
+                && botaoPressionadoEmMs[botaoNativo] > 0) {
+            acao.setDuracao(agora - botaoPressionadoEmMs[botaoNativo]);
+            botaoPressionadoEmMs[botaoNativo] = 0;
+            botaoArrastando[botaoNativo] = false;
+        }
+        // Num clique simples a reprodução refaz o tempo pressionado; no fim de um arraste, os DRAG já o ocuparam
+        adicionarAcao(acao, arrastou ? 0 : acao.getDuracao());
     }
     
-    @Override
-    public void nativeMouseMoved(NativeMouseEvent e) {
-        long agora = System.currentTimeMillis();
+    private void mouseMovido(int x, int y, long agora) {
         if ((agora - ultimoMovimentoTimestampMs) >= INTERVALO_MIN_MOVIMENTO_MS) {
             ultimoMovimentoTimestampMs = agora;
-            Acao acao = new Acao(contadorId++, Acao.TipoAcao.MOUSE_MOVE, "MOVE", e.getX(), e.getY());
-            adicionarAcao(acao);
+            adicionarAcao(novaAcao(Acao.TipoAcao.MOUSE_MOVE, "MOVE", x, y, agora));
+        } else {
+            Metricas.INSTANCIA.movimentoDescartado();
         }
     }
     
-    @Override
-    public void nativeMouseDragged(NativeMouseEvent e) {
-        Acao acao = new Acao(contadorId++, Acao.TipoAcao.MOUSE_MOVE, "DRAG", e.getX(), e.getY());
-        adicionarAcao(acao);
-    }
-    
-    @Override
-    public void nativeMouseWheelMoved(NativeMouseWheelEvent e) {
-        String direcao = e.getWheelRotation() < 0 ? "CIMA" : "BAIXO";
-        String detalhes = String.format("%s_%d", direcao, Math.abs(e.getWheelRotation()));
-        Acao acao = new Acao(contadorId++, Acao.TipoAcao.SCROLL, detalhes, e.getX(), e.getY());
-        adicionarAcao(acao);
+    private void rodaMovida(int rotacao, int x, int y, long tempoMs) {
+        String direcao = rotacao < 0 ? "CIMA" : "BAIXO";
+        String detalhes = String.format("%s_%d", direcao, Math.abs(rotacao));
+        adicionarAcao(novaAcao(Acao.TipoAcao.SCROLL, detalhes, x, y, tempoMs));
     }
     
-    // ============ KEYBOARD LISTENERS ============
-    
-    @Override
-    public void nativeKeyPressed(NativeKeyEvent e) {
-        int keyCode = e.getKeyCode();
+    private void teclaPressionada(int keyCode, int modificadores, long tempoMs) {
         if (keyCode >= 0 && keyCode < teclasPressionadas.length) {
             if (teclasPressionadas[keyCode]) {
+                Metricas.INSTANCIA.repeticaoDescartada();
                 return; // jÃ¡ registrada como pressionada, evita repetiÃ§Ã£o (auto-repeat)
             }
             teclasPressionadas[keyCode] = true;
+            teclaPressionadaEmMs[keyCode] = tempoMs;
         }
         
         String tecla = obterTeclaReal(keyCode);
-        String modificadores = getModificadores(e);
-        String detalhes = modificadores.isEmpty() ? tecla : modificadores + "+" + tecla;
-        Acao acao = new Acao(contadorId++, Acao.TipoAcao.KEY_PRESS, detalhes, -1, -1);
-        adicionarAcao(acao);
+        String mods = getModificadores(modificadores);
+        String detalhes = mods.isEmpty() ? tecla : mods + "+" + tecla;
+        adicionarAcao(novaAcao(Acao.TipoAcao.KEY_PRESS, detalhes, -1, -1, tempoMs));
     }
     
-    @Override
-    public void nativeKeyReleased(NativeKeyEvent e) {
-        int keyCode = e.getKeyCode();
+    private void teclaSolta(int keyCode, int modificadores, long tempoMs) {
+        long duracao = 0;
         if (keyCode >= 0 && keyCode < teclasPressionadas.length) {
+            if (teclasPressionadas[keyCode]) {
+                duracao = tempoMs - teclaPressionadaEmMs[keyCode];
+            }
             teclasPressionadas[keyCode] = false;
         }
         String tecla = obterTeclaReal(keyCode);
-        String modificadores = getModificadores(e);
-        String detalhes = modificadores.isEmpty() ? tecla : modificadores + "+" + tecla;
+        String mods = getModificadores(modificadores);
+        String detalhes = mods.isEmpty() ? tecla : mods + "+" + tecla;
         
-        Acao acao = new Acao(contadorId++, Acao.TipoAcao.KEY_RELEASE, detalhes, -1, -1);
+        Acao acao = novaAcao(Acao.TipoAcao.KEY_RELEASE, detalhes, -1, -1, tempoMs);
+        acao.setDuracao(duracao);
         adicionarAcao(acao);
     }
     
-    @Override
-    public void nativeKeyTyped(NativeKeyEvent e) {
-        // Desabilitado para evitar duplicidade com KEY_PRESS/KEY_RELEASE
-    }
-    
-    private String getModificadores(NativeKeyEvent e) {
+    private String getModificadores(int modificadores) {
         List<String> mods = new ArrayList<>();
-        if ((e.getModifiers() & NativeKeyEvent.CTRL_MASK) != 0) mods.add("CTRL");
-        if ((e.getModifiers() & NativeKeyEvent.ALT_MASK) != 0) mods.add("ALT");
-        if ((e.getModifiers() & NativeKeyEvent.SHIFT_MASK) != 0) mods.add("SHIFT");
-        if ((e.getModifiers() & NativeKeyEvent.META_MASK) != 0) mods.add("META");
+        if ((modificadores & NativeKeyEvent.CTRL_MASK) != 0) mods.add("CTRL");
+        if ((modificadores & NativeKeyEvent.ALT_MASK) != 0) mods.add("ALT");
+        if ((modificadores & NativeKeyEvent.SHIFT_MASK) != 0) mods.add("SHIFT");
+        if ((modificadores & NativeKeyEvent.META_MASK) != 0) mods.add("META");
         return String.join("+", mods);
     }
 
@@ -0,0 +1,99 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário compacto de ações, usado nos segmentos em disco do
+ * ArmazemAcoes e nos quadros da transmissão ao vivo.
+ *
+ * Por ação: id, tipo, x, y, timestamp (ns desde a época, UTC), delay,
+ * duração e os detalhes, como índice numa tabela de textos do bloco (novo
+ * texto: -1 seguido do tamanho e dos bytes UTF-8). A tabela vale até
+ * reiniciar(), então escritor e leitor reiniciam no mesmo ponto do fluxo.
+ */
+final class CodificadorAcoes {
+
+    // Tamanho fixo de uma ação sem os bytes de um texto novo
+    static final int BYTES_FIXOS = 4 + 1 + 4 + 4 + 8 + 8 + 8 + 4;
+
+    private final Map<String, Integer> textos = new HashMap<>();
+
+    void reiniciar() {
+        textos.clear();
+    }
+
+    /**
+     * Escreve a ação no buffer. Se não couber, o buffer fica como estava e
+     * o retorno é false.
+     */
+    boolean escrever(Acao acao, ByteBuffer destino) {
+        Integer conhecido = textos.get(acao.getDetalhes());
+        byte[] novo = conhecido == null ? acao.getDetalhes().getBytes(StandardCharsets.UTF_8) : null;
+        if (destino.remaining() < BYTES_FIXOS + (novo != null ? 4 + novo.length : 0)) {
+            return false;
+        }
+        destino.putInt(acao.getId());
+        destino.put((byte) acao.getTipo().ordinal());
+        destino.putInt(acao.getX());
+        destino.putInt(acao.getY());
+        LocalDateTime ts = acao.getTimestamp();
+        destino.putLong(ts.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + ts.getNano());
+        destino.putLong(acao.getDelay());
+        destino.putLong(acao.getDuracao());
+        if (conhecido != null) {
+            destino.putInt(conhecido);
+        } else {
+            destino.putInt(-1);
+            destino.putInt(novo.length);
+            destino.put(novo);
+            textos.put(acao.getDetalhes(), textos.size());
+        }
+        return true;
+    }
+
+    /**
+     * Lado da leitura; mantém a tabela de textos correspondente.
+     */
+    static final class Leitor {
+        private static final Acao.TipoAcao[] TIPOS = Acao.TipoAcao.values();
+
+        private final List<String> textos = new ArrayList<>();
+
+        void reiniciar() {
+            textos.clear();
+        }
+
+        Acao ler(ByteBuffer entrada) {
+            int id = entrada.getInt();
+            Acao.TipoAcao tipo = TIPOS[entrada.get()];
+            int x = entrada.getInt();
+            int y = entrada.getInt();
+            long ts = entrada.getLong();
+            long delay = entrada.getLong();
+            long duracao = entrada.getLong();
+            int texto = entrada.getInt();
+            String detalhes;
+            if (texto >= 0) {
+                detalhes = textos.get(texto);
+            } else {
+                byte[] bytes = new byte[entrada.getInt()];
+                entrada.get(bytes);
+                detalhes = new String(bytes, StandardCharsets.UTF_8);
+                textos.add(detalhes);
+            }
+            Acao acao = new Acao(id, tipo, detalhes, x, y);
+            acao.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(ts, 1_000_000_000L),
+                (int) Math.floorMod(ts, 1_000_000_000L), ZoneOffset.UTC));
+            acao.setDelay(delay);
+            acao.setDuracao(duracao);
+            return acao;
+        }
+    }
+}
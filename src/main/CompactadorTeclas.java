@@ -0,0 +1,133 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compacta sequências de digitação simples em blocos KEY_TYPE. Um trecho só
+ * é dobrado se contém apenas teclas de um caractere (letras, dígitos,
+ * símbolos e espaço, ou SHIFT+letra) e termina com todas as teclas soltas;
+ * sobreposição entre teclas, comum em digitação rápida, é aceita. Atalhos,
+ * ENTER, BACKSPACE etc. interrompem o trecho e são mantidos como estão.
+ *
+ * O bloco recebe o horário da primeira tecla e o delay da última, então o
+ * intervalo até a ação seguinte é preservado. Ao reproduzir, o texto é
+ * digitado no ritmo configurado em ReprodutorEventos.
+ */
+final class CompactadorTeclas {
+
+    static final int MIN_CARACTERES = 2;
+
+    private CompactadorTeclas() {
+    }
+
+    public static List<Acao> compactar(List<Acao> acoes) {
+        List<Acao> saida = new ArrayList<>(acoes.size());
+        Trecho trecho = new Trecho(saida::add);
+        for (Acao acao : acoes) {
+            trecho.aceitar(acao);
+        }
+        trecho.encerrar();
+        return saida;
+    }
+
+    /**
+     * Caractere digitado por uma tecla capturada, ou 0 se a tecla não pode
+     * fazer parte de um bloco de texto.
+     */
+    static char caractere(String detalhes) {
+        if (detalhes.length() == 1) {
+            char c = detalhes.charAt(0);
+            return (c >= 'A' && c <= 'Z') ? 0 : c; // maiúscula sem SHIFT não vem da captura
+        }
+        if (detalhes.length() == 7 && detalhes.startsWith("SHIFT+")) {
+            char c = detalhes.charAt(6);
+            if (c >= 'a' && c <= 'z') {
+                return Character.toUpperCase(c);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Trecho de digitação em andamento. Guarda as ações originais até saber
+     * se o trecho pode ser dobrado; as demais seguem direto para a saída.
+     */
+    static final class Trecho {
+        private final Consumer<Acao> saida;
+        private final List<Acao> pendentes = new ArrayList<>();
+        private final StringBuilder texto = new StringBuilder();
+        // Teclas pressionadas e ainda não soltas, pelo caractere base (minúsculo)
+        private final StringBuilder abertas = new StringBuilder();
+
+        // Ponto do último instante em que nenhuma tecla do trecho estava pressionada
+        private int acoesQuietas;
+        private int caracteresQuietos;
+
+        Trecho(Consumer<Acao> saida) {
+            this.saida = saida;
+        }
+
+        void aceitar(Acao acao) {
+            char c = acao.getTipo() == Acao.TipoAcao.KEY_PRESS || acao.getTipo() == Acao.TipoAcao.KEY_RELEASE
+                ? caractere(acao.getDetalhes()) : 0;
+            if (c == 0) {
+                encerrar();
+                saida.accept(acao);
+                return;
+            }
+            char base = Character.toLowerCase(c);
+            int aberta = abertas.indexOf(String.valueOf(base));
+            if (acao.getTipo() == Acao.TipoAcao.KEY_PRESS) {
+                if (aberta >= 0) {
+                    // Pressionada duas vezes sem soltar: não é digitação simples
+                    encerrar();
+                    saida.accept(acao);
+                    return;
+                }
+                abertas.append(base);
+                texto.append(c);
+            } else {
+                if (aberta < 0) {
+                    // Soltura de uma tecla pressionada fora do trecho
+                    encerrar();
+                    saida.accept(acao);
+                    return;
+                }
+                abertas.deleteCharAt(aberta);
+            }
+            pendentes.add(acao);
+            if (abertas.length() == 0) {
+                acoesQuietas = pendentes.size();
+                caracteresQuietos = texto.length();
+            }
+        }
+
+        /**
+         * Dobra o trecho até o último ponto quieto; o resto sai intacto.
+         */
+        void encerrar() {
+            if (pendentes.isEmpty()) {
+                return;
+            }
+            if (caracteresQuietos >= MIN_CARACTERES) {
+                Acao primeira = pendentes.get(0);
+                Acao ultima = pendentes.get(acoesQuietas - 1);
+                Acao bloco = new Acao(primeira.getId(), Acao.TipoAcao.KEY_TYPE,
+                    texto.substring(0, caracteresQuietos), -1, -1);
+                bloco.setTimestamp(primeira.getTimestamp());
+                bloco.setDelay(ultima.getDelay());
+                saida.accept(bloco);
+            } else {
+                pendentes.subList(0, acoesQuietas).forEach(saida);
+            }
+            pendentes.subList(acoesQuietas, pendentes.size()).forEach(saida);
+            pendentes.clear();
+            texto.setLength(0);
+            abertas.setLength(0);
+            acoesQuietas = 0;
+            caracteresQuietos = 0;
+        }
+    }
+}
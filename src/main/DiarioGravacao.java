@@ -0,0 +1,467 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Salvamento automático da gravação em andamento. A cada intervalo, só as
+ * ações novas desde o último ponto de controle são anexadas ao arquivo;
+ * nada é regravado. Duas threads e dois buffers diretos: uma codifica as
+ * ações num buffer enquanto a outra grava o anterior, e os dois trocam de
+ * lugar por um Exchanger. A captura e a interface nunca esperam: as ações
+ * são lidas do ArmazemAcoes pela visão imutável.
+ *
+ * Arquivo: "MAPD", versão, e blocos [int bytes seguintes][int ações][byte
+ * formato][int bytes sem compressão] com as ações no formato do
+ * CodificadorAcoes, cruas ou compactadas com deflate. A compressão roda na
+ * thread escritora, em paralelo com a codificação do próximo bloco. Um bloco
+ * incompleto no fim (queda no meio da gravação) é ignorado por ler(), então
+ * o diário é recuperável até o último ponto de controle. A versão 1, sem
+ * formato nem compressão, continua legível.
+ *
+ * O diário contém tudo o que foi digitado, inclusive senhas: a pasta e o
+ * arquivo são criados só com acesso do dono (onde o sistema tem permissões
+ * POSIX) e o arquivo é apagado depois de uma exportação bem-sucedida ou de
+ * um encerramento normal do mapeador (excluir()).
+ *
+ * Intervalo: -Dmapeador.autosalvar.segundos (padrão 30; 0 desliga).
+ * Pasta: -Dmapeador.autosalvar.dir (padrão: ~/.mapeador/autosalvamento).
+ * Compressão: -Dmapeador.autosalvar.compactar (padrão true).
+ */
+final class DiarioGravacao {
+
+    static final int INTERVALO_PADRAO_S = Integer.getInteger("mapeador.autosalvar.segundos", 30);
+    static final String EXTENSAO = "diario";
+    static final int TAMANHO_BUFFER = 1 << 20;
+    private static final int MAGICO = 0x4D415044; // "MAPD"
+    private static final int VERSAO = 2;
+    private static final int CABECALHO_BLOCO = 8; // como o agendador monta o bloco
+    private static final int CABECALHO_ARQUIVO_BLOCO = 4 + 4 + 1 + 4; // como vai para o arquivo
+    private static final byte FORMATO_CRU = 0;
+    private static final byte FORMATO_DEFLATE = 1;
+    private static final ByteBuffer FIM = ByteBuffer.allocate(0); // sentinela da última troca
+    static final boolean COMPACTAR_PADRAO = Boolean.parseBoolean(
+        System.getProperty("mapeador.autosalvar.compactar", "true"));
+
+    private final CapturadorEventos capturador;
+    private final Path arquivo;
+    private final int intervaloS;
+    private final Exchanger<ByteBuffer> troca = new Exchanger<>();
+    private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mapeador-autosalvar");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread escritora;
+    private final CompletableFuture<Path> concluido = new CompletableFuture<>();
+    private final boolean compactar = COMPACTAR_PADRAO;
+
+    // Thread do agendador
+    private ByteBuffer enchendo = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+    private final CodificadorAcoes codificador = new CodificadorAcoes();
+    private int quantidadeBloco;
+    private int inicioBloco = -1; // -1: nenhum bloco aberto
+    private int salvas; // ações já entregues à escritora
+    private boolean encerrado;
+
+    private volatile long bytesGravados;
+    private volatile long bytesSemCompressao;
+    private volatile int pontosControle;
+    private volatile IOException falha;
+
+    DiarioGravacao(CapturadorEventos capturador, Path arquivo, int intervaloS) {
+        this.capturador = capturador;
+        this.arquivo = arquivo;
+        this.intervaloS = intervaloS;
+        this.escritora = new Thread(this::gravar, "mapeador-diario");
+        this.escritora.setDaemon(true);
+    }
+
+    /**
+     * Arquivo novo na pasta configurada, nomeado pela data e hora. Na pasta
+     * do usuário, não na temporária compartilhada.
+     */
+    static Path arquivoPadrao() {
+        String pasta = System.getProperty("mapeador.autosalvar.dir");
+        Path diretorio = pasta != null ? Path.of(pasta)
+            : Path.of(System.getProperty("user.home"), ".mapeador", "autosalvamento");
+        return diretorio.resolve("autosalvamento_"
+            + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + "." + EXTENSAO);
+    }
+
+    /**
+     * Apaga o diário depois que ele for fechado. Para quando a gravação já
+     * está salva em outro lugar ou o mapeador encerra normalmente.
+     */
+    CompletableFuture<Void> excluir() {
+        return encerrar().handle((arquivoFechado, erro) -> {
+            try {
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                System.err.println("Não foi possível apagar o diário " + arquivo + ": " + e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Cria a pasta (se preciso) e o arquivo só com acesso do dono.
+     */
+    private FileChannel abrirArquivo() throws IOException {
+        boolean posix = arquivo.getFileSystem().supportedFileAttributeViews().contains("posix");
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        if (diretorio != null && !Files.isDirectory(diretorio)) {
+            if (posix) {
+                Files.createDirectories(diretorio,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(diretorio);
+            }
+        }
+        Set<StandardOpenOption> opcoes = EnumSet.of(StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!posix) {
+            return FileChannel.open(arquivo, opcoes);
+        }
+        Set<PosixFilePermission> somenteDono = PosixFilePermissions.fromString("rw-------");
+        FileChannel canal = FileChannel.open(arquivo, opcoes, PosixFilePermissions.asFileAttribute(somenteDono));
+        Files.setPosixFilePermissions(arquivo, somenteDono); // arquivo já existente não recebe o atributo de criação
+        return canal;
+    }
+
+    Path getArquivo() {
+        return arquivo;
+    }
+
+    void iniciar() {
+        escritora.start();
+        // Uma exceção escapando da tarefa cancelaria os próximos pontos sem aviso
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                pontoControle(false);
+            } catch (RuntimeException e) {
+                registrarFalha(e);
+            }
+        }, intervaloS, intervaloS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Último ponto de controle, com todas as ações, e fechamento do arquivo.
+     * Não bloqueia: o futuro completa quando o arquivo estiver fechado.
+     */
+    synchronized CompletableFuture<Path> encerrar() {
+        if (!encerrado) {
+            encerrado = true;
+            agendador.execute(() -> {
+                try {
+                    pontoControle(true);
+                } catch (RuntimeException e) {
+                    registrarFalha(e);
+                } finally {
+                    // Troca final: a escritora recebe FIM, sai do laço e não espera outra troca
+                    enchendo = FIM;
+                    entregar();
+                }
+            });
+            agendador.shutdown();
+        }
+        return concluido;
+    }
+
+    // ===== CODIFICAÇÃO (thread do agendador) =====
+
+    /**
+     * Anexa as ações novas. A última ação da gravação só entra no fim: o
+     * delay dela depende da ação seguinte.
+     */
+    private void pontoControle(boolean todas) {
+        int limite = capturador.size() - (todas ? 0 : 1);
+        if (limite <= salvas) {
+            return;
+        }
+        for (Acao acao : capturador.instantaneo(salvas, limite)) {
+            if (inicioBloco < 0) {
+                iniciarBloco();
+            }
+            if (!codificador.escrever(acao, enchendo)) {
+                fecharBloco();
+                entregar();
+                iniciarBloco();
+                if (!codificador.escrever(acao, enchendo)) {
+                    continue; // detalhes maiores que o buffer
+                }
+            }
+            quantidadeBloco++;
+        }
+        fecharBloco();
+        entregar();
+        salvas = limite;
+        pontosControle++;
+    }
+
+    private void registrarFalha(RuntimeException e) {
+        if (falha == null) {
+            falha = new IOException("Falha no ponto de controle: " + e, e);
+        }
+    }
+
+    private void iniciarBloco() {
+        codificador.reiniciar();
+        inicioBloco = enchendo.position();
+        enchendo.position(inicioBloco + CABECALHO_BLOCO);
+    }
+
+    private void fecharBloco() {
+        if (inicioBloco < 0) {
+            return;
+        }
+        if (quantidadeBloco == 0) {
+            enchendo.position(inicioBloco); // bloco vazio não vai para o arquivo
+        } else {
+            enchendo.putInt(inicioBloco, enchendo.position() - inicioBloco - 4);
+            enchendo.putInt(inicioBloco + 4, quantidadeBloco);
+        }
+        inicioBloco = -1;
+        quantidadeBloco = 0;
+    }
+
+    /**
+     * Troca o buffer cheio pelo que a escritora acabou de gravar.
+     */
+    private void entregar() {
+        try {
+            enchendo = troca.exchange(enchendo);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== GRAVAÇÃO (thread escritora) =====
+
+    private void gravar() {
+        ByteBuffer livre = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteBuffer compactado = compactar ? ByteBuffer.allocateDirect(TAMANHO_BUFFER) : null;
+        ByteBuffer cabecalhoBloco = ByteBuffer.allocateDirect(CABECALHO_ARQUIVO_BLOCO);
+        try (FileChannel canal = abrirArquivo()) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(8).putInt(MAGICO).putInt(VERSAO).flip();
+            escreverTudo(canal, cabecalho);
+            while (true) {
+                ByteBuffer cheio = troca.exchange(livre);
+                if (cheio == FIM) {
+                    break;
+                }
+                cheio.flip();
+                if (cheio.hasRemaining() && falha == null) {
+                    try {
+                        bytesGravados += escreverBloco(canal, cheio, cabecalhoBloco, deflater, compactado);
+                        canal.force(false);
+                    } catch (IOException e) {
+                        falha = e; // segue trocando buffers para não travar o agendador
+                    }
+                }
+                cheio.clear();
+                livre = cheio;
+            }
+        } catch (IOException e) {
+            falha = e;
+            descartarRestante(livre);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+        if (falha != null) {
+            concluido.completeExceptionally(falha);
+        } else {
+            concluido.complete(arquivo);
+        }
+    }
+
+    /**
+     * Sem arquivo, continua aceitando buffers até o fim para não travar o agendador.
+     */
+    private void descartarRestante(ByteBuffer livre) {
+        try {
+            while (livre != FIM) {
+                livre = troca.exchange(livre);
+                livre.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Grava um bloco montado pelo agendador, compactado se isso o deixar menor.
+     */
+    private long escreverBloco(FileChannel canal, ByteBuffer bloco, ByteBuffer cabecalho,
+                               Deflater deflater, ByteBuffer compactado) throws IOException {
+        int quantidade = bloco.getInt(4);
+        bloco.position(CABECALHO_BLOCO);
+        int bruto = bloco.remaining();
+        bytesSemCompressao += bruto;
+        ByteBuffer corpo = bloco;
+        byte formato = FORMATO_CRU;
+        if (compactado != null) {
+            deflater.reset();
+            deflater.setInput(bloco);
+            deflater.finish();
+            compactado.clear();
+            while (!deflater.finished() && compactado.hasRemaining()) {
+                deflater.deflate(compactado);
+            }
+            if (deflater.finished() && compactado.position() < bruto) {
+                corpo = compactado.flip();
+                formato = FORMATO_DEFLATE;
+            } else {
+                bloco.position(CABECALHO_BLOCO); // não compensou: vai cru
+            }
+        }
+        cabecalho.clear()
+            .putInt(CABECALHO_ARQUIVO_BLOCO - 4 + corpo.remaining())
+            .putInt(quantidade)
+            .put(formato)
+            .putInt(bruto)
+            .flip();
+        ByteBuffer[] partes = {cabecalho, corpo};
+        long escritos = 0;
+        while (corpo.hasRemaining()) {
+            escritos += canal.write(partes);
+        }
+        return escritos;
+    }
+
+    private static long escreverTudo(FileChannel canal, ByteBuffer dados) throws IOException {
+        long escritos = 0;
+        while (dados.hasRemaining()) {
+            escritos += canal.write(dados);
+        }
+        return escritos;
+    }
+
+    long getBytesGravados() {
+        return bytesGravados;
+    }
+
+    long getBytesSemCompressao() {
+        return bytesSemCompressao;
+    }
+
+    int getPontosControle() {
+        return pontosControle;
+    }
+
+    IOException getFalha() {
+        return falha;
+    }
+
+    // ===== LEITURA =====
+
+    /**
+     * Ações do diário, até o último bloco completo.
+     */
+    static List<Acao> ler(Path arquivo) throws IOException {
+        List<Acao> acoes = new ArrayList<>();
+        CodificadorAcoes.Leitor leitor = new CodificadorAcoes.Leitor();
+        Inflater inflater = new Inflater();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(8);
+            if (canal.read(cabecalho) < 8 || cabecalho.getInt(0) != MAGICO) {
+                throw new IOException("Não é um diário de gravação: " + arquivo);
+            }
+            int versao = cabecalho.getInt(4);
+            if (versao != 1 && versao != VERSAO) {
+                throw new IOException("Versão de diário não suportada: " + versao);
+            }
+            ByteBuffer bloco = ByteBuffer.allocate(TAMANHO_BUFFER + CABECALHO_ARQUIVO_BLOCO);
+            ByteBuffer descompactado = ByteBuffer.allocate(TAMANHO_BUFFER);
+            while (true) {
+                ByteBuffer tamanho = ByteBuffer.allocate(4);
+                if (lerTudo(canal, tamanho) < 4) {
+                    break;
+                }
+                int bytes = tamanho.getInt(0);
+                if (bytes < 4 || bytes > bloco.capacity()) {
+                    break;
+                }
+                bloco.clear().limit(bytes);
+                if (lerTudo(canal, bloco) < bytes) {
+                    break; // bloco cortado por uma queda: fica de fora
+                }
+                bloco.flip();
+                int quantidade = bloco.getInt();
+                ByteBuffer conteudo = bloco;
+                if (versao >= 2) {
+                    byte formato = bloco.get();
+                    int bruto = bloco.getInt();
+                    if (formato == FORMATO_DEFLATE) {
+                        conteudo = inflar(inflater, bloco, descompactado, bruto);
+                    }
+                }
+                leitor.reiniciar();
+                for (int i = 0; i < quantidade; i++) {
+                    acoes.add(leitor.ler(conteudo));
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return acoes;
+    }
+
+    private static ByteBuffer inflar(Inflater inflater, ByteBuffer entrada, ByteBuffer saida, int bruto)
+            throws IOException {
+        if (bruto < 0 || bruto > saida.capacity()) {
+            throw new IOException("Bloco do diário corrompido: " + bruto + " bytes");
+        }
+        inflater.reset();
+        inflater.setInput(entrada);
+        saida.clear().limit(bruto);
+        try {
+            while (saida.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(saida) == 0) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloco do diário corrompido", e);
+        }
+        if (saida.hasRemaining()) {
+            throw new IOException("Bloco do diário corrompido: esperados " + bruto + " bytes");
+        }
+        return saida.flip();
+    }
+
+    private static int lerTudo(FileChannel canal, ByteBuffer destino) throws IOException {
+        int lidos = 0;
+        while (destino.hasRemaining()) {
+            int n = canal.read(destino);
+            if (n < 0) {
+                break;
+            }
+            lidos += n;
+        }
+        return lidos;
+    }
+}
@@ -0,0 +1,103 @@
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos do Flight Recorder para diagnosticar atrasos de captura e de
+ * reprodução. Com a gravação desligada, begin/commit viram praticamente
+ * nada após a compilação JIT. Os perfis de gravação ficam em jfr/*.jfc.
+ */
+final class EventosJFR {
+
+    private EventosJFR() {
+    }
+
+    /**
+     * Duração de um callback do hook nativo: só a cópia do evento para a
+     * FilaEventosNativos (a ação é montada depois, em outra thread).
+     */
+    @Name("main.CallbackCaptura")
+    @Label("Callback de captura")
+    @Category({"Mapeador", "Captura"})
+    @Description("Tempo gasto dentro do callback do hook nativo")
+    @StackTrace(false)
+    static final class CallbackCaptura extends Event {
+        @Label("Tipo")
+        String tipo;
+
+        @Label("Registrada")
+        @Description("Falso quando o evento não entrou na fila (fora de gravação ou fila cheia)")
+        boolean registrada;
+
+        static CallbackCaptura iniciar(Acao.TipoAcao tipo) {
+            CallbackCaptura evento = new CallbackCaptura();
+            evento.tipo = tipo.name();
+            evento.begin();
+            return evento;
+        }
+
+        void concluir(boolean registrada) {
+            this.registrada = registrada;
+            commit();
+        }
+    }
+
+    /**
+     * Um lote entregue da captura à interface pelo timer da tabela.
+     */
+    @Name("main.EntregaInterface")
+    @Label("Entrega à interface")
+    @Category({"Mapeador", "Captura"})
+    @Description("Ações acumuladas entre dois ciclos do timer e custo de aplicá-las na EDT")
+    @StackTrace(false)
+    static final class EntregaInterface extends Event {
+        @Label("Fila")
+        @Description("Ações capturadas ainda não exibidas quando o ciclo começou")
+        int fila;
+
+        @Label("Lote")
+        @Description("Ações efetivamente aplicadas na tabela e nas visualizações")
+        int lote;
+
+        @Label("Espera da mais antiga")
+        @Timespan(Timespan.MILLISECONDS)
+        long esperaMs;
+    }
+
+    /**
+     * Execução de um passo da reprodução: a duração do evento é o custo das
+     * chamadas ao Robot; os campos comparam o instante planejado com o real.
+     */
+    @Name("main.PassoReproducao")
+    @Label("Passo de reprodução")
+    @Category({"Mapeador", "Reprodução"})
+    @Description("Instante planejado e real de cada ação reproduzida")
+    @StackTrace(false)
+    static final class PassoReproducao extends Event {
+        @Label("Índice")
+        int indice;
+
+        @Label("Tipo")
+        String tipo;
+
+        @Label("Planejado")
+        @Description("Deslocamento previsto desde o início da reprodução")
+        @Timespan(Timespan.MILLISECONDS)
+        long planejadoMs;
+
+        @Label("Real")
+        @Description("Deslocamento efetivo desde o início da reprodução")
+        @Timespan(Timespan.MILLISECONDS)
+        long realMs;
+
+        @Label("Atraso")
+        @Timespan(Timespan.MILLISECONDS)
+        long atrasoMs;
+    }
+}
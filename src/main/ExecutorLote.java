@@ -0,0 +1,273 @@
+package main;
+
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Executa um conjunto de macros (diretório com *.xml ou manifesto com um
+ * caminho por linha) de forma agendada, com um pool limitado de trabalhadores.
+ * Os planos ficam em CachePlanos entre as rodadas, e cada rodada grava um
+ * relatório CSV.
+ *
+ * Só o preparo roda em paralelo: as macros são reproduzidas uma por vez,
+ * porque todos os Robots movem o mesmo cursor e digitam no mesmo teclado.
+ * Cada uma usa a tela padrão, a menos que a linha do manifesto fixe outra
+ * com " @N" no fim (N = índice da tela, a partir de 0).
+ *
+ * Uso: ExecutorLote DIRETORIO|MANIFESTO [--cron "0 * * * *"] [--trabalhadores N]
+ *                   [--relatorios DIR] [--uma-vez]
+ */
+class ExecutorLote {
+
+    private static final DateTimeFormatter FORMATO_ARQUIVO = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final Pattern TELA_FIXADA = Pattern.compile("\\s+@(\\d+)$");
+
+    /**
+     * Resultado de uma macro em uma rodada.
+     */
+    static final class ResultadoMacro {
+        final Path arquivo;
+        final int tela;
+        String estado = "PENDENTE";
+        String origemPlano = "";
+        int acoes;
+        int executadas;
+        long preparoMs;
+        long execucaoMs;
+        String erro = "";
+
+        ResultadoMacro(Path arquivo, int tela) {
+            this.arquivo = arquivo;
+            this.tela = tela;
+        }
+    }
+
+    private final Path origem;
+    private final int trabalhadores;
+    private final Path diretorioRelatorios;
+    private final CachePlanos cache = new CachePlanos();
+    private final GraphicsDevice[] telas;
+    private final int telaPadrao;
+    private final Semaphore entradaLivre = new Semaphore(1, true);
+    private final ReprodutorEventos[] reprodutores;
+
+    public ExecutorLote(Path origem, int trabalhadores, Path diretorioRelatorios) {
+        this.origem = origem;
+        this.trabalhadores = Math.max(1, trabalhadores);
+        this.diretorioRelatorios = diretorioRelatorios;
+        GraphicsEnvironment ambiente = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        this.telas = ambiente.getScreenDevices();
+        this.telaPadrao = Math.max(0, Arrays.asList(telas).indexOf(ambiente.getDefaultScreenDevice()));
+        this.reprodutores = new ReprodutorEventos[telas.length];
+    }
+
+    /**
+     * Lista as macros: *.xml do diretório (ordem alfabética, tela padrão) ou
+     * as linhas do manifesto (ignorando vazias e comentários com #, relativas
+     * ao manifesto, com " @N" opcional para fixar a tela).
+     */
+    List<ResultadoMacro> listarMacros() throws IOException {
+        List<ResultadoMacro> macros = new ArrayList<>();
+        if (Files.isDirectory(origem)) {
+            try (Stream<Path> arquivos = Files.list(origem)) {
+                arquivos.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".xml"))
+                    .sorted()
+                    .forEach(p -> macros.add(new ResultadoMacro(p, telaPadrao)));
+            }
+            return macros;
+        }
+        Path base = origem.toAbsolutePath().getParent();
+        for (String linha : Files.readAllLines(origem, StandardCharsets.UTF_8)) {
+            String caminho = linha.trim();
+            if (caminho.isEmpty() || caminho.startsWith("#")) {
+                continue;
+            }
+            int tela = telaPadrao;
+            Matcher fixada = TELA_FIXADA.matcher(caminho);
+            if (fixada.find()) {
+                tela = Integer.parseInt(fixada.group(1));
+                caminho = caminho.substring(0, fixada.start());
+            }
+            macros.add(new ResultadoMacro(base.resolve(caminho), tela));
+        }
+        return macros;
+    }
+
+    /**
+     * Executa todas as macros uma vez e grava o relatório da rodada.
+     */
+    public List<ResultadoMacro> executarRodada() throws Exception {
+        List<ResultadoMacro> resultados = listarMacros();
+        ExecutorService pool = Executors.newFixedThreadPool(trabalhadores, r -> {
+            Thread thread = new Thread(r, "mapeador-lote");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime inicio = LocalDateTime.now();
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (ResultadoMacro resultado : resultados) {
+                futuros.add(pool.submit(() -> executarMacro(resultado)));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        gravarRelatorio(inicio, resultados);
+        return resultados;
+    }
+
+    private void executarMacro(ResultadoMacro resultado) {
+        if (resultado.tela >= telas.length) {
+            resultado.estado = "ERRO";
+            resultado.erro = "Tela " + resultado.tela + " inexistente (" + telas.length + " conectadas)";
+            return;
+        }
+        long t0 = System.nanoTime();
+        PlanoReproducao plano;
+        try {
+            // O preparo (cache/parse) roda em paralelo; só a reprodução disputa mouse e teclado
+            CachePlanos.Resultado obtido = cache.obter(resultado.arquivo);
+            plano = obtido.plano;
+            resultado.origemPlano = obtido.origem.name();
+            resultado.acoes = plano.tamanho();
+        } catch (Exception e) {
+            resultado.estado = "ERRO";
+            resultado.erro = "Falha ao preparar: " + e.getMessage();
+            return;
+        } finally {
+            resultado.preparoMs = Duration.ofNanos(System.nanoTime() - t0).toMillis();
+        }
+
+        try {
+            entradaLivre.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.estado = "CANCELADO";
+            return;
+        }
+        long t1 = System.nanoTime();
+        try {
+            ReprodutorEventos reprodutor = reprodutor(resultado.tela);
+            AtomicInteger executadas = new AtomicInteger();
+            String[] erro = new String[1];
+            reprodutor.setReprodutorListener(new ReprodutorEventos.ReprodutorListener() {
+                @Override
+                public void onAcaoExecutada(Acao acao, int progresso, int total) {
+                    executadas.set(progresso);
+                }
+
+                @Override
+                public void onReproducaoCompleta() {
+                }
+
+                @Override
+                public void onErro(String mensagem) {
+                    erro[0] = mensagem;
+                }
+            });
+            reprodutor.setPoliticaPausas(PoliticaPausas.doSistema());
+            reprodutor.reproduzirPlano(plano).join();
+            resultado.executadas = executadas.get();
+            resultado.estado = erro[0] == null ? "CONCLUIDO" : "ERRO";
+            resultado.erro = erro[0] == null ? "" : erro[0];
+        } catch (Exception e) {
+            resultado.estado = "ERRO";
+            resultado.erro = e.getMessage();
+        } finally {
+            resultado.execucaoMs = Duration.ofNanos(System.nanoTime() - t1).toMillis();
+            entradaLivre.release();
+        }
+    }
+
+    private synchronized ReprodutorEventos reprodutor(int tela) throws Exception {
+        if (reprodutores[tela] == null) {
+            reprodutores[tela] = new ReprodutorEventos(telas[tela]);
+        }
+        return reprodutores[tela];
+    }
+
+    private void gravarRelatorio(LocalDateTime inicio, List<ResultadoMacro> resultados) throws IOException {
+        Files.createDirectories(diretorioRelatorios);
+        Path relatorio = diretorioRelatorios.resolve("lote_" + inicio.format(FORMATO_ARQUIVO) + ".csv");
+        try (PrintWriter saida = new PrintWriter(Files.newBufferedWriter(relatorio, StandardCharsets.UTF_8))) {
+            saida.println("arquivo;tela;estado;plano;acoes;executadas;preparo_ms;execucao_ms;erro");
+            for (ResultadoMacro r : resultados) {
+                saida.printf("%s;%d;%s;%s;%d;%d;%d;%d;%s%n", r.arquivo, r.tela, r.estado, r.origemPlano,
+                    r.acoes, r.executadas, r.preparoMs, r.execucaoMs, r.erro.replace(';', ','));
+            }
+        }
+        long concluidas = resultados.stream().filter(r -> r.estado.equals("CONCLUIDO")).count();
+        long emCache = resultados.stream().filter(r -> r.origemPlano.equals("CACHE")).count();
+        System.out.printf("[ExecutorLote] Rodada %s: %d/%d concluídas, %d planos em cache. Relatório: %s%n",
+            inicio.format(FORMATO_ARQUIVO), concluidas, resultados.size(), emCache, relatorio);
+    }
+
+    /**
+     * Executa rodadas segundo a agenda. Uma rodada que atrasa não se sobrepõe
+     * à seguinte: a próxima é calculada a partir do fim da anterior.
+     */
+    public void executarAgendado(AgendaCron agenda) throws Exception {
+        while (!Thread.currentThread().isInterrupted()) {
+            LocalDateTime proxima = agenda.proximaExecucao(LocalDateTime.now());
+            System.out.println("[ExecutorLote] Próxima rodada: " + proxima);
+            long esperaMs = Duration.between(LocalDateTime.now(), proxima).toMillis();
+            if (esperaMs > 0) {
+                Thread.sleep(esperaMs);
+            }
+            executarRodada();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Uso: ExecutorLote DIRETORIO|MANIFESTO [--cron \"0 * * * *\"] "
+                + "[--trabalhadores N] [--relatorios DIR] [--uma-vez]");
+            System.exit(2);
+        }
+        Path origem = Paths.get(args[0]);
+        String cron = "@hourly";
+        int trabalhadores = Runtime.getRuntime().availableProcessors();
+        Path relatorios = Paths.get("relatorios");
+        boolean umaVez = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cron" -> cron = args[++i];
+                case "--trabalhadores" -> trabalhadores = Integer.parseInt(args[++i]);
+                case "--relatorios" -> relatorios = Paths.get(args[++i]);
+                case "--uma-vez" -> umaVez = true;
+                default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+            }
+        }
+
+        Metricas.registrar();
+        ExecutorLote executor = new ExecutorLote(origem, trabalhadores, relatorios);
+        if (umaVez) {
+            executor.executarRodada();
+        } else {
+            executor.executarAgendado(new AgendaCron(cron));
+        }
+    }
+}
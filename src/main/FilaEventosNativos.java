@@ -0,0 +1,128 @@
+package main;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fila circular entre o callback do hook e a thread que monta as ações. O
+ * callback só copia os campos brutos do evento para arrays primitivos; nomes
+ * de tecla, detalhes e objetos Acao são criados depois, na thread
+ * consumidora. Um produtor e um consumidor, sem trava e sem alocação.
+ *
+ * Se o consumidor ficar para trás até encher a fila, o evento novo é
+ * perdido e contado (getPerdidos), em vez de segurar o hook.
+ */
+final class FilaEventosNativos {
+
+    // Tipos de evento bruto
+    static final int TECLA_PRESSIONADA = 0;
+    static final int TECLA_SOLTA = 1;
+    static final int BOTAO_PRESSIONADO = 2;
+    static final int BOTAO_SOLTO = 3;
+    static final int MOUSE_MOVIDO = 4;
+    static final int MOUSE_ARRASTADO = 5;
+    static final int RODA = 6;
+
+    static final int CAPACIDADE_PADRAO = 1 << 16;
+
+    /**
+     * Recebe os eventos na thread consumidora, na ordem em que chegaram.
+     */
+    interface Consumidor {
+        void processar(int tipo, int codigo, int modificadores, int x, int y, long tempoMs);
+    }
+
+    private final int mascara;
+    private final int[] tipos;
+    private final int[] codigos;
+    private final int[] modificadores;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] temposMs;
+
+    private long escritos; // só o produtor altera
+    private volatile long publicados;
+    private volatile long lidos;
+    private volatile boolean aguardando;
+    private volatile long perdidos;
+    private final Thread consumidora;
+
+    FilaEventosNativos(int capacidade, Consumidor consumidor, String nomeThread) {
+        if (Integer.bitCount(capacidade) != 1) {
+            throw new IllegalArgumentException("Capacidade deve ser potência de 2: " + capacidade);
+        }
+        this.mascara = capacidade - 1;
+        this.tipos = new int[capacidade];
+        this.codigos = new int[capacidade];
+        this.modificadores = new int[capacidade];
+        this.xs = new int[capacidade];
+        this.ys = new int[capacidade];
+        this.temposMs = new long[capacidade];
+        this.consumidora = new Thread(() -> consumir(consumidor), nomeThread);
+        this.consumidora.setDaemon(true);
+        this.consumidora.start();
+    }
+
+    // ===== PRODUTOR (callback do hook) =====
+
+    /**
+     * @return false se a fila estava cheia e o evento foi perdido
+     */
+    boolean registrar(int tipo, int codigo, int mods, int x, int y, long tempoMs) {
+        long n = escritos;
+        if (n - lidos > mascara) {
+            perdidos++;
+            return false;
+        }
+        int i = (int) n & mascara;
+        tipos[i] = tipo;
+        codigos[i] = codigo;
+        modificadores[i] = mods;
+        xs[i] = x;
+        ys[i] = y;
+        temposMs[i] = tempoMs;
+        escritos = n + 1;
+        publicados = n + 1;
+        if (aguardando) {
+            LockSupport.unpark(consumidora);
+        }
+        return true;
+    }
+
+    long getPerdidos() {
+        return perdidos;
+    }
+
+    // ===== CONSUMIDOR =====
+
+    private void consumir(Consumidor consumidor) {
+        while (true) {
+            long n = lidos;
+            if (n == publicados) {
+                aguardando = true;
+                if (n == publicados) { // confere de novo: o produtor pode ter publicado antes de ver o aviso
+                    LockSupport.parkNanos(this, 10_000_000L);
+                }
+                aguardando = false;
+                continue;
+            }
+            int i = (int) n & mascara;
+            try {
+                consumidor.processar(tipos[i], codigos[i], modificadores[i], xs[i], ys[i], temposMs[i]);
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao processar evento capturado: " + e);
+            }
+            lidos = n + 1;
+        }
+    }
+
+    /**
+     * Espera o consumidor processar tudo o que já foi registrado.
+     */
+    void esvaziar() {
+        long alvo = publicados;
+        while (lidos < alvo) {
+            LockSupport.unpark(consumidora);
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+}
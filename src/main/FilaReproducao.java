@@ -0,0 +1,269 @@
+package main;
+
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fila de trabalhos de reprodução. Uma única thread executa os trabalhos na
+ * ordem de chegada, em qualquer tela: todos os Robots movem o mesmo cursor e
+ * digitam no mesmo teclado (ReprodutorEventos também não deixa a reprodução
+ * da interface correr junto). Só os últimos HISTORICO_MAXIMO trabalhos
+ * finalizados ficam consultáveis.
+ */
+class FilaReproducao {
+
+    public enum Estado { PENDENTE, EXECUTANDO, CONCLUIDO, ERRO, CANCELADO }
+
+    private static final int CAPACIDADE_ASSINANTE = 1024;
+    static final int HISTORICO_MAXIMO = 1000;
+
+    /**
+     * Um pedido de reprodução e seu resultado. Também é o ReprodutorListener
+     * enquanto executa, repassando o progresso aos assinantes.
+     */
+    public static class Trabalho implements ReprodutorEventos.ReprodutorListener {
+        private final int id;
+        private final String arquivo;
+        private final int tela;
+        private final LocalDateTime criadoEm = LocalDateTime.now();
+        private volatile Estado estado = Estado.PENDENTE;
+        private volatile int progresso;
+        private volatile int total;
+        private volatile String erro;
+        private volatile long inicioMs;
+        private volatile long fimMs;
+        private volatile ReprodutorEventos reprodutor;
+        private volatile String resultado;
+        private Future<?> futuro;
+        private final List<BlockingQueue<String>> assinantes = new CopyOnWriteArrayList<>();
+
+        Trabalho(int id, String arquivo, int tela) {
+            this.id = id;
+            this.arquivo = arquivo;
+            this.tela = tela;
+        }
+
+        public int getId() { return id; }
+
+        public Estado getEstado() { return estado; }
+
+        public boolean isFinalizado() {
+            return estado == Estado.CONCLUIDO || estado == Estado.ERRO || estado == Estado.CANCELADO;
+        }
+
+        /**
+         * Registra um assinante de progresso. Recebe uma linha JSON por ação
+         * executada e, por último, o resultado final. Se o assinante não
+         * consumir a tempo, linhas de progresso são descartadas (nunca o resultado).
+         */
+        public BlockingQueue<String> assinar() {
+            BlockingQueue<String> fila = new ArrayBlockingQueue<>(CAPACIDADE_ASSINANTE);
+            assinantes.add(fila);
+            String atual = resultado;
+            if (atual != null) {
+                fila.offer(atual);
+            }
+            return fila;
+        }
+
+        /**
+         * Indica se a linha recebida de assinar() é o resultado final.
+         */
+        public boolean isResultado(String linha) {
+            return linha != null && linha == resultado;
+        }
+
+        public void cancelarAssinatura(BlockingQueue<String> fila) {
+            assinantes.remove(fila);
+        }
+
+        @Override
+        public void onAcaoExecutada(Acao acao, int progresso, int total) {
+            this.progresso = progresso;
+            this.total = total;
+            if (!assinantes.isEmpty()) {
+                String linha = "{\"id\":" + id + ",\"progresso\":" + progresso
+                    + ",\"total\":" + total + ",\"acao\":" + Json.acao(acao) + "}";
+                for (BlockingQueue<String> fila : assinantes) {
+                    fila.offer(linha);
+                }
+            }
+        }
+
+        /**
+         * PENDENTE -> EXECUTANDO, a menos que tenha sido cancelado antes.
+         */
+        private synchronized boolean iniciar() {
+            if (estado != Estado.PENDENTE) {
+                return false;
+            }
+            inicioMs = System.currentTimeMillis();
+            estado = Estado.EXECUTANDO;
+            return true;
+        }
+
+        @Override
+        public void onReproducaoCompleta() {
+            finalizar(Estado.CONCLUIDO, null);
+        }
+
+        @Override
+        public void onErro(String mensagem) {
+            finalizar(Estado.ERRO, mensagem);
+        }
+
+        private synchronized void finalizar(Estado estadoFinal, String mensagem) {
+            if (isFinalizado()) {
+                return; // ex.: conclusão reportada após um cancelamento
+            }
+            this.erro = mensagem;
+            this.fimMs = System.currentTimeMillis();
+            this.estado = estadoFinal;
+            this.resultado = toJson();
+            for (BlockingQueue<String> fila : assinantes) {
+                // O resultado final não pode ser perdido: abrir espaço se necessário
+                while (!fila.offer(resultado)) {
+                    fila.poll();
+                }
+            }
+        }
+
+        public String toJson() {
+            long duracao = inicioMs == 0 ? 0 : (fimMs > 0 ? fimMs : System.currentTimeMillis()) - inicioMs;
+            return "{\"id\":" + id
+                + ",\"arquivo\":" + Json.texto(arquivo)
+                + ",\"tela\":" + tela
+                + ",\"estado\":" + Json.texto(estado.name())
+                + ",\"progresso\":" + progresso
+                + ",\"total\":" + total
+                + ",\"criadoEm\":" + Json.texto(criadoEm.toString())
+                + ",\"duracaoMs\":" + duracao
+                + ",\"erro\":" + Json.texto(erro) + "}";
+        }
+    }
+
+    private final AtomicInteger proximoId = new AtomicInteger(1);
+    private final Map<Integer, Trabalho> trabalhos = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mapeador-reproducao");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Integer, ReprodutorEventos> reprodutoresPorTela = new ConcurrentHashMap<>();
+    private final CachePlanos cachePlanos = new CachePlanos();
+
+    public Trabalho enfileirar(String arquivo, int tela) {
+        GraphicsDevice[] telas = telasDisponiveis();
+        if (tela < 0 || tela >= telas.length) {
+            throw new IllegalArgumentException("Tela inexistente: " + tela + " (disponíveis: " + telas.length + ")");
+        }
+        Trabalho trabalho = new Trabalho(proximoId.getAndIncrement(), arquivo, tela);
+        // futuro atribuído antes de publicar: um DELETE simultâneo já o encontra
+        trabalho.futuro = executor.submit(() -> executar(trabalho, telas[tela]));
+        trabalhos.put(trabalho.id, trabalho);
+        descartarAntigos();
+        return trabalho;
+    }
+
+    /**
+     * Esquece os trabalhos finalizados mais antigos além de HISTORICO_MAXIMO
+     * (o processo --sem-janela roda indefinidamente).
+     */
+    private void descartarAntigos() {
+        int excesso = trabalhos.size() - HISTORICO_MAXIMO;
+        if (excesso <= 0) {
+            return;
+        }
+        for (Trabalho trabalho : listar()) {
+            if (excesso == 0) {
+                break;
+            }
+            if (trabalho.isFinalizado() && trabalhos.remove(trabalho.id) != null) {
+                excesso--;
+            }
+        }
+    }
+
+    private void executar(Trabalho trabalho, GraphicsDevice dispositivo) {
+        if (!trabalho.iniciar()) {
+            return; // cancelado enquanto aguardava
+        }
+        try {
+            // Execuções repetidas do mesmo arquivo reutilizam o plano já interpretado
+            PlanoReproducao plano = cachePlanos.obter(Paths.get(trabalho.arquivo)).plano;
+            trabalho.total = plano.tamanho();
+            ReprodutorEventos reprodutor = reprodutoresPorTela.get(trabalho.tela);
+            if (reprodutor == null) {
+                reprodutor = new ReprodutorEventos(dispositivo);
+                reprodutoresPorTela.put(trabalho.tela, reprodutor);
+            }
+            // Um trabalho por vez: o listener pode ser trocado a cada trabalho
+            reprodutor.setReprodutorListener(trabalho);
+            trabalho.reprodutor = reprodutor;
+            reprodutor.setPoliticaPausas(PoliticaPausas.doSistema());
+            if (trabalho.isFinalizado()) {
+                return; // cancelado enquanto o plano era carregado
+            }
+            CompletableFuture<Void> execucao = reprodutor.reproduzirPlano(plano);
+            if (trabalho.isFinalizado()) {
+                reprodutor.pararReproducao(); // cancelado entre a verificação e o início
+            }
+            execucao.join();
+        } catch (Exception e) {
+            trabalho.onErro("Erro ao executar " + trabalho.arquivo + ": " + e.getMessage());
+        } finally {
+            trabalho.reprodutor = null;
+        }
+    }
+
+    public Trabalho obter(int id) {
+        return trabalhos.get(id);
+    }
+
+    public List<Trabalho> listar() {
+        List<Trabalho> lista = new ArrayList<>(trabalhos.values());
+        lista.sort((a, b) -> Integer.compare(a.id, b.id));
+        return lista;
+    }
+
+    public boolean cancelar(int id) {
+        Trabalho trabalho = trabalhos.get(id);
+        if (trabalho == null || trabalho.isFinalizado()) {
+            return false;
+        }
+        Estado anterior = trabalho.estado;
+        trabalho.finalizar(Estado.CANCELADO, null);
+        if (anterior == Estado.PENDENTE) {
+            trabalho.futuro.cancel(false);
+        } else {
+            ReprodutorEventos reprodutor = trabalho.reprodutor;
+            if (reprodutor != null) {
+                reprodutor.pararReproducao();
+            }
+        }
+        return true;
+    }
+
+    public void encerrar() {
+        trabalhos.values().forEach(t -> cancelar(t.id));
+        executor.shutdownNow();
+    }
+
+    private static GraphicsDevice[] telasDisponiveis() {
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+    }
+}
@@ -0,0 +1,301 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Gravações compactadas (gzip na escrita; gzip ou zlib na leitura). A
+ * compressão roda numa thread de pipeline: quem produz ou consome o XML
+ * troca blocos de BLOCO bytes com ela por uma fila curta, então o parser (ou
+ * o escritor) e o deflate/inflate com a E/S de disco andam em paralelo.
+ *
+ * O formato é reconhecido pelos bytes iniciais, não pela extensão.
+ */
+final class FluxoCompactado {
+
+    static final String EXTENSAO = ".gz";
+    static final int BLOCO = 256 * 1024;
+    private static final int BLOCOS_NA_FILA = 4;
+    private static final byte[] FIM = new byte[0];
+
+    private static final ExecutorService PIPELINE = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mapeador-compressao");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FluxoCompactado() {
+    }
+
+    static boolean compactar(java.nio.file.Path arquivo) {
+        return arquivo.getFileName().toString().endsWith(EXTENSAO);
+    }
+
+    /**
+     * Devolve o conteúdo descompactado se a entrada começar com a assinatura
+     * de gzip (1F 8B) ou zlib (78 xx); senão, a própria entrada.
+     */
+    static InputStream abrir(InputStream origem) throws IOException {
+        BufferedInputStream entrada = origem instanceof BufferedInputStream b ? b : new BufferedInputStream(origem, BLOCO);
+        entrada.mark(2);
+        int b0 = entrada.read();
+        int b1 = entrada.read();
+        entrada.reset();
+        if (b0 == 0x1F && b1 == 0x8B) {
+            return new Entrada(() -> new GZIPInputStream(entrada, BLOCO));
+        }
+        if (b0 == 0x78 && b1 >= 0 && ((b0 << 8) | b1) % 31 == 0) {
+            return new Entrada(() -> new InflaterInputStream(entrada, new java.util.zip.Inflater(), BLOCO));
+        }
+        return entrada;
+    }
+
+    /**
+     * Saída gzip: os bytes escritos são compactados na thread de pipeline.
+     * close() espera a compressão terminar e fecha o destino.
+     */
+    static OutputStream compactar(OutputStream destino) {
+        return new Saida(destino);
+    }
+
+    // ===== LEITURA =====
+
+    private interface Abertura {
+        InputStream abrir() throws IOException;
+    }
+
+    /**
+     * A thread de pipeline lê e descompacta; read() consome os blocos prontos.
+     */
+    private static final class Entrada extends InputStream {
+        private final BlockingQueue<byte[]> fila = new ArrayBlockingQueue<>(BLOCOS_NA_FILA);
+        private final Future<?> tarefa;
+        private volatile boolean fechado;
+        private volatile IOException erro;
+        private byte[] atual = new byte[0];
+        private int posicao;
+
+        Entrada(Abertura abertura) {
+            tarefa = PIPELINE.submit(() -> {
+                try (InputStream descompactada = abertura.abrir()) {
+                    while (!fechado) {
+                        byte[] bloco = descompactada.readNBytes(BLOCO);
+                        if (bloco.length == 0 || !entregar(bloco)) {
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    erro = e;
+                } finally {
+                    entregar(FIM);
+                }
+            });
+        }
+
+        // Com tempo limite para não ficar presa se o leitor fechar sem consumir tudo
+        private boolean entregar(byte[] bloco) {
+            try {
+                while (!fechado) {
+                    if (fila.offer(bloco, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        private boolean proximo() throws IOException {
+            if (atual == FIM) {
+                return false;
+            }
+            try {
+                atual = fila.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Leitura interrompida");
+            }
+            posicao = 0;
+            if (atual == FIM) {
+                if (erro != null) {
+                    throw erro;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (posicao == atual.length && !proximo()) {
+                return -1;
+            }
+            return atual[posicao++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int inicio, int tamanho) throws IOException {
+            if (tamanho == 0) {
+                return 0;
+            }
+            if (posicao == atual.length && !proximo()) {
+                return -1;
+            }
+            int n = Math.min(tamanho, atual.length - posicao);
+            System.arraycopy(atual, posicao, b, inicio, n);
+            posicao += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            fechado = true;
+            tarefa.cancel(true);
+            fila.clear();
+        }
+    }
+
+    // ===== ESCRITA =====
+
+    /**
+     * write() enche blocos; a thread de pipeline compacta e grava cada um.
+     */
+    private static final class Saida extends OutputStream {
+        private final BlockingQueue<byte[]> fila = new ArrayBlockingQueue<>(BLOCOS_NA_FILA);
+        private final OutputStream destino;
+        private final Future<?> tarefa;
+        private volatile IOException erro;
+        private byte[] bloco = new byte[BLOCO];
+        private int tamanho;
+        private boolean fechado;
+
+        Saida(OutputStream destino) {
+            this.destino = destino;
+            this.tarefa = PIPELINE.submit(this::compactarBlocos);
+        }
+
+        /**
+         * Depois de um erro continua tirando blocos da fila até FIM: quem
+         * escreve nunca fica preso em put(), e recebe o erro no próximo bloco.
+         */
+        private void compactarBlocos() {
+            OutputStream saida = destino;
+            try {
+                saida = new GZIPOutputStream(destino, BLOCO) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED); // XML repetitivo: comprime quase tanto quanto o nível padrão
+                    }
+                };
+            } catch (IOException e) {
+                erro = e;
+            }
+            try {
+                while (true) {
+                    byte[] proximo = fila.take();
+                    if (proximo == FIM) {
+                        break;
+                    }
+                    if (erro == null) {
+                        try {
+                            saida.write(proximo);
+                        } catch (IOException e) {
+                            erro = e;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // abortada por close()
+            } finally {
+                try {
+                    saida.close();
+                } catch (IOException e) {
+                    if (erro == null) {
+                        erro = e;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (tamanho == bloco.length) {
+                enviar();
+            }
+            bloco[tamanho++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int inicio, int quantidade) throws IOException {
+            while (quantidade > 0) {
+                if (tamanho == bloco.length) {
+                    enviar();
+                }
+                int n = Math.min(quantidade, bloco.length - tamanho);
+                System.arraycopy(b, inicio, bloco, tamanho, n);
+                tamanho += n;
+                inicio += n;
+                quantidade -= n;
+            }
+        }
+
+        private void enviar() throws IOException {
+            if (erro != null) {
+                throw erro;
+            }
+            try {
+                fila.put(tamanho == bloco.length ? bloco : java.util.Arrays.copyOf(bloco, tamanho));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Escrita interrompida");
+            }
+            bloco = new byte[BLOCO];
+            tamanho = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+            if (Thread.currentThread().isInterrupted()) {
+                // Cancelada: descarta o que falta em vez de esperar a compressão
+                tarefa.cancel(true);
+                destino.close();
+                return;
+            }
+            if (tamanho > 0) {
+                enviar();
+            }
+            try {
+                fila.put(FIM);
+                tarefa.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tarefa.cancel(true);
+                destino.close();
+                throw new InterruptedIOException("Escrita interrompida");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+            if (erro != null) {
+                throw erro;
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package main;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gera gravações sintéticas e reprodutíveis (mesma semente, mesma saída)
+ * para testes de carga: rajadas de digitação com pares KEY_PRESS/KEY_RELEASE,
+ * trajetórias de mouse em curvas de Bézier, rolagens, cliques duplos e
+ * pausas de reflexão. As ações saem uma a uma para o destino, então o
+ * tamanho da gravação não é limitado pela memória.
+ *
+ * Uso: GeradorCargaSintetica SAIDA.xml[.gz] --acoes N [--semente S] [--largura W] [--altura H]
+ */
+class GeradorCargaSintetica {
+
+    /**
+     * Recebe as ações à medida que são geradas.
+     */
+    @FunctionalInterface
+    interface Destino {
+        void aceitar(Acao acao) throws Exception;
+    }
+
+    // ===== PARÂMETROS DE COMPORTAMENTO =====
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 8, 0);
+    private static final int INTERVALO_AMOSTRA_MOVIMENTO_MS = 100; // mesmo filtro da captura
+    private static final int INTERVALO_DUPLO_CLIQUE_MS = 120;
+    private static final double CHANCE_PAUSA_LONGA = 0.02;
+    private static final double CHANCE_ERRO_DIGITACAO = 0.03;
+
+    private static final String[] PALAVRAS = {
+        "relatorio", "cliente", "pedido", "valor", "total", "data", "nota", "fiscal", "envio",
+        "cadastro", "produto", "estoque", "saldo", "conta", "pagamento", "a", "de", "o", "para",
+        "com", "em", "que", "os", "no", "se", "mensal", "atualizar", "conferir", "sistema", "tela"
+    };
+    private static final String[] ATALHOS = {"CTRL+c", "CTRL+v", "CTRL+s", "CTRL+z", "CTRL+a", "ALT+TAB"};
+
+    private final Random aleatorio;
+    private final long alvo;
+    private final int largura;
+    private final int altura;
+
+    private Destino destino;
+    private long gerados;
+    private long relogioMs;
+    private int mouseX;
+    private int mouseY;
+    private Acao pendente;
+    private long pendenteMs;
+
+    public GeradorCargaSintetica(long semente, long alvo, int largura, int altura) {
+        if (alvo < 0 || largura <= 0 || altura <= 0) {
+            throw new IllegalArgumentException("Parâmetros inválidos para o gerador");
+        }
+        this.aleatorio = new Random(semente);
+        this.alvo = alvo;
+        this.largura = largura;
+        this.altura = altura;
+    }
+
+    // ===== GERAÇÃO =====
+
+    /**
+     * Gera exatamente o número alvo de ações, com ids, horários e delays
+     * consistentes entre si, e entrega cada uma ao destino.
+     */
+    public void gerar(Destino destino) throws Exception {
+        this.destino = destino;
+        gerados = 0;
+        relogioMs = 0;
+        mouseX = largura / 2;
+        mouseY = altura / 2;
+        pendente = null;
+
+        while (restantes() > 0) {
+            int sorteio = aleatorio.nextInt(100);
+            if (sorteio < 40) {
+                moverPara(alvoAleatorioX(), alvoAleatorioY(), "MOVE");
+                clicar();
+            } else if (sorteio < 70) {
+                digitar();
+            } else if (sorteio < 82) {
+                rolar();
+            } else if (sorteio < 92) {
+                arrastar();
+            } else {
+                atalho();
+            }
+            relogioMs += pausaReflexao();
+        }
+        if (pendente != null) {
+            pendente.setDelay(0);
+            destino.aceitar(pendente);
+            pendente = null;
+        }
+    }
+
+    public List<Acao> gerarLista() throws Exception {
+        List<Acao> acoes = new ArrayList<>((int) Math.min(alvo, Integer.MAX_VALUE - 8));
+        gerar(acoes::add);
+        return acoes;
+    }
+
+    /**
+     * Arquivos terminados em .gz saem compactados, como na exportação.
+     */
+    public void gerarXML(String nomeArquivo) throws Exception {
+        OutputStream saida = new FileOutputStream(nomeArquivo);
+        if (FluxoCompactado.compactar(Path.of(nomeArquivo))) {
+            saida = FluxoCompactado.compactar(saida);
+        }
+        try (GerenciadorXML.EscritorXML escritor = new GerenciadorXML.EscritorXML(saida)) {
+            gerar(escritor::escrever);
+        }
+    }
+
+    private long restantes() {
+        return alvo - gerados;
+    }
+
+    /**
+     * Registra uma ação no instante indicado. O delay de cada ação só é
+     * conhecido quando a seguinte chega, por isso uma fica retida.
+     */
+    private Acao emitir(Acao.TipoAcao tipo, String detalhes, int x, int y, long instanteMs) throws Exception {
+        if (restantes() <= 0) {
+            return null;
+        }
+        if (pendente != null) {
+            pendente.setDelay(instanteMs - pendenteMs);
+            destino.aceitar(pendente);
+        }
+        gerados++;
+        Acao acao = new Acao((int) gerados, tipo, detalhes, x, y);
+        acao.setTimestamp(INICIO.plusNanos(instanteMs * 1_000_000L));
+        pendente = acao;
+        pendenteMs = instanteMs;
+        relogioMs = Math.max(relogioMs, instanteMs);
+        return acao;
+    }
+
+    /**
+     * Clique no instante em que o botão é solto, com o tempo pressionado
+     * em duracao, como na captura.
+     */
+    private void emitirClique(String detalhes, long instanteMs, long duracaoMs) throws Exception {
+        Acao acao = emitir(Acao.TipoAcao.MOUSE_CLICK, detalhes, mouseX, mouseY, instanteMs);
+        if (acao != null) {
+            acao.setDuracao(duracaoMs);
+        }
+    }
+
+    // ===== EPISÓDIOS =====
+
+    /**
+     * Trajetória por uma Bézier cúbica com pontos de controle deslocados da
+     * reta, duração pela lei de Fitts e aceleração/desaceleração suaves.
+     */
+    private void moverPara(int destinoX, int destinoY, String detalhes) throws Exception {
+        double dx = destinoX - mouseX;
+        double dy = destinoY - mouseY;
+        double distancia = Math.hypot(dx, dy);
+        if (distancia < 1) {
+            return;
+        }
+        double duracaoMs = 120 + 140 * (Math.log(1 + distancia / 30) / Math.log(2)) * (0.8 + 0.4 * aleatorio.nextDouble());
+        // Normal à reta, para curvar a trajetória para um dos lados
+        double nx = -dy / distancia;
+        double ny = dx / distancia;
+        double curva1 = aleatorio.nextGaussian() * distancia * 0.2;
+        double curva2 = aleatorio.nextGaussian() * distancia * 0.1;
+        double c1x = mouseX + dx * 0.3 + nx * curva1;
+        double c1y = mouseY + dy * 0.3 + ny * curva1;
+        double c2x = mouseX + dx * 0.7 + nx * curva2;
+        double c2y = mouseY + dy * 0.7 + ny * curva2;
+        double p0x = mouseX;
+        double p0y = mouseY;
+
+        int amostras = Math.max(1, (int) (duracaoMs / INTERVALO_AMOSTRA_MOVIMENTO_MS));
+        long inicio = relogioMs;
+        for (int i = 1; i <= amostras && restantes() > 0; i++) {
+            double t = (double) i / amostras;
+            double s = t * t * (3 - 2 * t);
+            double u = 1 - s;
+            double x = u * u * u * p0x + 3 * u * u * s * c1x + 3 * u * s * s * c2x + s * s * s * destinoX;
+            double y = u * u * u * p0y + 3 * u * u * s * c1y + 3 * u * s * s * c2y + s * s * s * destinoY;
+            mouseX = limitar((int) Math.round(x), largura);
+            mouseY = limitar((int) Math.round(y), altura);
+            long instante = inicio + (long) i * INTERVALO_AMOSTRA_MOVIMENTO_MS + aleatorio.nextInt(8);
+            emitir(Acao.TipoAcao.MOUSE_MOVE, detalhes, mouseX, mouseY, instante);
+        }
+    }
+
+    private void clicar() throws Exception {
+        int sorteio = aleatorio.nextInt(100);
+        long instante = relogioMs + 60 + aleatorio.nextInt(120);
+        if (sorteio < 8) {
+            emitirClique("DIREITO_1", instante, duracaoClique(instante - relogioMs));
+            return;
+        }
+        emitirClique("ESQUERDO_1", instante, duracaoClique(instante - relogioMs));
+        if (sorteio < 20) {
+            long segundo = instante + 60 + aleatorio.nextInt(INTERVALO_DUPLO_CLIQUE_MS);
+            emitirClique("ESQUERDO_2", segundo, duracaoClique(segundo - instante));
+        }
+    }
+
+    private void arrastar() throws Exception {
+        long pressiona = relogioMs + 50;
+        emitir(Acao.TipoAcao.MOUSE_MOVE, PlanoReproducao.INICIO_ARRASTE + "ESQUERDO", mouseX, mouseY, pressiona);
+        moverPara(alvoAleatorioX(), alvoAleatorioY(), "DRAG");
+        long solta = relogioMs + 40 + aleatorio.nextInt(60);
+        emitirClique("ESQUERDO_1", solta, solta - pressiona); // o arraste inteiro com o botão pressionado
+    }
+
+    private void rolar() throws Exception {
+        String direcao = aleatorio.nextInt(4) == 0 ? "CIMA" : "BAIXO";
+        int passos = 2 + aleatorio.nextInt(12);
+        long instante = relogioMs;
+        for (int i = 0; i < passos; i++) {
+            instante += 30 + aleatorio.nextInt(120);
+            emitir(Acao.TipoAcao.SCROLL, direcao + "_" + (1 + aleatorio.nextInt(3)), mouseX, mouseY, instante);
+        }
+    }
+
+    private void atalho() throws Exception {
+        String combinacao = ATALHOS[aleatorio.nextInt(ATALHOS.length)];
+        long pressiona = relogioMs + 80 + aleatorio.nextInt(200);
+        emitirPar(combinacao, pressiona, pressiona + tempoSegurando());
+    }
+
+    /**
+     * Rajada de digitação: palavras separadas por espaço, com maiúscula no
+     * início da frase, erros corrigidos com BACKSPACE e sobreposição entre
+     * teclas (a próxima é pressionada antes de a anterior ser solta), como
+     * em digitação rápida real.
+     */
+    private void digitar() throws Exception {
+        List<long[]> instantes = new ArrayList<>();
+        List<String> teclas = new ArrayList<>();
+        int palavras = 1 + aleatorio.nextInt(12);
+        long t = relogioMs + 150 + aleatorio.nextInt(250);
+        boolean inicioFrase = true;
+        for (int p = 0; p < palavras; p++) {
+            String palavra = PALAVRAS[aleatorio.nextInt(PALAVRAS.length)];
+            for (int i = 0; i < palavra.length(); i++) {
+                String tecla = String.valueOf(palavra.charAt(i));
+                if (inicioFrase && i == 0) {
+                    tecla = "SHIFT+" + tecla;
+                }
+                if (aleatorio.nextDouble() < CHANCE_ERRO_DIGITACAO) {
+                    String errada = String.valueOf((char) ('a' + aleatorio.nextInt(26)));
+                    t = tecla(instantes, teclas, errada, t);
+                    t += 150 + aleatorio.nextInt(250); // tempo para perceber o erro
+                    t = tecla(instantes, teclas, "BACKSPACE", t);
+                }
+                t = tecla(instantes, teclas, tecla, t);
+            }
+            inicioFrase = false;
+            if (p < palavras - 1) {
+                t = tecla(instantes, teclas, " ", t);
+            }
+        }
+        if (aleatorio.nextInt(3) == 0) {
+            t = tecla(instantes, teclas, ".", t);
+            t = tecla(instantes, teclas, "ENTER", t + 100 + aleatorio.nextInt(200));
+        }
+
+        // Só emite teclas completas: se a rajada não cabe no alvo, é cortada
+        int completas = (int) Math.min(teclas.size(), restantes() / 2);
+        List<EventoTecla> eventos = new ArrayList<>(completas * 2);
+        for (int i = 0; i < completas; i++) {
+            long[] tempos = instantes.get(i);
+            eventos.add(new EventoTecla(tempos[0], Acao.TipoAcao.KEY_PRESS, teclas.get(i)));
+            eventos.add(new EventoTecla(tempos[1], Acao.TipoAcao.KEY_RELEASE, teclas.get(i)));
+        }
+        // Pressões e solturas intercaladas em ordem de tempo (ordenação estável)
+        eventos.sort(Comparator.comparingLong(e -> e.instante));
+        for (EventoTecla evento : eventos) {
+            emitir(evento.tipo, evento.tecla, -1, -1, evento.instante);
+        }
+        relogioMs = Math.max(relogioMs, t);
+    }
+
+    private static final class EventoTecla {
+        final long instante;
+        final Acao.TipoAcao tipo;
+        final String tecla;
+
+        EventoTecla(long instante, Acao.TipoAcao tipo, String tecla) {
+            this.instante = instante;
+            this.tipo = tipo;
+            this.tecla = tecla;
+        }
+    }
+
+    private long tecla(List<long[]> instantes, List<String> teclas, String tecla, long pressiona) {
+        instantes.add(new long[] {pressiona, pressiona + tempoSegurando()});
+        teclas.add(tecla);
+        return pressiona + intervaloEntreTeclas();
+    }
+
+    private void emitirPar(String tecla, long pressiona, long solta) throws Exception {
+        if (restantes() < 2) {
+            relogioMs = Math.max(relogioMs, solta);
+            return;
+        }
+        emitir(Acao.TipoAcao.KEY_PRESS, tecla, -1, -1, pressiona);
+        emitir(Acao.TipoAcao.KEY_RELEASE, tecla, -1, -1, solta);
+    }
+
+    // ===== DISTRIBUIÇÕES =====
+
+    private long intervaloEntreTeclas() {
+        return Math.max(25, logNormal(110, 0.35));
+    }
+
+    private long tempoSegurando() {
+        return Math.max(30, logNormal(85, 0.25));
+    }
+
+    /**
+     * Tempo pressionado de um clique, sem começar antes do evento anterior.
+     */
+    private long duracaoClique(long folgaMs) {
+        return Math.min(folgaMs, tempoSegurando());
+    }
+
+    /**
+     * Pausa entre episódios: log-normal com mediana de ~0,8 s e, raramente,
+     * uma ausência longa (10 s a 2 min).
+     */
+    private long pausaReflexao() {
+        if (aleatorio.nextDouble() < CHANCE_PAUSA_LONGA) {
+            return 10_000 + aleatorio.nextInt(110_000);
+        }
+        return Math.min(30_000, logNormal(800, 0.9));
+    }
+
+    private long logNormal(double mediana, double sigma) {
+        return Math.round(mediana * Math.exp(sigma * aleatorio.nextGaussian()));
+    }
+
+    private int alvoAleatorioX() {
+        return aleatorio.nextInt(largura);
+    }
+
+    private int alvoAleatorioY() {
+        return aleatorio.nextInt(altura);
+    }
+
+    private static int limitar(int valor, int limite) {
+        return Math.max(0, Math.min(limite - 1, valor));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Uso: GeradorCargaSintetica SAIDA.xml[.gz] --acoes N [--semente S] "
+                + "[--largura W] [--altura H]");
+            System.exit(2);
+        }
+        String saida = args[0];
+        long acoes = 1_000_000;
+        long semente = 42;
+        int largura = 1920;
+        int altura = 1080;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--acoes" -> acoes = Long.parseLong(args[++i]);
+                case "--semente" -> semente = Long.parseLong(args[++i]);
+                case "--largura" -> largura = Integer.parseInt(args[++i]);
+                case "--altura" -> altura = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Argumento desconhecido: " + args[i]);
+            }
+        }
+        if (!saida.toLowerCase().endsWith(".xml") && !saida.endsWith(".xml" + FluxoCompactado.EXTENSAO)) {
+            throw new IllegalArgumentException("Formato não suportado: " + saida);
+        }
+
+        long inicio = System.nanoTime();
+        new GeradorCargaSintetica(semente, acoes, largura, altura).gerarXML(saida);
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.printf("[GeradorCargaSintetica] %d ações geradas em %d ms: %s%n", acoes, ms, saida);
+    }
+}
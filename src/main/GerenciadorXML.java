@@ -1,87 +1,267 @@
 package main;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
 class GerenciadorXML {
-    
+
+    // Buffers grandes: arquivos de centenas de MB, muitas vezes em compartilhamentos de rede
+    static final int TAMANHO_BUFFER = 1 << 20;
+    private static final int INTERVALO_PROGRESSO = 4096; // ações entre avisos de progresso
+    private static final DateTimeFormatter FORMATO_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    /**
+     * Recebe o andamento de uma exportação ou importação, na thread que faz
+     * a E/S. Para cancelar, interrompa essa thread: a operação para no
+     * próximo aviso com InterruptedIOException.
+     */
+    interface Progresso {
+        Progresso NENHUM = (acoes, bytes) -> { };
+
+        void atualizar(long acoes, long bytes);
+    }
+
     public static void exportarParaXML(List<Acao> acoes, String nomeArquivo) throws Exception {
-        // Escrita em streaming para suportar arquivos grandes sem esgotar memória
-        XMLOutputFactory xof = XMLOutputFactory.newInstance();
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(new File(nomeArquivo)))) {
-            XMLStreamWriter w = xof.createXMLStreamWriter(new OutputStreamWriter(bos, StandardCharsets.UTF_8));
+        exportarParaXML(acoes, Path.of(nomeArquivo), Progresso.NENHUM);
+    }
+
+    /**
+     * Exportação em streaming para um temporário na mesma pasta, que só
+     * substitui o arquivo (move atômico) depois de completo: cancelamento ou
+     * falha apagam o temporário e deixam a gravação existente intacta.
+     * Arquivos terminados em .gz saem compactados (ver FluxoCompactado); o
+     * progresso conta então os bytes compactados.
+     */
+    static void exportarParaXML(List<Acao> acoes, Path arquivo, Progresso progresso) throws Exception {
+        Path pasta = arquivo.toAbsolutePath().getParent();
+        Path temporario = Files.createTempFile(pasta, "." + arquivo.getFileName(), ".tmp");
+        boolean movido = false;
+        try {
+            ContadorSaida contador = new ContadorSaida(Channels.newOutputStream(FileChannel.open(temporario,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+            OutputStream destino = FluxoCompactado.compactar(arquivo) ? FluxoCompactado.compactar(contador) : contador;
+            long escritas = 0;
+            try (EscritorXML escritor = new EscritorXML(destino)) {
+                for (Acao acao : acoes) {
+                    escritor.escrever(acao);
+                    if (++escritas % INTERVALO_PROGRESSO == 0) {
+                        avisar(progresso, escritas, contador.bytes);
+                    }
+                }
+                escritor.finalizar();
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            movido = true;
+            progresso.atualizar(escritas, contador.bytes);
+        } finally {
+            if (!movido) {
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+
+    /**
+     * Escritor incremental: permite gravar ações à medida que são produzidas,
+     * sem manter a lista inteira em memória.
+     */
+    static class EscritorXML implements AutoCloseable {
+        private final OutputStream saida;
+        private final XMLStreamWriter w;
+        private boolean finalizado;
+
+        EscritorXML(OutputStream destino) throws XMLStreamException {
+            this.saida = new BufferedOutputStream(destino, TAMANHO_BUFFER);
+            this.w = XMLOutputFactory.newInstance().createXMLStreamWriter(
+                new OutputStreamWriter(saida, StandardCharsets.UTF_8));
             w.writeStartDocument("UTF-8", "1.0");
             w.writeStartElement("mapa");
-            for (Acao acao : acoes) {
-                w.writeStartElement("acao");
-                w.writeAttribute("id", String.valueOf(acao.getId()));
-                w.writeAttribute("tipo", acao.getTipo().name());
-                w.writeAttribute("detalhes", acao.getDetalhes());
-                w.writeAttribute("x", String.valueOf(acao.getX()));
-                w.writeAttribute("y", String.valueOf(acao.getY()));
-                w.writeAttribute("timestamp", acao.getTimestampFormatted());
-                w.writeAttribute("delay", String.valueOf(acao.getDelay()));
-                w.writeEndElement();
+        }
+
+        void escrever(Acao acao) throws XMLStreamException {
+            w.writeStartElement("acao");
+            w.writeAttribute("id", String.valueOf(acao.getId()));
+            w.writeAttribute("tipo", acao.getTipo().name());
+            w.writeAttribute("detalhes", acao.getDetalhes());
+            w.writeAttribute("x", String.valueOf(acao.getX()));
+            w.writeAttribute("y", String.valueOf(acao.getY()));
+            w.writeAttribute("timestamp", acao.getTimestampFormatted());
+            w.writeAttribute("delay", String.valueOf(acao.getDelay()));
+            if (acao.getDuracao() > 0) {
+                w.writeAttribute("duracao", String.valueOf(acao.getDuracao()));
+            }
+            w.writeEndElement();
+        }
+
+        /**
+         * Fecha o documento e descarrega os buffers; chamado também por close().
+         */
+        void finalizar() throws IOException, XMLStreamException {
+            if (finalizado) {
+                return;
             }
+            finalizado = true;
             w.writeEndElement(); // mapa
             w.writeEndDocument();
             w.flush();
             w.close();
+            saida.flush();
+        }
+
+        @Override
+        public void close() throws IOException, XMLStreamException {
+            try {
+                finalizar();
+            } finally {
+                saida.close();
+            }
         }
     }
-    
+
     public static List<Acao> importarDeXML(String nomeArquivo) throws Exception {
+        return importarDeXML(Path.of(nomeArquivo), Progresso.NENHUM);
+    }
+
+    /**
+     * Importação em streaming (StAX): a memória usada é a da lista de ações,
+     * sem a árvore DOM do documento inteiro. Arquivos compactados são
+     * reconhecidos pelos bytes iniciais, qualquer que seja a extensão.
+     */
+    static List<Acao> importarDeXML(Path arquivo, Progresso progresso) throws Exception {
+        try (ContadorEntrada contador = new ContadorEntrada(
+                Channels.newInputStream(FileChannel.open(arquivo, StandardOpenOption.READ)));
+             InputStream entrada = FluxoCompactado.abrir(new BufferedInputStream(contador, TAMANHO_BUFFER))) {
+            return lerAcoes(entrada, contador, progresso);
+        }
+    }
+
+    public static List<Acao> importarDeXML(InputStream entrada) throws Exception {
+        try (InputStream conteudo = FluxoCompactado.abrir(entrada)) {
+            return lerAcoes(conteudo, null, Progresso.NENHUM);
+        }
+    }
+
+    /**
+     * Lê os elementos "acao" em qualquer profundidade, na ordem do documento.
+     * Também usado por ImportadorParalelo em cada trecho do arquivo.
+     */
+    static List<Acao> lerAcoes(InputStream entrada, ContadorEntrada contador, Progresso progresso)
+            throws Exception {
         List<Acao> acoes = new ArrayList<>();
-        
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(new File(nomeArquivo));
-        
-        NodeList nodeList = document.getElementsByTagName("acao");
-        
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node node = nodeList.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = (Element) node;
-                
-                int id = Integer.parseInt(element.getAttribute("id"));
-                Acao.TipoAcao tipo = Acao.TipoAcao.valueOf(element.getAttribute("tipo"));
-                String detalhes = element.getAttribute("detalhes");
-                int x = Integer.parseInt(element.getAttribute("x"));
-                int y = Integer.parseInt(element.getAttribute("y"));
-                long delay = Long.parseLong(element.getAttribute("delay"));
-                
-                Acao acao = new Acao(id, tipo, detalhes, x, y);
-                acao.setDelay(delay);
-                
-                String timestampStr = element.getAttribute("timestamp");
-                LocalDateTime timestamp = LocalDateTime.parse(timestampStr, 
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"));
-                acao.setTimestamp(timestamp);
-                
-                acoes.add(acao);
+        XMLInputFactory fabrica = XMLInputFactory.newInstance();
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader r = fabrica.createXMLStreamReader(entrada);
+        try {
+            while (r.hasNext()) {
+                if (r.next() == XMLStreamConstants.START_ELEMENT && "acao".equals(r.getLocalName())) {
+                    acoes.add(lerAcao(r));
+                    if (acoes.size() % INTERVALO_PROGRESSO == 0) {
+                        avisar(progresso, acoes.size(), contador != null ? contador.bytes : 0);
+                    }
+                }
             }
+        } finally {
+            r.close();
         }
-        
+        progresso.atualizar(acoes.size(), contador != null ? contador.bytes : 0);
         return acoes;
     }
-}
\ No newline at end of file
+
+    private static Acao lerAcao(XMLStreamReader r) {
+        int id = Integer.parseInt(r.getAttributeValue(null, "id"));
+        Acao.TipoAcao tipo = Acao.TipoAcao.valueOf(r.getAttributeValue(null, "tipo"));
+        String detalhes = r.getAttributeValue(null, "detalhes");
+        int x = Integer.parseInt(r.getAttributeValue(null, "x"));
+        int y = Integer.parseInt(r.getAttributeValue(null, "y"));
+        long delay = Long.parseLong(r.getAttributeValue(null, "delay"));
+
+        Acao acao = new Acao(id, tipo, detalhes != null ? detalhes : "", x, y);
+        acao.setDelay(delay);
+        String duracao = r.getAttributeValue(null, "duracao");
+        if (duracao != null) {
+            acao.setDuracao(Long.parseLong(duracao));
+        }
+        acao.setTimestamp(LocalDateTime.parse(r.getAttributeValue(null, "timestamp"), FORMATO_TIMESTAMP));
+        return acao;
+    }
+
+    private static void avisar(Progresso progresso, long acoes, long bytes) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Operação cancelada");
+        }
+        progresso.atualizar(acoes, bytes);
+    }
+
+    // ===== CONTAGEM DE BYTES =====
+    // Ficam abaixo dos buffers grandes: só são chamados a cada bloco, não a cada ação
+
+    private static final class ContadorSaida extends FilterOutputStream {
+        volatile long bytes;
+
+        ContadorSaida(OutputStream destino) {
+            super(destino);
+        }
+
+        @Override
+        public void write(byte[] b, int inicio, int tamanho) throws IOException {
+            out.write(b, inicio, tamanho);
+            bytes += tamanho;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+    }
+
+    static final class ContadorEntrada extends FilterInputStream {
+        volatile long bytes;
+
+        ContadorEntrada(InputStream origem) {
+            super(origem);
+        }
+
+        @Override
+        public int read(byte[] b, int inicio, int tamanho) throws IOException {
+            int lidos = in.read(b, inicio, tamanho);
+            if (lidos > 0) {
+                bytes += lidos;
+            }
+            return lidos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Importação de XML grande em vários núcleos. O arquivo é mapeado e
+ * dividido em trechos no início de um elemento "<acao"; cada trecho vira um
+ * documento próprio (o cabeçalho do arquivo + o trecho + o fechamento da
+ * raiz) e é lido pelo mesmo parser da importação sequencial, num
+ * ForkJoinPool. As listas são juntadas na ordem dos trechos.
+ *
+ * O resultado é o mesmo da importação sequencial: um corte só cai fora de
+ * uma ação de primeiro nível se houver comentário, CDATA, DTD ou ações
+ * aninhadas no caminho, e nesses casos o trecho anterior fica malformado.
+ * Qualquer falha em qualquer trecho, arquivo compactado, arquivo pequeno
+ * ou sem ponto de corte: importa sequencialmente, com o mesmo resultado e
+ * os mesmos erros do GerenciadorXML.
+ *
+ * Threads: -Dmapeador.importacao.threads (padrão: número de processadores).
+ */
+final class ImportadorParalelo {
+
+    static final int THREADS_PADRAO = Integer.getInteger("mapeador.importacao.threads",
+        Runtime.getRuntime().availableProcessors());
+    static final long TRECHO_MINIMO = 4L << 20;
+    private static final long TRECHO_MAXIMO = 256L << 20; // limite de um mapeamento
+    private static final int TRECHOS_POR_THREAD = 4; // trechos a mais equilibram a carga
+    private static final int JANELA_BUSCA = 64 * 1024;
+    private static final byte[] INICIO_ACAO = "<acao".getBytes(StandardCharsets.US_ASCII);
+
+    private ImportadorParalelo() {
+    }
+
+    static List<Acao> importar(Path arquivo, GerenciadorXML.Progresso progresso) throws Exception {
+        return importar(arquivo, THREADS_PADRAO, progresso);
+    }
+
+    static List<Acao> importar(Path arquivo, int threads, GerenciadorXML.Progresso progresso) throws Exception {
+        List<long[]> trechos;
+        byte[] cabecalho;
+        byte[] fechamento;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            long primeira = tamanho >= 2 * TRECHO_MINIMO && !compactado(canal) ? procurarAcao(canal, 0, tamanho) : -1;
+            long raiz = primeira >= 0 ? fechamentoRaiz(canal, tamanho) : -1;
+            if (raiz <= primeira) {
+                return GerenciadorXML.importarDeXML(arquivo, progresso);
+            }
+            cabecalho = ler(canal, 0, (int) primeira);
+            fechamento = ler(canal, raiz, (int) (tamanho - raiz));
+            trechos = dividir(canal, primeira, raiz, threads); // o fechamento vai à parte, em todos os trechos
+        }
+        if (trechos.size() < 2) {
+            return GerenciadorXML.importarDeXML(arquivo, progresso);
+        }
+
+        Leitura leitura = new Leitura(arquivo, trechos, cabecalho, fechamento, progresso);
+        ForkJoinPool pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("mapeador-importacao-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try {
+            // submit + get em vez de invokeAll: invokeAll espera sem atender
+            // interrupção, e o cancelamento da importação não pararia a leitura
+            List<Future<List<Acao>>> futuros = new ArrayList<>();
+            for (Callable<List<Acao>> tarefa : leitura.tarefas()) {
+                futuros.add(pool.submit(tarefa));
+            }
+            return leitura.juntar(futuros);
+        } catch (InterruptedException e) {
+            leitura.cancelada = true;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Importação cancelada");
+        } catch (ExecutionException e) {
+            // Trecho malformado (ou arquivo que não segue o formato exportado): a leitura sequencial decide
+            return GerenciadorXML.importarDeXML(arquivo, progresso);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ===== DIVISÃO =====
+
+    private static boolean compactado(FileChannel canal) throws IOException {
+        byte[] inicio = ler(canal, 0, 2);
+        return (inicio[0] & 0xFF) == 0x1F || (inicio[0] & 0xFF) == 0x78;
+    }
+
+    /**
+     * Cortes aproximadamente iguais, cada um avançado até o próximo "<acao".
+     */
+    private static List<long[]> dividir(FileChannel canal, long inicio, long fim, int threads) throws IOException {
+        long corpo = fim - inicio;
+        long quantidade = Math.max((long) threads * TRECHOS_POR_THREAD, (corpo + TRECHO_MAXIMO - 1) / TRECHO_MAXIMO);
+        quantidade = Math.min(quantidade, Math.max(1, corpo / TRECHO_MINIMO));
+        List<long[]> trechos = new ArrayList<>();
+        long anterior = inicio;
+        for (long i = 1; i < quantidade; i++) {
+            long alvo = inicio + corpo * i / quantidade;
+            if (alvo <= anterior) {
+                continue;
+            }
+            long corte = procurarAcao(canal, alvo, fim);
+            if (corte < 0) {
+                break;
+            }
+            if (corte > anterior) {
+                trechos.add(new long[] {anterior, corte});
+                anterior = corte;
+            }
+        }
+        trechos.add(new long[] {anterior, fim});
+        for (long[] trecho : trechos) {
+            if (trecho[1] - trecho[0] > Integer.MAX_VALUE) {
+                return Collections.emptyList(); // não mapeável de uma vez: fica sequencial
+            }
+        }
+        return trechos;
+    }
+
+    /**
+     * Posição do próximo "<acao" seguido de espaço, "/" ou ">", ou -1.
+     */
+    private static long procurarAcao(FileChannel canal, long de, long fim) throws IOException {
+        ByteBuffer janela = ByteBuffer.allocate(JANELA_BUSCA);
+        long posicao = de;
+        while (posicao < fim) {
+            janela.clear();
+            int lidos = canal.read(janela, posicao);
+            if (lidos <= 0) {
+                return -1;
+            }
+            for (int i = 0; i + INICIO_ACAO.length < lidos; i++) {
+                if (comeca(janela, i) && separador(janela.get(i + INICIO_ACAO.length))) {
+                    return posicao + i;
+                }
+            }
+            posicao += Math.max(1, lidos - INICIO_ACAO.length); // sobreposição: o padrão pode cruzar janelas
+        }
+        return -1;
+    }
+
+    private static boolean comeca(ByteBuffer janela, int i) {
+        for (int j = 0; j < INICIO_ACAO.length; j++) {
+            if (janela.get(i + j) != INICIO_ACAO[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean separador(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+    }
+
+    /**
+     * Início da última tag de fechamento do arquivo (a da raiz), ou -1.
+     */
+    private static long fechamentoRaiz(FileChannel canal, long tamanho) throws IOException {
+        int janela = (int) Math.min(tamanho, 4096);
+        byte[] fim = ler(canal, tamanho - janela, janela);
+        for (int i = fim.length - 2; i >= 0; i--) {
+            if (fim[i] == '<' && fim[i + 1] == '/') {
+                return tamanho - janela + i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ler(FileChannel canal, long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    // ===== LEITURA DOS TRECHOS =====
+
+    /**
+     * Uma tarefa por trecho, todas com o mesmo progresso agregado. A
+     * primeira que falha cancela as demais: o resultado já será sequencial.
+     */
+    private static final class Leitura {
+        private final Path arquivo;
+        private final List<long[]> trechos;
+        private final byte[] cabecalho;
+        private final byte[] fechamento;
+        private final GerenciadorXML.Progresso progresso;
+        private final AtomicLong acoesLidas = new AtomicLong();
+        private final AtomicLong bytesLidos = new AtomicLong();
+        volatile boolean cancelada;
+
+        Leitura(Path arquivo, List<long[]> trechos, byte[] cabecalho, byte[] fechamento,
+                GerenciadorXML.Progresso progresso) {
+            this.arquivo = arquivo;
+            this.trechos = trechos;
+            this.cabecalho = cabecalho;
+            this.fechamento = fechamento;
+            this.progresso = progresso;
+        }
+
+        List<Callable<List<Acao>>> tarefas() {
+            List<Callable<List<Acao>>> tarefas = new ArrayList<>(trechos.size());
+            for (long[] trecho : trechos) {
+                tarefas.add(() -> {
+                    try {
+                        return lerTrecho(trecho);
+                    } catch (Exception e) {
+                        cancelada = true;
+                        throw e;
+                    }
+                });
+            }
+            return tarefas;
+        }
+
+        private List<Acao> lerTrecho(long[] trecho) throws Exception {
+            MappedByteBuffer mapa;
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                mapa = canal.map(FileChannel.MapMode.READ_ONLY, trecho[0], trecho[1] - trecho[0]);
+            }
+            List<InputStream> pedacos = List.of(
+                new ByteArrayInputStream(cabecalho), new EntradaMapeada(mapa), new ByteArrayInputStream(fechamento));
+            GerenciadorXML.ContadorEntrada contador = new GerenciadorXML.ContadorEntrada(
+                new SequenceInputStream(Collections.enumeration(pedacos)));
+            long[] informado = new long[2]; // o que este trecho já somou ao total
+            return GerenciadorXML.lerAcoes(contador, contador, (acoes, bytes) -> {
+                if (cancelada) {
+                    throw new CancellationException();
+                }
+                progresso.atualizar(acoesLidas.addAndGet(acoes - informado[0]),
+                    bytesLidos.addAndGet(bytes - informado[1]));
+                informado[0] = acoes;
+                informado[1] = bytes;
+            });
+        }
+
+        /**
+         * Junta as partes na ordem dos trechos; a falha de qualquer uma sai como ExecutionException.
+         */
+        List<Acao> juntar(List<Future<List<Acao>>> futuros) throws InterruptedException, ExecutionException {
+            List<List<Acao>> partes = new ArrayList<>(futuros.size());
+            int total = 0;
+            for (Future<List<Acao>> futuro : futuros) {
+                List<Acao> parte = futuro.get();
+                partes.add(parte);
+                total += parte.size();
+            }
+            List<Acao> acoes = new ArrayList<>(total);
+            for (List<Acao> parte : partes) {
+                acoes.addAll(parte);
+            }
+            return acoes;
+        }
+    }
+
+    private static final class EntradaMapeada extends InputStream {
+        private final ByteBuffer dados;
+
+        EntradaMapeada(ByteBuffer dados) {
+            this.dados = dados;
+        }
+
+        @Override
+        public int read() {
+            return dados.hasRemaining() ? dados.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int inicio, int tamanho) {
+            if (!dados.hasRemaining()) {
+                return tamanho == 0 ? 0 : -1;
+            }
+            int n = Math.min(tamanho, dados.remaining());
+            dados.get(b, inicio, n);
+            return n;
+        }
+    }
+}
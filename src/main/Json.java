@@ -0,0 +1,47 @@
+package main;
+
+/**
+ * Utilitários mínimos para montar respostas JSON sem dependências externas.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    public static String texto(String valor) {
+        if (valor == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(valor.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    public static String acao(Acao acao) {
+        return "{\"id\":" + acao.getId()
+            + ",\"tipo\":" + texto(acao.getTipo().name())
+            + ",\"detalhes\":" + texto(acao.getDetalhes())
+            + ",\"x\":" + acao.getX()
+            + ",\"y\":" + acao.getY()
+            + ",\"timestamp\":" + texto(acao.getTimestampFormatted())
+            + ",\"delay\":" + acao.getDelay()
+            + ",\"duracao\":" + acao.getDuracao() + "}";
+    }
+}
@@ -0,0 +1,170 @@
+package main;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cliente da transmissão ao vivo (ver TransmissorCaptura). ler() devolve o
+ * próximo lote e, se a conexão cair ou o mapeador ainda não estiver no ar,
+ * reconecta sozinho com espera crescente. Em TCP, o token configurado
+ * (-Dmapeador.transmissao.token) é enviado a cada conexão.
+ *
+ * Uso: java -p ... -m MapeadorAtividades/main.LeitorTransmissao tcp:PORTA | unix:CAMINHO
+ */
+final class LeitorTransmissao implements AutoCloseable {
+
+    private static final long ESPERA_MINIMA_MS = 100;
+    private static final long ESPERA_MAXIMA_MS = 2_000;
+
+    /**
+     * Ações de um quadro e o total descartado pelo transmissor até ele
+     * (se aumentou desde o lote anterior, houve perda por lentidão).
+     */
+    static final class Lote {
+        final List<Acao> acoes;
+        final long descartadas;
+
+        Lote(List<Acao> acoes, long descartadas) {
+            this.acoes = Collections.unmodifiableList(acoes);
+            this.descartadas = descartadas;
+        }
+    }
+
+    private final SocketAddress endereco;
+    private final byte[] token;
+    private final ByteBuffer cabecalho = ByteBuffer.allocateDirect(4);
+    private ByteBuffer corpo = ByteBuffer.allocateDirect(TransmissorCaptura.TAMANHO_QUADRO);
+    private final CodificadorAcoes.Leitor leitor = new CodificadorAcoes.Leitor();
+    private SocketChannel canal;
+    private int reconexoes;
+    private volatile boolean fechado;
+
+    LeitorTransmissao(SocketAddress endereco) {
+        this(endereco, System.getProperty(TransmissorCaptura.PROPRIEDADE_TOKEN));
+    }
+
+    LeitorTransmissao(SocketAddress endereco, String token) {
+        this.endereco = endereco;
+        this.token = token == null || token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bloqueia até o próximo lote.
+     */
+    Lote ler() throws IOException, InterruptedException {
+        long espera = ESPERA_MINIMA_MS;
+        while (!fechado) {
+            try {
+                if (canal == null) {
+                    canal = SocketChannel.open(endereco);
+                    identificar();
+                    espera = ESPERA_MINIMA_MS;
+                }
+                return lerQuadro();
+            } catch (IOException e) {
+                if (fechado) {
+                    break;
+                }
+                desconectar();
+                reconexoes++;
+                Thread.sleep(espera);
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+            }
+        }
+        throw new IOException("Leitor fechado");
+    }
+
+    private void identificar() throws IOException {
+        if (token == null || !(endereco instanceof InetSocketAddress)) {
+            return;
+        }
+        ByteBuffer mensagem = ByteBuffer.allocate(4 + token.length).putInt(token.length).put(token).flip();
+        while (mensagem.hasRemaining()) {
+            canal.write(mensagem);
+        }
+    }
+
+    private Lote lerQuadro() throws IOException {
+        cabecalho.clear();
+        preencher(cabecalho);
+        int tamanho = cabecalho.flip().getInt();
+        if (tamanho < TransmissorCaptura.CABECALHO - 4) {
+            throw new IOException("Quadro inválido: " + tamanho + " bytes");
+        }
+        if (corpo.capacity() < tamanho) {
+            corpo = ByteBuffer.allocateDirect(tamanho);
+        }
+        corpo.clear().limit(tamanho);
+        preencher(corpo);
+        corpo.flip();
+        int quantidade = corpo.getInt();
+        long descartadas = corpo.getLong();
+        leitor.reiniciar();
+        List<Acao> acoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            acoes.add(leitor.ler(corpo));
+        }
+        return new Lote(acoes, descartadas);
+    }
+
+    private void preencher(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer) < 0) {
+                throw new EOFException("Transmissor encerrou a conexão");
+            }
+        }
+    }
+
+    int getReconexoes() {
+        return reconexoes;
+    }
+
+    private void desconectar() {
+        if (canal != null) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // já fechado
+            }
+            canal = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        fechado = true;
+        desconectar();
+    }
+
+    /**
+     * Monitor simples: imprime cada ação recebida.
+     */
+    public static void main(String[] args) throws Exception {
+        String configuracao = args.length > 0 ? args[0] : System.getProperty(TransmissorCaptura.PROPRIEDADE);
+        if (configuracao == null) {
+            System.err.println("Uso: LeitorTransmissao tcp:PORTA | unix:CAMINHO");
+            System.exit(1);
+        }
+        try (LeitorTransmissao leitor = new LeitorTransmissao(TransmissorCaptura.endereco(configuracao))) {
+            long descartadas = 0;
+            while (true) {
+                Lote lote = leitor.ler();
+                if (lote.descartadas > descartadas) {
+                    System.out.println("... " + (lote.descartadas - descartadas) + " ações descartadas pelo transmissor");
+                    descartadas = lote.descartadas;
+                }
+                for (Acao acao : lote.acoes) {
+                    System.out.println(acao);
+                }
+            }
+        }
+    }
+}
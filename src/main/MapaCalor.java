@@ -0,0 +1,224 @@
+package main;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Grades de densidade de cliques e de permanência do mouse, em células de
+ * TAMANHO_CELULA pixels. A construção a partir de uma gravação acumula em
+ * paralelo (uma grade int[] por fatia) e mescla no final; a renderização
+ * aplica um desfoque separável e colore em um BufferedImage.
+ */
+class MapaCalor {
+
+    public enum Modo { CLIQUES, PERMANENCIA }
+
+    public static final int TAMANHO_CELULA = 4;
+    private static final long LIMITE_PERMANENCIA_MS = 5000;
+    private static final int MIN_ACOES_POR_FATIA = 50_000;
+
+    private final int largura;
+    private final int altura;
+    private final int[] cliques;
+    private final int[] permanencia;
+    private Acao pendente; // última ação de mouse aguardando a próxima para medir permanência
+
+    public MapaCalor(int larguraTela, int alturaTela) {
+        this.largura = Math.max(1, (larguraTela + TAMANHO_CELULA - 1) / TAMANHO_CELULA);
+        this.altura = Math.max(1, (alturaTela + TAMANHO_CELULA - 1) / TAMANHO_CELULA);
+        this.cliques = new int[largura * altura];
+        this.permanencia = new int[largura * altura];
+    }
+
+    private MapaCalor(MapaCalor origem) {
+        this.largura = origem.largura;
+        this.altura = origem.altura;
+        this.cliques = origem.cliques.clone();
+        this.permanencia = origem.permanencia.clone();
+    }
+
+    /**
+     * Acumula uma gravação inteira em paralelo: cada fatia contígua de ações
+     * preenche sua própria grade, e as grades são somadas no final.
+     */
+    public static MapaCalor construir(List<Acao> acoes, int larguraTela, int alturaTela) {
+        int n = acoes.size();
+        int paralelismo = ForkJoinPool.commonPool().getParallelism();
+        int fatias = Math.max(1, Math.min(paralelismo, n / MIN_ACOES_POR_FATIA));
+        return IntStream.range(0, fatias).parallel()
+            .mapToObj(f -> {
+                MapaCalor parcial = new MapaCalor(larguraTela, alturaTela);
+                int inicio = (int) ((long) n * f / fatias);
+                int fim = (int) ((long) n * (f + 1) / fatias);
+                for (int i = inicio; i < fim; i++) {
+                    Acao acao = acoes.get(i);
+                    Acao proxima = i + 1 < n ? acoes.get(i + 1) : null;
+                    parcial.acumular(acao, proxima);
+                }
+                return parcial;
+            })
+            .reduce((a, b) -> { a.mesclar(b); return a; })
+            .orElseGet(() -> new MapaCalor(larguraTela, alturaTela));
+    }
+
+    /**
+     * Acréscimo incremental durante a gravação; as ações devem chegar em ordem.
+     */
+    public void adicionar(Acao acao) {
+        if (pendente != null) {
+            acumular(pendente, acao);
+            pendente = null;
+        }
+        if (acao.getTipo() == Acao.TipoAcao.MOUSE_MOVE) {
+            pendente = acao; // permanência só é conhecida na próxima ação
+        } else {
+            acumular(acao, null);
+        }
+    }
+
+    private void acumular(Acao acao, Acao proxima) {
+        int celula = celula(acao.getX(), acao.getY());
+        if (celula < 0) {
+            return;
+        }
+        switch (acao.getTipo()) {
+            case MOUSE_CLICK -> cliques[celula]++;
+            case MOUSE_MOVE -> {
+                if (proxima != null) {
+                    long ms = Duration.between(acao.getTimestamp(), proxima.getTimestamp()).toMillis();
+                    somarSaturado(permanencia, celula, Math.max(0, Math.min(ms, LIMITE_PERMANENCIA_MS)));
+                }
+            }
+            default -> { /* sem coordenadas relevantes */ }
+        }
+    }
+
+    private static void somarSaturado(int[] grade, int celula, long valor) {
+        grade[celula] = (int) Math.min(Integer.MAX_VALUE, grade[celula] + valor);
+    }
+
+    private int celula(int x, int y) {
+        if (x < 0 || y < 0) {
+            return -1;
+        }
+        int cx = Math.min(largura - 1, x / TAMANHO_CELULA);
+        int cy = Math.min(altura - 1, y / TAMANHO_CELULA);
+        return cy * largura + cx;
+    }
+
+    public void mesclar(MapaCalor outro) {
+        for (int i = 0; i < cliques.length; i++) {
+            cliques[i] += outro.cliques[i];
+            somarSaturado(permanencia, i, outro.permanencia[i]);
+        }
+    }
+
+    public MapaCalor copia() {
+        return new MapaCalor(this);
+    }
+
+    // ===== RENDERIZAÇÃO =====
+
+    /**
+     * Desfoca e colore a grade escolhida. Custo proporcional ao tamanho da
+     * grade, não ao número de ações; deve rodar fora da EDT.
+     */
+    public BufferedImage renderizar(Modo modo, int raio) {
+        int[] grade = modo == Modo.CLIQUES ? cliques : permanencia;
+        float[] valores = new float[grade.length];
+        for (int i = 0; i < grade.length; i++) {
+            valores[i] = grade[i];
+        }
+        float[] desfocado = desfocar(valores, raio);
+
+        float maximo = 0;
+        for (float v : desfocado) {
+            maximo = Math.max(maximo, v);
+        }
+        double escala = maximo > 0 ? 1.0 / Math.log1p(maximo) : 0;
+
+        BufferedImage imagem = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = new int[largura * altura];
+        IntStream.range(0, altura).parallel().forEach(y -> {
+            for (int x = 0; x < largura; x++) {
+                int i = y * largura + x;
+                pixels[i] = colorir((float) (Math.log1p(desfocado[i]) * escala));
+            }
+        });
+        imagem.setRGB(0, 0, largura, altura, pixels, 0, largura);
+        return imagem;
+    }
+
+    /**
+     * Desfoque de caixa separável (horizontal e depois vertical), em O(1) por pixel.
+     */
+    private float[] desfocar(float[] origem, int raio) {
+        if (raio <= 0) {
+            return origem;
+        }
+        float[] horizontal = new float[origem.length];
+        float[] resultado = new float[origem.length];
+        float divisor = 2 * raio + 1;
+
+        IntStream.range(0, altura).parallel().forEach(y -> {
+            int linha = y * largura;
+            float soma = 0;
+            for (int x = -raio; x <= raio; x++) {
+                soma += valor(origem, linha, x, largura);
+            }
+            for (int x = 0; x < largura; x++) {
+                horizontal[linha + x] = soma / divisor;
+                soma += valor(origem, linha, x + raio + 1, largura) - valor(origem, linha, x - raio, largura);
+            }
+        });
+        IntStream.range(0, largura).parallel().forEach(x -> {
+            float soma = 0;
+            for (int y = -raio; y <= raio; y++) {
+                soma += valorColuna(horizontal, x, y);
+            }
+            for (int y = 0; y < altura; y++) {
+                resultado[y * largura + x] = soma / divisor;
+                soma += valorColuna(horizontal, x, y + raio + 1) - valorColuna(horizontal, x, y - raio);
+            }
+        });
+        return resultado;
+    }
+
+    private static float valor(float[] dados, int linha, int x, int largura) {
+        return x < 0 || x >= largura ? 0 : dados[linha + x];
+    }
+
+    private float valorColuna(float[] dados, int x, int y) {
+        return y < 0 || y >= altura ? 0 : dados[y * largura + x];
+    }
+
+    /**
+     * Gradiente transparente → azul → verde → amarelo → vermelho.
+     */
+    private static int colorir(float t) {
+        if (t <= 0) {
+            return 0;
+        }
+        t = Math.min(1f, t);
+        int alfa = (int) (80 + 175 * t);
+        int r, g, b;
+        if (t < 0.33f) {
+            float k = t / 0.33f;
+            r = 0; g = (int) (255 * k); b = (int) (255 * (1 - k));
+        } else if (t < 0.66f) {
+            float k = (t - 0.33f) / 0.33f;
+            r = (int) (255 * k); g = 255; b = 0;
+        } else {
+            float k = (t - 0.66f) / 0.34f;
+            r = 255; g = (int) (255 * (1 - k)); b = 0;
+        }
+        return (alfa << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    public int getLarguraCelulas() { return largura; }
+
+    public int getAlturaCelulas() { return altura; }
+}
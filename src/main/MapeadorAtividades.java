@@ -2,17 +2,39 @@ package main;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
-public class MapeadorAtividades extends JFrame implements 
-    CapturadorEventos.EventoListener, ReprodutorEventos.ReprodutorListener {
+public class MapeadorAtividades extends JFrame implements ReprodutorEventos.ReprodutorListener {
     
     private CapturadorEventos capturador;
+    private TransmissorCaptura transmissor;
+    private DiarioGravacao diario;
     private ReprodutorEventos reprodutor;
+    private CompletableFuture<ReprodutorEventos> reprodutorPronto;
+    private boolean capturaUtilizada = false; // o hook nativo só é carregado se a captura for usada
+    
+    // Hook nativo e Robot são criados sob demanda, fora da EDT
+    private static final Executor EXECUTOR_INICIALIZACAO = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mapeador-inicializacao");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     // Componentes da interface
     private JButton btnIniciarGravacao;
@@ -21,16 +43,40 @@ public class MapeadorAtividades extends JFrame implements
     private JButton btnCarregarXML;
     private JButton btnReproduzir;
     private JButton btnPararReproducao;
+    private JButton btnRelatorioFidelidade;
+    private JCheckBox chkOtimizar;
+    private JButton btnSimularOtimizacao;
+    private JCheckBox chkColarTextos;
     
     private JTextArea areaLog;
     private JScrollPane scrollLog;
+    private JTable tabelaAcoes;
+    private ModeloTabelaAcoes modeloTabela;
+    private TableRowSorter<ModeloTabelaAcoes> ordenadorTabela;
+    private JComboBox<Object> cmbFiltroTipo;
+    private JTextField txtFiltroDetalhes;
+    private Timer timerAtualizacao;
+    private PainelLinhaTempo painelLinhaTempo;
+    private PainelMapaCalor painelMapaCalor;
     private JLabel lblStatus;
     private JLabel lblContadorAcoes;
     private JProgressBar progressBar;
     
     private boolean gravando = false;
-    private boolean reproduzindo = false;
+    private volatile boolean reproduzindo = false;
+    // Cada clique em Reproduzir agenda um início; Parar invalida os que ainda não começaram
+    private final Object inicioReproducao = new Object();
+    private int geracaoReproducao;
     private List<Acao> acoesCarregadas;
+    private volatile boolean novosEventos = false;
+    private int acoesVisualizadas = 0; // ações já entregues às visualizações
+    
+    private static final int MAX_LINHAS_LOG = 1000;
+    // Tamanho mínimo do bloco de texto colado quando "Colar textos longos" está marcado
+    private static final int MINIMO_COLAGEM = ReprodutorEventos.MINIMO_COLAGEM_PADRAO > 0
+        ? ReprodutorEventos.MINIMO_COLAGEM_PADRAO : 20;
+    private static final int INTERVALO_ATUALIZACAO_MS = 100;
+    private static final String FILTRO_TODOS = "Todos os tipos";
     
     public MapeadorAtividades() {
         initComponents();
@@ -66,6 +112,19 @@ public class MapeadorAtividades extends JFrame implements
         gbc.gridx = 2; gbc.gridy = 0;
         painelControles.add(btnExportarXML, gbc);
         
+        // Desligado por padrão: limitar pausas e remover SHIFT/CTRL isolados muda a gravação
+        chkOtimizar = new JCheckBox("Otimizar gravação", false);
+        chkOtimizar.setToolTipText("Ao exportar e antes de reproduzir: remove movimentos redundantes e "
+            + "SHIFT/CTRL isolados, limita pausas e compacta a digitação em blocos de texto");
+        gbc.gridx = 3; gbc.gridy = 0;
+        painelControles.add(chkOtimizar, gbc);
+        
+        chkColarTextos = new JCheckBox("Colar textos longos", ReprodutorEventos.MINIMO_COLAGEM_PADRAO > 0);
+        chkColarTextos.setToolTipText("Na reprodução, blocos de texto com " + MINIMO_COLAGEM
+            + "+ caracteres ou acentos são colados pela área de transferência");
+        gbc.gridx = 4; gbc.gridy = 0;
+        painelControles.add(chkColarTextos, gbc);
+        
         // Botões de reprodução
         btnCarregarXML = new JButton("📁 Carregar XML");
         btnCarregarXML.setPreferredSize(new Dimension(150, 30));
@@ -84,7 +143,17 @@ public class MapeadorAtividades extends JFrame implements
         gbc.gridx = 2; gbc.gridy = 1;
         painelControles.add(btnPararReproducao, gbc);
         
-        add(painelControles, BorderLayout.NORTH);
+        btnRelatorioFidelidade = new JButton("📊 Fidelidade");
+        btnRelatorioFidelidade.setPreferredSize(new Dimension(150, 30));
+        btnRelatorioFidelidade.setEnabled(false);
+        gbc.gridx = 3; gbc.gridy = 1;
+        painelControles.add(btnRelatorioFidelidade, gbc);
+        
+        btnSimularOtimizacao = new JButton("🧹 Simular otimização");
+        btnSimularOtimizacao.setPreferredSize(new Dimension(170, 30));
+        gbc.gridx = 4; gbc.gridy = 1;
+        painelControles.add(btnSimularOtimizacao, gbc);
+        
         
         // ===== PAINEL DE STATUS =====
         JPanel painelStatus = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -103,13 +172,25 @@ public class MapeadorAtividades extends JFrame implements
         painelStatus.add(Box.createHorizontalStrut(20));
         painelStatus.add(progressBar);
         
-        add(painelStatus, BorderLayout.CENTER);
+        JPanel painelTopo = new JPanel(new BorderLayout());
+        painelTopo.add(painelControles, BorderLayout.NORTH);
+        painelTopo.add(painelStatus, BorderLayout.SOUTH);
+        add(painelTopo, BorderLayout.NORTH);
+        
+        // ===== TABELA DE EVENTOS =====
+        JTabbedPane abas = new JTabbedPane();
+        abas.addTab("Eventos", criarPainelTabela());
+        painelLinhaTempo = new PainelLinhaTempo();
+        abas.addTab("Linha do Tempo", painelLinhaTempo);
+        painelMapaCalor = new PainelMapaCalor();
+        abas.addTab("Mapa de Calor", painelMapaCalor);
+        add(abas, BorderLayout.CENTER);
         
         // ===== ÁREA DE LOG =====
         JPanel painelLog = new JPanel(new BorderLayout());
         painelLog.setBorder(new TitledBorder("Log de Atividades"));
         
-        areaLog = new JTextArea(15, 50);
+        areaLog = new JTextArea(8, 50);
         areaLog.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         areaLog.setEditable(false);
         scrollLog = new JScrollPane(areaLog);
@@ -123,20 +204,68 @@ public class MapeadorAtividades extends JFrame implements
         setLocationRelativeTo(null);
         setResizable(true);
         
-        // Inicializar componentes
-        try {
-            capturador = new CapturadorEventos();
-            capturador.setEventoListener(this);
+        // Inicializar componentes (o registro do hook nativo fica para iniciarGravacao
+        // e o Robot para obterReprodutor)
+        capturador = new CapturadorEventos();
+        // A tabela só precisa saber que há novidade: buffer de uma ação, sempre a mais recente
+        capturador.getPublicador().assinar(new Flow.Subscriber<Acao>() {
+            @Override
+            public void onSubscribe(Flow.Subscription assinatura) {
+                assinatura.request(Long.MAX_VALUE);
+            }
+            
+            @Override
+            public void onNext(Acao acao) {
+                // Apenas sinaliza; a tabela é atualizada em lote pelo timerAtualizacao
+                novosEventos = true;
+            }
+            
+            @Override
+            public void onError(Throwable erro) {
+            }
             
-            reprodutor = new ReprodutorEventos();
-            reprodutor.setReprodutorListener(this);
+            @Override
+            public void onComplete() {
+            }
+        }, 1, PublicadorAcoes.Transbordo.AMOSTRAR);
+        
+        // -Dmapeador.transmissao=tcp:PORTA|unix:CAMINHO: captura ao vivo para outro processo
+        try {
+            transmissor = TransmissorCaptura.doSistema(capturador.getPublicador());
+            if (transmissor != null) {
+                adicionarLog("Transmissão ao vivo em " + transmissor.getEndereco());
+            }
         } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Erro ao inicializar componentes: " + e.getMessage(), 
-                "Erro", JOptionPane.ERROR_MESSAGE);
+            adicionarLog("ERRO ao iniciar transmissão ao vivo: " + e.getMessage());
         }
     }
     
+    /**
+     * Cria o reprodutor (e o Robot) em segundo plano na primeira necessidade.
+     */
+    private CompletableFuture<ReprodutorEventos> obterReprodutor() {
+        if (reprodutorPronto == null) {
+            reprodutorPronto = CompletableFuture.supplyAsync(() -> {
+                try {
+                    ReprodutorEventos novo = new ReprodutorEventos();
+                    novo.setReprodutorListener(this);
+                    return novo;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, EXECUTOR_INICIALIZACAO);
+            reprodutorPronto.whenComplete((novo, erro) -> SwingUtilities.invokeLater(() -> {
+                if (erro != null) {
+                    reprodutorPronto = null; // permitir nova tentativa
+                    adicionarLog("ERRO ao inicializar reprodutor: " + causa(erro).getMessage());
+                } else {
+                    reprodutor = novo;
+                }
+            }));
+        }
+        return reprodutorPronto;
+    }
+    
     private void initEventos() {
         // ===== EVENTOS DOS BOTÕES =====
         
@@ -152,6 +281,13 @@ public class MapeadorAtividades extends JFrame implements
         
         btnPararReproducao.addActionListener(e -> pararReproducao());
         
+        btnRelatorioFidelidade.addActionListener(e -> exportarRelatorioFidelidade());
+        
+        btnSimularOtimizacao.addActionListener(e -> simularOtimizacao());
+        
+        // Novas linhas da captura são anunciadas à tabela em lotes
+        timerAtualizacao = new Timer(INTERVALO_ATUALIZACAO_MS, e -> atualizarTabela());
+        
         // Fechar aplicação adequadamente
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
@@ -164,47 +300,109 @@ public class MapeadorAtividades extends JFrame implements
     // ===== MÉTODOS DE CONTROLE =====
     
     private void iniciarGravacao() {
-        try {
-            capturador.iniciarCaptura();
-            gravando = true;
-            
-            btnIniciarGravacao.setEnabled(false);
-            btnPararGravacao.setEnabled(true);
-            btnExportarXML.setEnabled(false);
-            btnCarregarXML.setEnabled(false);
-            btnReproduzir.setEnabled(false);
-            
-            lblStatus.setText("🔴 GRAVANDO...");
-            lblContadorAcoes.setText("Ações capturadas: 0");
-            areaLog.setText("");
-            adicionarLog("=== INICIANDO GRAVAÇÃO ===");
-            adicionarLog("Capturando eventos de mouse e teclado...");
+        btnIniciarGravacao.setEnabled(false);
+        btnCarregarXML.setEnabled(false);
+        lblStatus.setText("⏳ Preparando captura...");
+        capturaUtilizada = true;
+        
+        // registerNativeHook extrai e carrega a biblioteca nativa: não bloquear a EDT
+        CompletableFuture.runAsync(() -> {
+            try {
+                capturador.iniciarCaptura();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR_INICIALIZACAO).whenComplete((ok, erro) -> SwingUtilities.invokeLater(() -> {
+            if (erro != null) {
+                btnIniciarGravacao.setEnabled(true);
+                btnCarregarXML.setEnabled(true);
+                lblStatus.setText("Pronto para iniciar");
+                JOptionPane.showMessageDialog(this, 
+                    "Erro ao iniciar gravação: " + causa(erro).getMessage(), 
+                    "Erro", JOptionPane.ERROR_MESSAGE);
+            } else {
+                gravacaoIniciada();
+            }
+        }));
+    }
+    
+    private void gravacaoIniciada() {
+        gravando = true;
+        
+        btnIniciarGravacao.setEnabled(false);
+        btnPararGravacao.setEnabled(true);
+        btnExportarXML.setEnabled(false);
+        btnCarregarXML.setEnabled(false);
+        btnReproduzir.setEnabled(false);
+        
+        lblStatus.setText("🔴 GRAVANDO...");
+        lblContadorAcoes.setText("Ações capturadas: 0");
+        areaLog.setText("");
+        modeloTabela.setFonte(new ModeloTabelaAcoes.Fonte() {
+            @Override
+            public int tamanho() { return capturador.size(); }
             
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Erro ao iniciar gravação: " + e.getMessage(), 
-                "Erro", JOptionPane.ERROR_MESSAGE);
+            @Override
+            public Acao obter(int indice) { return capturador.getAcao(indice); }
+        });
+        painelLinhaTempo.setPiramide(new PiramideEventos());
+        painelMapaCalor.limpar();
+        acoesVisualizadas = 0;
+        timerAtualizacao.start();
+        adicionarLog("=== INICIANDO GRAVAÇÃO ===");
+        adicionarLog("Capturando eventos de mouse e teclado...");
+        if (diario != null) {
+            diario.excluir(); // a gravação anterior foi descartada da memória junto
+            diario = null;
+        }
+        if (DiarioGravacao.INTERVALO_PADRAO_S > 0) {
+            diario = new DiarioGravacao(capturador, DiarioGravacao.arquivoPadrao(), DiarioGravacao.INTERVALO_PADRAO_S);
+            diario.iniciar();
+            adicionarLog("Salvamento automático a cada " + DiarioGravacao.INTERVALO_PADRAO_S + "s em " + diario.getArquivo());
         }
     }
     
     private void pararGravacao() {
         capturador.pararCaptura();
         gravando = false;
+        timerAtualizacao.stop();
+        modeloTabela.sincronizar();
+        modeloTabela.fireTableDataChanged(); // delays exibidos antes da ação seguinte chegar
+        alimentarVisualizacoes();
         
         btnIniciarGravacao.setEnabled(true);
         btnPararGravacao.setEnabled(false);
         btnExportarXML.setEnabled(true);
         btnCarregarXML.setEnabled(true);
         
-        List<Acao> acoes = capturador.getAcoes();
+        int total = capturador.size();
         lblStatus.setText("⏹️ Gravação finalizada");
-        lblContadorAcoes.setText("Ações capturadas: " + acoes.size());
+        lblContadorAcoes.setText("Ações capturadas: " + total);
         
         adicionarLog("=== GRAVAÇÃO FINALIZADA ===");
-        adicionarLog("Total de ações capturadas: " + acoes.size());
-        if (!acoes.isEmpty()) {
-            adicionarLog("Primeira ação: " + acoes.get(0).toString());
-            adicionarLog("Última ação: " + acoes.get(acoes.size()-1).toString());
+        adicionarLog("Total de ações capturadas: " + total);
+        if (capturador.getPoliticaPausas() != null) {
+            adicionarLog("Pausas: " + capturador.getPoliticaPausas().resumo());
+        }
+        ArmazemAcoes armazem = capturador.getArmazem();
+        if (armazem.getSegmentosEmDisco() > 0) {
+            adicionarLog(String.format("Memória: %d segmentos em disco (%.1f MB)",
+                armazem.getSegmentosEmDisco(), armazem.getBytesEmDisco() / (1024.0 * 1024)));
+        }
+        if (armazem.getFalhaDespejo() != null) {
+            adicionarLog("AVISO: falha ao gravar segmentos em disco: " + armazem.getFalhaDespejo().getMessage());
+        }
+        if (total > 0) {
+            adicionarLog("Primeira ação: " + capturador.getAcao(0).toString());
+            adicionarLog("Última ação: " + capturador.getAcao(total - 1).toString());
+        }
+        if (diario != null) {
+            // Último ponto de controle em segundo plano; a EDT não espera o disco
+            diario.encerrar().whenComplete((arquivo, erro) -> SwingUtilities.invokeLater(() ->
+                adicionarLog(erro == null
+                    ? "Salvamento automático concluído: " + arquivo
+                    : "AVISO: falha no salvamento automático: " + causa(erro).getMessage())));
+            // Mantido até a exportação ou o encerramento do mapeador
         }
     }
     
@@ -212,36 +410,48 @@ public class MapeadorAtividades extends JFrame implements
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Salvar mapeamento como XML");
         fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
-            "Arquivos XML", "xml"));
+            "Arquivos XML (.xml ou compactado .xml.gz)", "xml", "gz"));
         fileChooser.setSelectedFile(new File("mapeamento_" + 
             java.time.LocalDateTime.now().format(
                 java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xml"));
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try {
-                File arquivo = fileChooser.getSelectedFile();
-                String nomeArquivo = arquivo.getAbsolutePath();
-                if (!nomeArquivo.endsWith(".xml")) {
-                    nomeArquivo += ".xml";
-                }
-                
-                List<Acao> acoes = capturador.getAcoes();
-                GerenciadorXML.exportarParaXML(acoes, nomeArquivo);
-                
-                adicionarLog("=== EXPORTAÇÃO CONCLUÍDA ===");
-                adicionarLog("Arquivo salvo: " + nomeArquivo);
-                adicionarLog("Total de ações exportadas: " + acoes.size());
-                
-                JOptionPane.showMessageDialog(this, 
-                    "Arquivo XML salvo com sucesso!\n" + nomeArquivo, 
-                    "Exportação Concluída", JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (Exception e) {
-                adicionarLog("ERRO na exportação: " + e.getMessage());
-                JOptionPane.showMessageDialog(this, 
-                    "Erro ao exportar arquivo XML: " + e.getMessage(), 
-                    "Erro", JOptionPane.ERROR_MESSAGE);
+            File arquivo = fileChooser.getSelectedFile();
+            String nomeArquivo = arquivo.getAbsolutePath();
+            if (!nomeArquivo.endsWith(".xml") && !nomeArquivo.endsWith(".xml" + FluxoCompactado.EXTENSAO)) {
+                nomeArquivo += ".xml";
             }
+            String destino = nomeArquivo;
+            List<Acao> gravacao = capturador.getAcoes();
+            boolean otimizar = chkOtimizar.isSelected();
+            
+            // Otimização e escrita fora da EDT, com progresso e cancelamento
+            new TarefaArquivo<Integer>(this, "Exportando XML", gravacao.size(), 0, progresso -> {
+                List<Acao> acoes = otimizar ? otimizar(gravacao) : gravacao;
+                GerenciadorXML.exportarParaXML(acoes, java.nio.file.Path.of(destino), progresso);
+                return acoes.size();
+            }, (exportadas, erro) -> {
+                if (erro instanceof java.util.concurrent.CancellationException) {
+                    adicionarLog("Exportação cancelada: " + destino);
+                } else if (erro != null) {
+                    adicionarLog("ERRO na exportação: " + erro.getMessage());
+                    JOptionPane.showMessageDialog(this, 
+                        "Erro ao exportar arquivo XML: " + erro.getMessage(), 
+                        "Erro", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    adicionarLog("=== EXPORTAÇÃO CONCLUÍDA ===");
+                    adicionarLog("Arquivo salvo: " + destino);
+                    adicionarLog("Total de ações exportadas: " + exportadas);
+                    if (diario != null) {
+                        diario.excluir(); // a gravação está salva: o diário não é mais necessário
+                        diario = null;
+                    }
+                    
+                    JOptionPane.showMessageDialog(this, 
+                        "Arquivo XML salvo com sucesso!\n" + destino, 
+                        "Exportação Concluída", JOptionPane.INFORMATION_MESSAGE);
+                }
+            }).iniciar();
         }
     }
     
@@ -249,41 +459,64 @@ public class MapeadorAtividades extends JFrame implements
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Carregar mapeamento XML");
         fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
-            "Arquivos XML", "xml"));
+            "Arquivos XML, XML compactado ou salvamento automático", "xml", "gz", DiarioGravacao.EXTENSAO));
         
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try {
-                String nomeArquivo = fileChooser.getSelectedFile().getAbsolutePath();
-                acoesCarregadas = GerenciadorXML.importarDeXML(nomeArquivo);
-                
-                btnReproduzir.setEnabled(true);
-                
-                adicionarLog("=== ARQUIVO CARREGADO ===");
-                adicionarLog("Arquivo: " + nomeArquivo);
-                adicionarLog("Total de ações carregadas: " + acoesCarregadas.size());
-                
-                if (!acoesCarregadas.isEmpty()) {
-                    adicionarLog("Primeira ação: " + acoesCarregadas.get(0).toString());
-                    adicionarLog("Última ação: " + acoesCarregadas.get(acoesCarregadas.size()-1).toString());
-                }
-                
-                lblStatus.setText("📁 Arquivo XML carregado");
-                lblContadorAcoes.setText("Ações carregadas: " + acoesCarregadas.size());
-                
-                JOptionPane.showMessageDialog(this, 
-                    "Arquivo XML carregado com sucesso!\n" + 
-                    "Ações disponíveis: " + acoesCarregadas.size(), 
-                    "Carregamento Concluído", JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (Exception e) {
-                adicionarLog("ERRO no carregamento: " + e.getMessage());
-                JOptionPane.showMessageDialog(this, 
-                    "Erro ao carregar arquivo XML: " + e.getMessage(), 
-                    "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            java.nio.file.Path arquivo = fileChooser.getSelectedFile().toPath();
+            String nomeArquivo = arquivo.toAbsolutePath().toString();
+            boolean diarioGravacao = nomeArquivo.endsWith("." + DiarioGravacao.EXTENSAO);
+            PiramideEventos[] piramide = new PiramideEventos[1]; // montada junto com a leitura, fora da EDT
+            
+            new TarefaArquivo<List<Acao>>(this, "Carregando " + arquivo.getFileName(), 0, arquivo.toFile().length(),
+                progresso -> {
+                    List<Acao> acoes = diarioGravacao
+                        ? DiarioGravacao.ler(arquivo)
+                        : ImportadorParalelo.importar(arquivo, progresso);
+                    piramide[0] = PiramideEventos.construir(acoes);
+                    return acoes;
+                },
+                (acoes, erro) -> {
+                    if (erro instanceof java.util.concurrent.CancellationException) {
+                        adicionarLog("Carregamento cancelado: " + nomeArquivo);
+                    } else if (erro != null) {
+                        adicionarLog("ERRO no carregamento: " + erro.getMessage());
+                        JOptionPane.showMessageDialog(this, 
+                            "Erro ao carregar arquivo XML: " + erro.getMessage(), 
+                            "Erro", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        arquivoCarregado(nomeArquivo, acoes, piramide[0]);
+                    }
+                }).iniciar();
         }
     }
     
+    private void arquivoCarregado(String nomeArquivo, List<Acao> acoes, PiramideEventos piramide) {
+        acoesCarregadas = acoes;
+        modeloTabela.setFonte(ModeloTabelaAcoes.Fonte.de(acoesCarregadas));
+        painelLinhaTempo.setPiramide(piramide);
+        painelMapaCalor.carregar(acoesCarregadas);
+        
+        btnReproduzir.setEnabled(true);
+        obterReprodutor(); // antecipar a criação do Robot
+        
+        adicionarLog("=== ARQUIVO CARREGADO ===");
+        adicionarLog("Arquivo: " + nomeArquivo);
+        adicionarLog("Total de ações carregadas: " + acoesCarregadas.size());
+        
+        if (!acoesCarregadas.isEmpty()) {
+            adicionarLog("Primeira ação: " + acoesCarregadas.get(0).toString());
+            adicionarLog("Última ação: " + acoesCarregadas.get(acoesCarregadas.size()-1).toString());
+        }
+        
+        lblStatus.setText("📁 Arquivo XML carregado");
+        lblContadorAcoes.setText("Ações carregadas: " + acoesCarregadas.size());
+        
+        JOptionPane.showMessageDialog(this, 
+            "Arquivo XML carregado com sucesso!\n" + 
+            "Ações disponíveis: " + acoesCarregadas.size(), 
+            "Carregamento Concluído", JOptionPane.INFORMATION_MESSAGE);
+    }
+    
     private void iniciarReproducao() {
         if (acoesCarregadas == null || acoesCarregadas.isEmpty()) {
             JOptionPane.showMessageDialog(this, 
@@ -300,6 +533,15 @@ public class MapeadorAtividades extends JFrame implements
             
         if (resposta == JOptionPane.YES_OPTION) {
             reproduzindo = true;
+            int geracao;
+            synchronized (inicioReproducao) {
+                geracao = ++geracaoReproducao;
+            }
+            boolean otimizar = chkOtimizar.isSelected();
+            List<Acao> carregadas = acoesCarregadas;
+            // A otimização percorre a gravação inteira: fora da EDT, junto com a criação do Robot
+            CompletableFuture<List<Acao>> preparo = CompletableFuture.supplyAsync(
+                () -> otimizar ? otimizar(carregadas) : carregadas);
             
             btnReproduzir.setEnabled(false);
             btnPararReproducao.setEnabled(true);
@@ -310,49 +552,73 @@ public class MapeadorAtividades extends JFrame implements
             lblStatus.setText("▶️ REPRODUZINDO...");
             progressBar.setVisible(true);
             progressBar.setValue(0);
-            progressBar.setMaximum(acoesCarregadas.size());
+            progressBar.setMaximum(carregadas.size());
             
+            btnRelatorioFidelidade.setEnabled(false);
             adicionarLog("=== INICIANDO REPRODUÇÃO ===");
-            adicionarLog("Total de ações a reproduzir: " + acoesCarregadas.size());
+            adicionarLog("Total de ações a reproduzir: " + carregadas.size());
             adicionarLog("ATENÇÃO: Não mova o mouse durante a reprodução!");
             
-            // Dar tempo para o usuário se preparar
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    Thread.sleep(2000); // 2 segundos de preparação
-                    reprodutor.reproduzirAcoes(acoesCarregadas);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+            // Dar tempo para o usuário se preparar (2 segundos), sem bloquear a EDT
+            int minimoColagem = chkColarTextos.isSelected() ? MINIMO_COLAGEM : 0;
+            // Com a otimização as pausas já foram tratadas; sem ela, vale a política configurada
+            PoliticaPausas politica = otimizar ? null : PoliticaPausas.doSistema();
+            obterReprodutor().thenAcceptBothAsync(preparo, (r, acoes) -> {
+                // Sob o mesmo lock de pararReproducao: ou começa antes e é parada, ou não começa
+                synchronized (inicioReproducao) {
+                    if (geracao != geracaoReproducao) {
+                        return;
+                    }
+                    SwingUtilities.invokeLater(() -> progressBar.setMaximum(acoes.size()));
+                    r.setMinimoColagem(minimoColagem);
+                    r.setPoliticaPausas(politica);
+                    r.reproduzirAcoes(acoes);
                 }
+            }, CompletableFuture.delayedExecutor(2, TimeUnit.SECONDS)).exceptionally(erro -> {
+                onErro("Falha ao preparar a reprodução: " + causa(erro).getMessage());
+                return null;
             });
         }
     }
     
     private void pararReproducao() {
-        reprodutor.pararReproducao();
+        synchronized (inicioReproducao) {
+            geracaoReproducao++;
+            if (reprodutor != null) {
+                reprodutor.pararReproducao();
+            }
+        }
         reproduzindo = false;
         
         btnReproduzir.setEnabled(true);
         btnPararReproducao.setEnabled(false);
         btnIniciarGravacao.setEnabled(true);
         btnCarregarXML.setEnabled(true);
-        btnExportarXML.setEnabled(!capturador.getAcoes().isEmpty());
+        btnExportarXML.setEnabled(!capturador.isEmpty());
         
         lblStatus.setText("⏸️ Reprodução interrompida");
         progressBar.setVisible(false);
         
         adicionarLog("=== REPRODUÇÃO INTERROMPIDA ===");
+        // A thread de reprodução ainda pode concluir o passo atual; a análise fica para a exportação
+        btnRelatorioFidelidade.setEnabled(reprodutor != null && reprodutor.getUltimoRelatorio() != null);
     }
     
     private void encerrarAplicacao() {
         try {
-            if (capturador != null) {
+            if (capturador != null && capturaUtilizada) {
                 capturador.pararCaptura();
+                if (diario != null) {
+                    diario.excluir().get(5, TimeUnit.SECONDS);
+                }
                 capturador.limparCaptura();
             }
             if (reprodutor != null) {
                 reprodutor.pararReproducao();
             }
+            if (transmissor != null) {
+                transmissor.close();
+            }
         } catch (Exception e) {
             System.err.println("Erro ao encerrar aplicação: " + e.getMessage());
         }
@@ -361,19 +627,6 @@ public class MapeadorAtividades extends JFrame implements
     
     // ===== IMPLEMENTAÇÃO DOS LISTENERS =====
     
-    @Override
-    public void onNovoEvento(Acao acao) {
-        SwingUtilities.invokeLater(() -> {
-            List<Acao> acoes = capturador.getAcoes();
-            lblContadorAcoes.setText("Ações capturadas: " + acoes.size());
-            
-            // Mostrar apenas as últimas 3 ações no log para não sobrecarregar
-            //if (acoes.size() % 10 == 0 || acoes.size() <= 3) {
-                adicionarLog(String.format("[%d] %s", acoes.size(), acao.toString()));
-           // }
-        });
-    }
-    
     @Override
     public void onAcaoExecutada(Acao acao, int progresso, int total) {
         SwingUtilities.invokeLater(() -> {
@@ -397,13 +650,17 @@ public class MapeadorAtividades extends JFrame implements
             btnPararReproducao.setEnabled(false);
             btnIniciarGravacao.setEnabled(true);
             btnCarregarXML.setEnabled(true);
-            btnExportarXML.setEnabled(!capturador.getAcoes().isEmpty());
+            btnExportarXML.setEnabled(!capturador.isEmpty());
             
             lblStatus.setText("✅ Reprodução concluída");
             progressBar.setValue(progressBar.getMaximum());
             progressBar.setString("Concluído!");
             
             adicionarLog("=== REPRODUÇÃO CONCLUÍDA COM SUCESSO ===");
+            registrarFidelidade();
+            if (reprodutor != null && reprodutor.getPoliticaPausas() != null) {
+                adicionarLog("Pausas: " + reprodutor.getPoliticaPausas().resumo());
+            }
             
             // Ocultar progress bar após 3 segundos
             Timer timer = new Timer(3000, e -> progressBar.setVisible(false));
@@ -425,13 +682,14 @@ public class MapeadorAtividades extends JFrame implements
             btnPararReproducao.setEnabled(false);
             btnIniciarGravacao.setEnabled(true);
             btnCarregarXML.setEnabled(true);
-            btnExportarXML.setEnabled(!capturador.getAcoes().isEmpty());
+            btnExportarXML.setEnabled(!capturador.isEmpty());
             
             lblStatus.setText("❌ Erro na reprodução");
             progressBar.setVisible(false);
             
             adicionarLog("=== ERRO NA REPRODUÇÃO ===");
             adicionarLog("Erro: " + erro);
+            registrarFidelidade();
             
             JOptionPane.showMessageDialog(this, 
                 "Erro durante a reprodução:\n" + erro, 
@@ -439,20 +697,259 @@ public class MapeadorAtividades extends JFrame implements
         });
     }
     
+    /**
+     * Aplica o pipeline padrão de otimização e registra no log o que cada etapa removeu.
+     */
+    private List<Acao> otimizar(List<Acao> acoes) {
+        List<Acao> otimizadas = new java.util.ArrayList<>(acoes.size());
+        PoliticaPausas politica = PoliticaPausas.doSistema(OtimizadorGravacao.PAUSA_MAXIMA_PADRAO_MS).calibrar(acoes);
+        OtimizadorGravacao.Relatorio relatorio = OtimizadorGravacao.padrao(politica)
+            .executar(acoes, otimizadas::add);
+        adicionarLog("Otimização: " + relatorio.linhas().get(relatorio.linhas().size() - 1));
+        adicionarLog("Pausas: " + politica.resumo());
+        return otimizadas;
+    }
+    
+    /**
+     * Prévia do pipeline sobre a gravação atual (ou o arquivo carregado), sem alterar nada.
+     */
+    private void simularOtimizacao() {
+        List<Acao> acoes = !capturador.isEmpty() ? capturador.getAcoes() : acoesCarregadas;
+        if (acoes == null || acoes.isEmpty()) {
+            adicionarLog("Nada para simular: grave ou carregue um arquivo primeiro.");
+            return;
+        }
+        PoliticaPausas politica = PoliticaPausas.doSistema(OtimizadorGravacao.PAUSA_MAXIMA_PADRAO_MS).calibrar(acoes);
+        OtimizadorGravacao.Relatorio relatorio = OtimizadorGravacao.padrao(politica).simular(acoes);
+        adicionarLog("=== SIMULAÇÃO DA OTIMIZAÇÃO ===");
+        relatorio.linhas().forEach(this::adicionarLog);
+    }
+    
+    /**
+     * Resume no log a fidelidade da última reprodução e libera a exportação do relatório.
+     */
+    private void registrarFidelidade() {
+        RelatorioFidelidade relatorio = reprodutor != null ? reprodutor.getUltimoRelatorio() : null;
+        btnRelatorioFidelidade.setEnabled(relatorio != null);
+        if (relatorio != null) {
+            adicionarLog("Fidelidade: " + relatorio.resumo());
+        }
+    }
+    
+    private void exportarRelatorioFidelidade() {
+        RelatorioFidelidade relatorio = reprodutor != null ? reprodutor.getUltimoRelatorio() : null;
+        if (relatorio == null) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Salvar relatório de fidelidade");
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        fileChooser.addChoosableFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Relatório HTML", "html"));
+        fileChooser.addChoosableFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Planilha CSV (uma linha por ação)", "csv"));
+        fileChooser.setSelectedFile(new File("fidelidade_" + 
+            java.time.LocalDateTime.now().format(
+                java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))));
+        
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            String extensao = ((javax.swing.filechooser.FileNameExtensionFilter) fileChooser.getFileFilter())
+                .getExtensions()[0];
+            String nomeArquivo = fileChooser.getSelectedFile().getAbsolutePath();
+            if (!nomeArquivo.toLowerCase().endsWith("." + extensao)) {
+                nomeArquivo += "." + extensao;
+            }
+            try {
+                if (extensao.equals("csv")) {
+                    relatorio.exportarCSV(java.nio.file.Paths.get(nomeArquivo));
+                } else {
+                    relatorio.exportarHTML(java.nio.file.Paths.get(nomeArquivo));
+                }
+                adicionarLog("Relatório de fidelidade salvo: " + nomeArquivo);
+            } catch (Exception e) {
+                adicionarLog("ERRO ao salvar relatório: " + e.getMessage());
+                JOptionPane.showMessageDialog(this, 
+                    "Erro ao salvar relatório:\n" + e.getMessage(), 
+                    "Erro", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     // ===== MÉTODOS AUXILIARES =====
     
+    private static Throwable causa(Throwable erro) {
+        while (erro instanceof CompletionException && erro.getCause() != null) {
+            erro = erro.getCause();
+        }
+        return erro;
+    }
+    
+    private JPanel criarPainelTabela() {
+        modeloTabela = new ModeloTabelaAcoes();
+        tabelaAcoes = new JTable(modeloTabela);
+        tabelaAcoes.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        tabelaAcoes.setFillsViewportHeight(true);
+        tabelaAcoes.setAutoCreateRowSorter(false);
+        ordenadorTabela = new TableRowSorter<>(modeloTabela);
+        tabelaAcoes.setRowSorter(ordenadorTabela);
+        
+        JPanel painelFiltro = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        cmbFiltroTipo = new JComboBox<>();
+        cmbFiltroTipo.addItem(FILTRO_TODOS);
+        for (Acao.TipoAcao tipo : Acao.TipoAcao.values()) {
+            cmbFiltroTipo.addItem(tipo);
+        }
+        txtFiltroDetalhes = new JTextField(20);
+        painelFiltro.add(new JLabel("Tipo:"));
+        painelFiltro.add(cmbFiltroTipo);
+        painelFiltro.add(new JLabel("Detalhes contém:"));
+        painelFiltro.add(txtFiltroDetalhes);
+        
+        cmbFiltroTipo.addActionListener(e -> aplicarFiltroTabela());
+        txtFiltroDetalhes.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { aplicarFiltroTabela(); }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) { aplicarFiltroTabela(); }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) { aplicarFiltroTabela(); }
+        });
+        
+        JPanel painel = new JPanel(new BorderLayout());
+        painel.add(painelFiltro, BorderLayout.NORTH);
+        painel.add(new JScrollPane(tabelaAcoes), BorderLayout.CENTER);
+        painel.setPreferredSize(new Dimension(700, 300));
+        return painel;
+    }
+    
+    private void aplicarFiltroTabela() {
+        Object tipoSelecionado = cmbFiltroTipo.getSelectedItem();
+        String texto = txtFiltroDetalhes.getText();
+        if (tipoSelecionado == FILTRO_TODOS && texto.isEmpty()) {
+            ordenadorTabela.setRowFilter(null);
+            return;
+        }
+        ordenadorTabela.setRowFilter(new RowFilter<ModeloTabelaAcoes, Integer>() {
+            @Override
+            public boolean include(Entry<? extends ModeloTabelaAcoes, ? extends Integer> entrada) {
+                Acao acao = entrada.getModel().getAcao(entrada.getIdentifier());
+                if (tipoSelecionado != FILTRO_TODOS && acao.getTipo() != tipoSelecionado) {
+                    return false;
+                }
+                return texto.isEmpty() || acao.getDetalhes().contains(texto);
+            }
+        });
+    }
+    
+    private void atualizarTabela() {
+        if (!novosEventos) {
+            return;
+        }
+        novosEventos = false;
+        EventosJFR.EntregaInterface evento = new EventosJFR.EntregaInterface();
+        evento.begin();
+        int antes = modeloTabela.getRowCount();
+        evento.fila = modeloTabela.getPendentes();
+        modeloTabela.sincronizar();
+        alimentarVisualizacoes();
+        lblContadorAcoes.setText("Ações capturadas: " + modeloTabela.getRowCount());
+        evento.lote = modeloTabela.getRowCount() - antes;
+        if (evento.lote > 0 && evento.shouldCommit()) {
+            LocalDateTime maisAntiga = modeloTabela.getAcao(antes).getTimestamp();
+            evento.esperaMs = Duration.between(maisAntiga, LocalDateTime.now()).toMillis();
+        }
+        evento.commit();
+    }
+    
+    /**
+     * Entrega às visualizações incrementais as ações capturadas desde a última chamada.
+     */
+    private void alimentarVisualizacoes() {
+        int total = modeloTabela.getRowCount();
+        if (total <= acoesVisualizadas) {
+            return;
+        }
+        PiramideEventos piramide = painelLinhaTempo.getPiramide();
+        for (int i = acoesVisualizadas; i < total; i++) {
+            Acao acao = modeloTabela.getAcao(i);
+            piramide.adicionar(acao);
+            painelMapaCalor.adicionar(acao);
+        }
+        acoesVisualizadas = total;
+        painelLinhaTempo.repaint();
+        painelMapaCalor.atualizarAoVivo();
+    }
+    
     private void adicionarLog(String mensagem) {
         SwingUtilities.invokeLater(() -> {
             String timestamp = java.time.LocalTime.now().format(
                 java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss.SSS"));
             areaLog.append(String.format("[%s] %s%n", timestamp, mensagem));
+            
+            // Manter apenas as últimas MAX_LINHAS_LOG linhas (anel limitado)
+            int excedente = areaLog.getLineCount() - 1 - MAX_LINHAS_LOG;
+            if (excedente > 0) {
+                try {
+                    areaLog.replaceRange("", 0, areaLog.getLineEndOffset(excedente - 1));
+                } catch (javax.swing.text.BadLocationException e) {
+                    areaLog.setText("");
+                }
+            }
             areaLog.setCaretPosition(areaLog.getDocument().getLength());
         });
     }
     
+    private void reportarTempoInterativo(long inicioMain) {
+        long desdeMainMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioMain);
+        long desdeJvmMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        String mensagem = String.format("Interativo em %d ms (main) / %d ms (desde o início da JVM)",
+            desdeMainMs, desdeJvmMs);
+        adicionarLog(mensagem);
+    }
+    
     // ===== MÉTODO MAIN =====
     
     public static void main(String[] args) {
+        long inicioMain = System.nanoTime();
+        EXECUTOR_INICIALIZACAO.execute(Metricas::registrar);
+        
+        // --controle[=PORTA] (ou -Dmapeador.controle.porta) habilita a API local de reprodução;
+        // --sem-janela mantém apenas a API, sem a interface gráfica
+        boolean semJanela = false;
+        String portaControle = System.getProperty(ServidorControle.PROPRIEDADE_PORTA);
+        for (String arg : args) {
+            if (arg.equals("--controle")) {
+                portaControle = portaControle != null ? portaControle : "8765";
+            } else if (arg.startsWith("--controle=")) {
+                portaControle = arg.substring("--controle=".length());
+            } else if (arg.equals("--sem-janela")) {
+                semJanela = true;
+            }
+        }
+        if (portaControle != null) {
+            try {
+                ServidorControle servidor = new ServidorControle(Integer.parseInt(portaControle), new FilaReproducao());
+                servidor.iniciar();
+                System.out.println("[MapeadorAtividades] API de controle em http://127.0.0.1:"
+                    + servidor.getPorta() + "/reproducoes");
+                System.out.println("[MapeadorAtividades] Token: " + (servidor.getArquivoToken() != null
+                    ? servidor.getArquivoToken() : "$" + ServidorControle.VARIAVEL_TOKEN)
+                    + "; gravações em " + servidor.getGravacoes());
+            } catch (Exception e) {
+                System.err.println("Erro ao iniciar API de controle: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (semJanela) {
+            if (portaControle == null) {
+                System.err.println("--sem-janela requer --controle");
+                System.exit(1);
+            }
+            return; // a thread HTTP mantém o processo ativo
+        }
+        
         // Configurar Look and Feel
         try {
             UIManager.setLookAndFeel(UIManager.getLookAndFeel());
@@ -477,10 +974,17 @@ public class MapeadorAtividades extends JFrame implements
         SwingUtilities.invokeLater(() -> {
             try {
                 MapeadorAtividades app = new MapeadorAtividades();
+                app.addWindowListener(new java.awt.event.WindowAdapter() {
+                    @Override
+                    public void windowOpened(java.awt.event.WindowEvent e) {
+                        // Executa após a primeira pintura já enfileirada
+                        SwingUtilities.invokeLater(() -> app.reportarTempoInterativo(inicioMain));
+                    }
+                });
                 app.setVisible(true);
                 
-                // Mostrar instruções iniciais
-                JOptionPane.showMessageDialog(app,
+                // Mostrar instruções iniciais (não modal, para não travar a janela)
+                JOptionPane painelBoasVindas = new JOptionPane(
                     "🎯 MapeadorAtividades - Sistema de Captura e Reprodução\n\n" +
                     "📋 INSTRUÇÕES:\n" +
                     "1. Clique em 'Iniciar Gravação' para capturar ações\n" +
@@ -492,8 +996,10 @@ public class MapeadorAtividades extends JFrame implements
                     "• O sistema captura TODOS os eventos globalmente\n" +
                     "• Durante a reprodução, não interfira no mouse/teclado\n" +
                     "• Use ESC para interromper gravações se necessário",
-                    "Bem-vindo ao MapeadorAtividades", 
                     JOptionPane.INFORMATION_MESSAGE);
+                JDialog dialogoBoasVindas = painelBoasVindas.createDialog(app, "Bem-vindo ao MapeadorAtividades");
+                dialogoBoasVindas.setModal(false);
+                dialogoBoasVindas.setVisible(true);
                     
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(null, 
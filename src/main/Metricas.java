@@ -0,0 +1,266 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import main.jmx.MetricasMXBean;
+
+/**
+ * Contadores e medidores da sessão. O caminho quente (callback do hook e
+ * laço de reprodução) só incrementa LongAdders e posições do histograma,
+ * sem travas nem alocação; taxas e percentis são calculados na leitura.
+ */
+final class Metricas implements MetricasMXBean {
+
+    static final String NOME_JMX = "main:type=MapeadorAtividades";
+
+    // Histograma de erro de agendamento: 1 ms por faixa até 2 s, e uma faixa de excesso
+    private static final int FAIXAS_HISTOGRAMA = 2048;
+    private static final long JANELA_TAXA_MIN_NS = 1_000_000_000L;
+
+    private static final Acao.TipoAcao[] TIPOS = Acao.TipoAcao.values();
+
+    static final Metricas INSTANCIA = new Metricas();
+
+    private final LongAdder[] capturadas = new LongAdder[TIPOS.length];
+    private final LongAdder movimentosDescartados = new LongAdder();
+    private final LongAdder repeticoesDescartadas = new LongAdder();
+    private final LongAdder eventosPerdidos = new LongAdder();
+
+    // Medidores de uma única reprodução: ReprodutorEventos só deixa uma correr
+    // por vez no processo (interface, FilaReproducao e lote), então não há
+    // duas reproduções escrevendo aqui ao mesmo tempo
+    private volatile boolean reproduzindo;
+    private volatile int indiceReproducao;
+    private volatile int totalReproducao;
+    private volatile long atrasoReproducaoMs;
+    private final LongAdder passosReproduzidos = new LongAdder();
+    private final AtomicLongArray histogramaErro = new AtomicLongArray(FAIXAS_HISTOGRAMA + 1);
+    private volatile long erroMaximoUs;
+
+    // Última leitura, para calcular a taxa por segundo entre leituras
+    private long[] ultimaLeitura = new long[TIPOS.length];
+    private long ultimaLeituraNs = System.nanoTime();
+    private double[] ultimaTaxa = new double[TIPOS.length];
+
+    private Metricas() {
+        for (int i = 0; i < capturadas.length; i++) {
+            capturadas[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra o MBean no servidor da plataforma. Chamado fora da EDT, pois
+     * a primeira consulta ao servidor JMX custa dezenas de milissegundos.
+     */
+    static void registrar() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName(NOME_JMX);
+            if (!servidor.isRegistered(nome)) {
+                servidor.registerMBean(new StandardMBean(INSTANCIA, MetricasMXBean.class, true), nome);
+            }
+        } catch (Exception e) {
+            System.err.println("[Metricas] Falha ao registrar MBean: " + e.getMessage());
+        }
+    }
+
+    // ===== REGISTRO (CAMINHO QUENTE) =====
+
+    void acaoCapturada(Acao.TipoAcao tipo) {
+        capturadas[tipo.ordinal()].increment();
+    }
+
+    void movimentoDescartado() {
+        movimentosDescartados.increment();
+    }
+
+    void repeticaoDescartada() {
+        repeticoesDescartadas.increment();
+    }
+
+    void eventoPerdido() {
+        eventosPerdidos.increment();
+    }
+
+    /**
+     * Chamado por ReprodutorEventos já com a vez de usar mouse e teclado.
+     */
+    void reproducaoIniciada(int total) {
+        if (reproduzindo) {
+            throw new IllegalStateException("Reprodução já em andamento");
+        }
+        totalReproducao = total;
+        indiceReproducao = 0;
+        atrasoReproducaoMs = 0;
+        reproduzindo = true;
+    }
+
+    /**
+     * @param erroAgendamentoNs intervalo real entre o início deste passo e o
+     *        do anterior, menos o delay planejado
+     */
+    void passoReproduzido(int indice, long atrasoMs, long erroAgendamentoNs) {
+        indiceReproducao = indice;
+        atrasoReproducaoMs = atrasoMs;
+        passosReproduzidos.increment();
+        long erroUs = Math.max(0, erroAgendamentoNs / 1_000);
+        int faixa = (int) Math.min(FAIXAS_HISTOGRAMA, erroUs / 1_000);
+        histogramaErro.incrementAndGet(faixa);
+        if (erroUs > erroMaximoUs) {
+            erroMaximoUs = erroUs; // corrida benigna: é só um indicador
+        }
+    }
+
+    void reproducaoFinalizada() {
+        reproduzindo = false;
+    }
+
+    // ===== LEITURA (JMX) =====
+
+    @Override
+    public Map<String, Long> getCapturadasPorTipo() {
+        Map<String, Long> mapa = new LinkedHashMap<>();
+        for (Acao.TipoAcao tipo : TIPOS) {
+            mapa.put(tipo.name(), capturadas[tipo.ordinal()].sum());
+        }
+        return mapa;
+    }
+
+    /**
+     * Taxa por tipo entre a leitura anterior e esta. Leituras a menos de 1 s
+     * da anterior devolvem a última taxa calculada.
+     */
+    @Override
+    public synchronized Map<String, Double> getCapturadasPorSegundo() {
+        long agora = System.nanoTime();
+        long decorrido = agora - ultimaLeituraNs;
+        if (decorrido >= JANELA_TAXA_MIN_NS) {
+            for (int i = 0; i < TIPOS.length; i++) {
+                long atual = capturadas[i].sum();
+                ultimaTaxa[i] = (atual - ultimaLeitura[i]) * 1e9 / decorrido;
+                ultimaLeitura[i] = atual;
+            }
+            ultimaLeituraNs = agora;
+        }
+        Map<String, Double> mapa = new LinkedHashMap<>();
+        for (Acao.TipoAcao tipo : TIPOS) {
+            mapa.put(tipo.name(), ultimaTaxa[tipo.ordinal()]);
+        }
+        return mapa;
+    }
+
+    @Override
+    public long getCapturadasTotal() {
+        long total = 0;
+        for (LongAdder contador : capturadas) {
+            total += contador.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getMovimentosDescartados() {
+        return movimentosDescartados.sum();
+    }
+
+    @Override
+    public long getRepeticoesDescartadas() {
+        return repeticoesDescartadas.sum();
+    }
+
+    @Override
+    public long getEventosPerdidos() {
+        return eventosPerdidos.sum();
+    }
+
+    @Override
+    public boolean isReproduzindo() {
+        return reproduzindo;
+    }
+
+    @Override
+    public int getIndiceReproducao() {
+        return indiceReproducao;
+    }
+
+    @Override
+    public int getTotalReproducao() {
+        return totalReproducao;
+    }
+
+    @Override
+    public long getAtrasoReproducaoMs() {
+        return atrasoReproducaoMs;
+    }
+
+    @Override
+    public long getPassosReproduzidos() {
+        return passosReproduzidos.sum();
+    }
+
+    @Override
+    public double getErroAgendamentoP50Ms() {
+        return percentil(0.50);
+    }
+
+    @Override
+    public double getErroAgendamentoP99Ms() {
+        return percentil(0.99);
+    }
+
+    @Override
+    public double getErroAgendamentoMaximoMs() {
+        return erroMaximoUs / 1000.0;
+    }
+
+    /**
+     * Percentil pelo limite superior da faixa (precisão de 1 ms). A faixa de
+     * excesso devolve o máximo observado.
+     */
+    private double percentil(double fracao) {
+        long[] contagens = new long[histogramaErro.length()];
+        long total = 0;
+        for (int i = 0; i < contagens.length; i++) {
+            contagens[i] = histogramaErro.get(i);
+            total += contagens[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = (long) Math.ceil(total * fracao);
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS_HISTOGRAMA; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                return i + 1;
+            }
+        }
+        return getErroAgendamentoMaximoMs();
+    }
+
+    @Override
+    public synchronized void zerar() {
+        for (LongAdder contador : capturadas) {
+            contador.reset();
+        }
+        movimentosDescartados.reset();
+        repeticoesDescartadas.reset();
+        eventosPerdidos.reset();
+        passosReproduzidos.reset();
+        for (int i = 0; i < histogramaErro.length(); i++) {
+            histogramaErro.set(i, 0);
+        }
+        erroMaximoUs = 0;
+        ultimaLeitura = new long[TIPOS.length];
+        ultimaTaxa = new double[TIPOS.length];
+        ultimaLeituraNs = System.nanoTime();
+    }
+}
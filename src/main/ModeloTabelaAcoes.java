@@ -0,0 +1,117 @@
+package main;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Modelo de tabela virtualizado: as linhas são lidas sob demanda da fonte
+ * (captura em andamento ou arquivo carregado), sem copiar o histórico.
+ */
+class ModeloTabelaAcoes extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Fonte de ações com acesso aleatório e somente crescimento.
+     */
+    public interface Fonte {
+        int tamanho();
+        Acao obter(int indice);
+
+        static Fonte de(List<Acao> acoes) {
+            return new Fonte() {
+                @Override
+                public int tamanho() { return acoes.size(); }
+
+                @Override
+                public Acao obter(int indice) { return acoes.get(indice); }
+            };
+        }
+    }
+
+    private static final String[] COLUNAS = {
+        "#", "Tipo", "Detalhes", "X", "Y", "Horário", "Delay (ms)"
+    };
+
+    private static final Fonte VAZIA = Fonte.de(List.of());
+
+    private Fonte fonte = VAZIA;
+    private int linhas; // quantidade de linhas já anunciada à JTable
+
+    public void setFonte(Fonte fonte) {
+        this.fonte = fonte != null ? fonte : VAZIA;
+        this.linhas = this.fonte.tamanho();
+        fireTableDataChanged();
+    }
+
+    public void limpar() {
+        setFonte(VAZIA);
+    }
+
+    /**
+     * Anuncia à tabela as linhas acrescentadas à fonte desde a última chamada.
+     * Deve ser chamado na EDT; várias inserções são agrupadas em um único evento.
+     */
+    public void sincronizar() {
+        int total = fonte.tamanho();
+        if (total > linhas) {
+            int primeira = linhas;
+            linhas = total;
+            fireTableRowsInserted(primeira, total - 1);
+        } else if (total < linhas) {
+            linhas = total;
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Ações já disponíveis na fonte e ainda não exibidas.
+     */
+    public int getPendentes() {
+        return Math.max(0, fonte.tamanho() - linhas);
+    }
+
+    public Acao getAcao(int linha) {
+        return fonte.obter(linha);
+    }
+
+    @Override
+    public int getRowCount() {
+        return linhas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return COLUNAS[coluna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int coluna) {
+        return switch (coluna) {
+            case 0, 3, 4 -> Integer.class;
+            case 1 -> Acao.TipoAcao.class;
+            case 6 -> Long.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        Acao acao = fonte.obter(linha);
+        return switch (coluna) {
+            case 0 -> acao.getId();
+            case 1 -> acao.getTipo();
+            case 2 -> acao.getDetalhes();
+            case 3 -> acao.getX();
+            case 4 -> acao.getY();
+            case 5 -> acao.getTimestampFormatted();
+            case 6 -> acao.getDelay();
+            default -> null;
+        };
+    }
+}
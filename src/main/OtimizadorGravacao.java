@@ -0,0 +1,377 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline de etapas que removem eventos redundantes de uma gravação. Cada
+ * etapa é um filtro em fluxo, O(n), que recebe as ações uma a uma e as
+ * repassa à seguinte; nenhuma precisa da gravação inteira em memória.
+ * As ações de entrada são copiadas, então a gravação original não muda.
+ *
+ * Cada execução devolve um relatório com o que cada etapa removeu (ações e
+ * tempo); simular() executa sem produzir saída, como prévia.
+ */
+final class OtimizadorGravacao {
+
+    static final long PAUSA_MAXIMA_PADRAO_MS = 5_000;
+
+    /**
+     * Etapa do pipeline. Ao descartar uma ação, o delay dela é somado ao da
+     * ação anterior, preservando o horário de tudo que vem depois; por isso
+     * a última ação repassada fica retida até a próxima chegar.
+     */
+    abstract static class Etapa {
+        private final String nome;
+        private Consumer<Acao> proxima;
+        private Acao retida;
+        private long entrada;
+        private long saida;
+        private long tempoEntradaMs;
+        private long tempoSaidaMs;
+
+        Etapa(String nome) {
+            this.nome = nome;
+        }
+
+        String getNome() {
+            return nome;
+        }
+
+        final void aceitar(Acao acao) {
+            entrada++;
+            tempoEntradaMs += acao.getDelay();
+            processar(acao);
+        }
+
+        /**
+         * Decide o destino de cada ação: emitir, descartar ou reter para decidir depois.
+         */
+        abstract void processar(Acao acao);
+
+        /**
+         * Fim do fluxo: a etapa libera o que ainda está pendente.
+         */
+        void finalizar() {
+        }
+
+        final void encerrar() {
+            finalizar();
+            if (retida != null) {
+                repassar(retida);
+                retida = null;
+            }
+        }
+
+        final void emitir(Acao acao) {
+            if (retida != null) {
+                repassar(retida);
+            }
+            retida = acao;
+        }
+
+        final void descartar(Acao acao) {
+            if (retida != null) {
+                retida.setDelay(retida.getDelay() + acao.getDelay());
+            }
+        }
+
+        private void repassar(Acao acao) {
+            saida++;
+            tempoSaidaMs += acao.getDelay();
+            proxima.accept(acao);
+        }
+    }
+
+    // ===== ETAPAS =====
+
+    /**
+     * MOUSE_MOVE para a posição em que o mouse já está (o início de um
+     * arraste fica: é ele que pressiona o botão).
+     */
+    static final class MovimentosRepetidos extends Etapa {
+        private int x = Integer.MIN_VALUE;
+        private int y = Integer.MIN_VALUE;
+
+        MovimentosRepetidos() {
+            super("Movimentos repetidos");
+        }
+
+        @Override
+        void processar(Acao acao) {
+            boolean posiciona = acao.getTipo() == Acao.TipoAcao.MOUSE_MOVE
+                || acao.getTipo() == Acao.TipoAcao.MOUSE_CLICK || acao.getTipo() == Acao.TipoAcao.SCROLL;
+            if (!posiciona) {
+                emitir(acao);
+            } else if (acao.getTipo() == Acao.TipoAcao.MOUSE_MOVE && acao.getX() == x && acao.getY() == y
+                    && !PlanoReproducao.inicioArraste(acao)) {
+                descartar(acao);
+            } else {
+                x = acao.getX();
+                y = acao.getY();
+                emitir(acao);
+            }
+        }
+    }
+
+    /**
+     * MOUSE_MOVE imediatamente seguido de clique ou rolagem: a reprodução
+     * desses já move o mouse até a própria posição. Arrastes são mantidos.
+     */
+    static final class MovimentoAntesDoClique extends Etapa {
+        private Acao movimento;
+
+        MovimentoAntesDoClique() {
+            super("Movimento sobrescrito por clique");
+        }
+
+        @Override
+        void processar(Acao acao) {
+            if (movimento != null) {
+                boolean sobrescreve = acao.getTipo() == Acao.TipoAcao.MOUSE_CLICK
+                    || acao.getTipo() == Acao.TipoAcao.SCROLL;
+                if (sobrescreve) {
+                    descartar(movimento);
+                } else {
+                    emitir(movimento);
+                }
+                movimento = null;
+            }
+            if (acao.getTipo() == Acao.TipoAcao.MOUSE_MOVE && "MOVE".equals(acao.getDetalhes())) {
+                movimento = acao;
+            } else {
+                emitir(acao);
+            }
+        }
+
+        @Override
+        void finalizar() {
+            if (movimento != null) {
+                emitir(movimento);
+                movimento = null;
+            }
+        }
+    }
+
+    /**
+     * Pressionar e soltar só SHIFT ou CTRL, sem nenhuma tecla entre os dois.
+     * ALT, ALT GRAPH e as teclas do sistema ficam: sozinhas elas abrem menus
+     * ou o Iniciar, e a reprodução precisa repetir isso.
+     */
+    static final class ModificadoresIsolados extends Etapa {
+        private static final Set<String> MODIFICADORES = Set.of("SHIFT", "CTRL", "CONTROL");
+
+        private Acao pressionado;
+
+        ModificadoresIsolados() {
+            super("Modificadores isolados");
+        }
+
+        static boolean modificador(String detalhes) {
+            int mais = detalhes.lastIndexOf('+');
+            String tecla = mais >= 0 && mais < detalhes.length() - 1 ? detalhes.substring(mais + 1) : detalhes;
+            return MODIFICADORES.contains(tecla.toUpperCase(Locale.ROOT));
+        }
+
+        private static String base(String detalhes) {
+            return detalhes.substring(detalhes.lastIndexOf('+') + 1).toUpperCase(Locale.ROOT);
+        }
+
+        @Override
+        void processar(Acao acao) {
+            if (pressionado != null) {
+                Acao press = pressionado;
+                pressionado = null;
+                if (acao.getTipo() == Acao.TipoAcao.KEY_RELEASE && modificador(acao.getDetalhes())
+                        && base(acao.getDetalhes()).equals(base(press.getDetalhes()))) {
+                    descartar(press);
+                    descartar(acao);
+                    return;
+                }
+                emitir(press);
+            }
+            if (acao.getTipo() == Acao.TipoAcao.KEY_PRESS && modificador(acao.getDetalhes())) {
+                pressionado = acao;
+            } else {
+                emitir(acao);
+            }
+        }
+
+        @Override
+        void finalizar() {
+            if (pressionado != null) {
+                emitir(pressionado);
+                pressionado = null;
+            }
+        }
+    }
+
+    /**
+     * Aplica a PoliticaPausas a cada ação. Diferente das outras etapas, esta
+     * remove tempo de propósito.
+     */
+    static final class NormalizarPausas extends Etapa {
+        private final PoliticaPausas politica;
+
+        NormalizarPausas(PoliticaPausas politica) {
+            super("Pausas acima de " + politica.getMaximoMs() + " ms");
+            this.politica = politica;
+        }
+
+        @Override
+        void processar(Acao acao) {
+            politica.aplicar(acao);
+            emitir(acao);
+        }
+    }
+
+    /**
+     * Dobra digitação simples em blocos KEY_TYPE (ver CompactadorTeclas).
+     */
+    static final class CompactarDigitacao extends Etapa {
+        private final CompactadorTeclas.Trecho trecho = new CompactadorTeclas.Trecho(this::emitir);
+
+        CompactarDigitacao() {
+            super("Digitação compactada");
+        }
+
+        @Override
+        void processar(Acao acao) {
+            trecho.aceitar(acao);
+        }
+
+        @Override
+        void finalizar() {
+            trecho.encerrar();
+        }
+    }
+
+    // ===== PIPELINE =====
+
+    /**
+     * Resultado de uma etapa em uma execução.
+     */
+    static final class Estatistica {
+        final String etapa;
+        final long entrada;
+        final long saida;
+        final long tempoRemovidoMs;
+
+        Estatistica(Etapa etapa) {
+            this.etapa = etapa.nome;
+            this.entrada = etapa.entrada;
+            this.saida = etapa.saida;
+            this.tempoRemovidoMs = etapa.tempoEntradaMs - etapa.tempoSaidaMs;
+        }
+    }
+
+    /**
+     * Relatório de uma execução do pipeline, uma linha por etapa.
+     */
+    static final class Relatorio {
+        final List<Estatistica> etapas;
+
+        Relatorio(List<Estatistica> etapas) {
+            this.etapas = Collections.unmodifiableList(etapas);
+        }
+
+        long getEntrada() {
+            return etapas.isEmpty() ? 0 : etapas.get(0).entrada;
+        }
+
+        long getSaida() {
+            return etapas.isEmpty() ? 0 : etapas.get(etapas.size() - 1).saida;
+        }
+
+        long getTempoRemovidoMs() {
+            return etapas.stream().mapToLong(e -> e.tempoRemovidoMs).sum();
+        }
+
+        List<String> linhas() {
+            List<String> linhas = new ArrayList<>();
+            for (Estatistica e : etapas) {
+                linhas.add(String.format(Locale.ROOT, "%-34s -%d ações, -%.1f s",
+                    e.etapa, e.entrada - e.saida, e.tempoRemovidoMs / 1000.0));
+            }
+            linhas.add(String.format(Locale.ROOT, "Total: %d → %d ações, -%.1f s",
+                getEntrada(), getSaida(), getTempoRemovidoMs() / 1000.0));
+            return linhas;
+        }
+    }
+
+    /**
+     * Fábrica de etapas: cada execução usa instâncias novas, já que as
+     * etapas guardam estado do fluxo.
+     */
+    @FunctionalInterface
+    interface FabricaEtapa {
+        Etapa criar();
+    }
+
+    private final List<FabricaEtapa> fabricas = new ArrayList<>();
+
+    OtimizadorGravacao com(FabricaEtapa fabrica) {
+        fabricas.add(fabrica);
+        return this;
+    }
+
+    /**
+     * Pipeline padrão: movimentos redundantes, modificadores isolados, pausas
+     * segundo a política (null mantém as pausas) e compactação da digitação.
+     * A política guarda estado, então o pipeline deve ser executado uma vez.
+     */
+    static OtimizadorGravacao padrao(PoliticaPausas politica) {
+        OtimizadorGravacao otimizador = new OtimizadorGravacao()
+            .com(MovimentosRepetidos::new)
+            .com(MovimentoAntesDoClique::new)
+            .com(ModificadoresIsolados::new);
+        if (politica != null) {
+            otimizador.com(() -> new NormalizarPausas(politica));
+        }
+        return otimizador.com(CompactarDigitacao::new);
+    }
+
+    /**
+     * Passa as ações pelo pipeline e entrega o resultado ao destino.
+     */
+    Relatorio executar(Iterable<Acao> acoes, Consumer<Acao> destino) {
+        List<Etapa> etapas = new ArrayList<>(fabricas.size());
+        for (FabricaEtapa fabrica : fabricas) {
+            etapas.add(fabrica.criar());
+        }
+        Consumer<Acao> seguinte = destino;
+        for (int i = etapas.size() - 1; i >= 0; i--) {
+            Etapa etapa = etapas.get(i);
+            etapa.proxima = seguinte;
+            seguinte = etapa::aceitar;
+        }
+        for (Acao acao : acoes) {
+            seguinte.accept(acao.copiar());
+        }
+        for (Etapa etapa : etapas) {
+            etapa.encerrar();
+        }
+        List<Estatistica> estatisticas = new ArrayList<>(etapas.size());
+        for (Etapa etapa : etapas) {
+            estatisticas.add(new Estatistica(etapa));
+        }
+        return new Relatorio(estatisticas);
+    }
+
+    List<Acao> otimizar(List<Acao> acoes) {
+        List<Acao> saida = new ArrayList<>(acoes.size());
+        executar(acoes, saida::add);
+        return saida;
+    }
+
+    /**
+     * Prévia: calcula o relatório sem guardar a saída.
+     */
+    Relatorio simular(Iterable<Acao> acoes) {
+        return executar(acoes, acao -> { });
+    }
+}
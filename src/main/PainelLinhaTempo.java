@@ -0,0 +1,212 @@
+package main;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+/**
+ * Linha do tempo com zoom e arraste: uma faixa por tipo de ação mostrando a
+ * densidade de eventos. Lê a PiramideEventos no nível adequado ao zoom, de
+ * modo que cada repintura percorre no máximo ~2 intervalos por pixel.
+ */
+class PainelLinhaTempo extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MARGEM_ESQUERDA = 90;
+    private static final int ALTURA_EIXO = 20;
+    private static final double FATOR_ZOOM = 1.25;
+    private static final long JANELA_MINIMA_MS = 500;
+
+    private static final Color[] CORES = {
+        new Color(0xD32F2F), // MOUSE_CLICK
+        new Color(0x1976D2), // MOUSE_MOVE
+        new Color(0x388E3C), // SCROLL
+        new Color(0xF57C00), // KEY_PRESS
+        new Color(0x7B1FA2), // KEY_RELEASE
+        new Color(0x00796B)  // KEY_TYPE
+    };
+
+    private PiramideEventos piramide = new PiramideEventos();
+    private double inicioVisivelMs = 0;
+    private double janelaMs = 0; // 0 = ajustar à gravação inteira
+    private int arrasteX = -1;
+
+    public PainelLinhaTempo() {
+        setPreferredSize(new Dimension(700, 300));
+        setToolTipText("Roda do mouse: zoom | Arrastar: mover | Duplo clique: ver tudo");
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(e.getX(), e.getWheelRotation() < 0 ? 1 / FATOR_ZOOM : FATOR_ZOOM);
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                arrasteX = e.getX();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (arrasteX >= 0) {
+                    double msPorPixel = janelaAtual() / larguraGrafico();
+                    inicioVisivelMs -= (e.getX() - arrasteX) * msPorPixel;
+                    arrasteX = e.getX();
+                    limitarJanela();
+                    repaint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                arrasteX = -1;
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    janelaMs = 0;
+                    inicioVisivelMs = 0;
+                    repaint();
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    public void setPiramide(PiramideEventos piramide) {
+        this.piramide = piramide;
+        this.janelaMs = 0;
+        this.inicioVisivelMs = 0;
+        repaint();
+    }
+
+    public PiramideEventos getPiramide() {
+        return piramide;
+    }
+
+    private void zoom(int x, double fator) {
+        double msPorPixel = janelaAtual() / larguraGrafico();
+        double ancoraMs = inicioVisivelMs + Math.max(0, x - MARGEM_ESQUERDA) * msPorPixel;
+        double novaJanela = Math.max(JANELA_MINIMA_MS, janelaAtual() * fator);
+        inicioVisivelMs = ancoraMs - (ancoraMs - inicioVisivelMs) * (novaJanela / janelaAtual());
+        janelaMs = novaJanela;
+        limitarJanela();
+        repaint();
+    }
+
+    private void limitarJanela() {
+        double duracao = duracaoTotal();
+        if (janelaMs >= duracao) {
+            janelaMs = 0;
+        }
+        inicioVisivelMs = Math.max(0, Math.min(inicioVisivelMs, duracao - janelaAtual()));
+    }
+
+    private double duracaoTotal() {
+        return Math.max(JANELA_MINIMA_MS, piramide.getDuracaoMs() + piramide.getIntervaloBaseMs());
+    }
+
+    private double janelaAtual() {
+        return janelaMs > 0 ? janelaMs : duracaoTotal();
+    }
+
+    private int larguraGrafico() {
+        return Math.max(1, getWidth() - MARGEM_ESQUERDA);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+        g2.fillRect(0, 0, getWidth(), getHeight());
+
+        Acao.TipoAcao[] tipos = Acao.TipoAcao.values();
+        int largura = larguraGrafico();
+        int alturaFaixa = Math.max(10, (getHeight() - ALTURA_EIXO) / tipos.length);
+        double janela = janelaAtual();
+        double msPorPixel = janela / largura;
+
+        int nivel = piramide.nivelPara(msPorPixel);
+        long duracaoIntervalo = piramide.duracaoIntervalo(nivel);
+        int primeiro = (int) (inicioVisivelMs / duracaoIntervalo);
+        int ultimo = (int) Math.min(piramide.tamanho(nivel) - 1L,
+            (long) ((inicioVisivelMs + janela) / duracaoIntervalo));
+        // Intervalos base por intervalo do nível: normaliza a média
+        double basesPorIntervalo = (double) duracaoIntervalo / piramide.getIntervaloBaseMs();
+
+        for (int t = 0; t < tipos.length; t++) {
+            Acao.TipoAcao tipo = tipos[t];
+            int topo = t * alturaFaixa;
+            int pico = Math.max(1, piramide.picoGlobal(tipo));
+            Color cor = CORES[t % CORES.length];
+            Color corPico = new Color(cor.getRed(), cor.getGreen(), cor.getBlue(), 70);
+
+            g2.setColor(Color.GRAY);
+            g2.drawString(tipo.name(), 4, topo + alturaFaixa / 2 + 4);
+            g2.setColor(new Color(0xE0E0E0));
+            g2.drawLine(MARGEM_ESQUERDA, topo + alturaFaixa - 1, getWidth(), topo + alturaFaixa - 1);
+
+            for (int i = primeiro; i <= ultimo; i++) {
+                int soma = piramide.soma(nivel, tipo, i);
+                if (soma == 0) {
+                    continue;
+                }
+                int x0 = MARGEM_ESQUERDA + (int) ((i * duracaoIntervalo - inicioVisivelMs) / msPorPixel);
+                int x1 = MARGEM_ESQUERDA + (int) (((i + 1) * duracaoIntervalo - inicioVisivelMs) / msPorPixel);
+                int larguraBarra = Math.max(1, x1 - x0);
+
+                int alturaPico = (int) Math.ceil((alturaFaixa - 2) * (double) piramide.maximo(nivel, tipo, i) / pico);
+                g2.setColor(corPico);
+                g2.fillRect(x0, topo + alturaFaixa - 1 - alturaPico, larguraBarra, alturaPico);
+
+                double media = soma / basesPorIntervalo;
+                int alturaMedia = (int) Math.ceil((alturaFaixa - 2) * media / pico);
+                g2.setColor(cor);
+                g2.fillRect(x0, topo + alturaFaixa - 1 - alturaMedia, larguraBarra, alturaMedia);
+            }
+        }
+
+        desenharEixo(g2, tipos.length * alturaFaixa, largura, msPorPixel);
+        g2.dispose();
+    }
+
+    private void desenharEixo(Graphics2D g2, int y, int largura, double msPorPixel) {
+        g2.setColor(Color.DARK_GRAY);
+        g2.drawLine(MARGEM_ESQUERDA, y, MARGEM_ESQUERDA + largura, y);
+        double passoMs = escolherPasso(msPorPixel * 100);
+        double primeiraMarca = Math.ceil(inicioVisivelMs / passoMs) * passoMs;
+        for (double ms = primeiraMarca; ms <= inicioVisivelMs + janelaAtual(); ms += passoMs) {
+            int x = MARGEM_ESQUERDA + (int) ((ms - inicioVisivelMs) / msPorPixel);
+            g2.drawLine(x, y, x, y + 4);
+            g2.drawString(formatarTempo((long) ms), x + 2, y + 15);
+        }
+    }
+
+    private static double escolherPasso(double minimoMs) {
+        long[] passos = {100, 250, 500, 1000, 2000, 5000, 10_000, 15_000, 30_000, 60_000,
+            120_000, 300_000, 600_000, 900_000, 1_800_000, 3_600_000};
+        for (long passo : passos) {
+            if (passo >= minimoMs) {
+                return passo;
+            }
+        }
+        return Math.ceil(minimoMs / 3_600_000) * 3_600_000;
+    }
+
+    private static String formatarTempo(long ms) {
+        long segundos = ms / 1000;
+        long h = segundos / 3600;
+        long m = (segundos % 3600) / 60;
+        long s = segundos % 60;
+        if (h > 0) {
+            return String.format("%d:%02d:%02d", h, m, s);
+        }
+        return ms % 1000 == 0 ? String.format("%d:%02d", m, s) : String.format("%d:%02d.%03d", m, s, ms % 1000);
+    }
+}
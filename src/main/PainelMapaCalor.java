@@ -0,0 +1,183 @@
+package main;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Exibe o mapa de calor de cliques ou de permanência do mouse. A construção
+ * e a renderização rodam em SwingWorker; a EDT apenas incrementa a grade ao
+ * vivo e desenha a última imagem pronta.
+ */
+class PainelMapaCalor extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int RAIO_DESFOQUE = 3;
+    private static final long INTERVALO_MIN_RENDER_MS = 500;
+
+    private final JComboBox<MapaCalor.Modo> cmbModo = new JComboBox<>(MapaCalor.Modo.values());
+    private final JLabel lblSituacao = new JLabel(" ");
+    private final Dimension tela;
+    private final JComponent areaImagem;
+
+    private MapaCalor mapa;
+    private BufferedImage imagem;
+    private SwingWorker<?, ?> trabalhoAtual;
+    private boolean renderizacaoPendente;
+    private long ultimaRenderizacaoMs;
+
+    public PainelMapaCalor() {
+        super(new BorderLayout());
+        tela = GraphicsEnvironment.isHeadless()
+            ? new Dimension(1920, 1080) : Toolkit.getDefaultToolkit().getScreenSize();
+        mapa = new MapaCalor(tela.width, tela.height);
+
+        JPanel barra = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        barra.add(new JLabel("Mostrar:"));
+        barra.add(cmbModo);
+        barra.add(lblSituacao);
+        cmbModo.addActionListener(e -> renderizar());
+
+        areaImagem = new JComponent() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                desenhar((Graphics2D) g, getWidth(), getHeight());
+            }
+        };
+        add(barra, BorderLayout.NORTH);
+        add(areaImagem, BorderLayout.CENTER);
+        setPreferredSize(new Dimension(700, 300));
+    }
+
+    /**
+     * Reinicia o mapa para uma nova gravação ao vivo.
+     */
+    public void limpar() {
+        if (trabalhoAtual != null) {
+            trabalhoAtual.cancel(false);
+        }
+        mapa = new MapaCalor(tela.width, tela.height);
+        imagem = null;
+        lblSituacao.setText(" ");
+        areaImagem.repaint();
+    }
+
+    /**
+     * Acrescenta uma ação capturada à grade ao vivo (na EDT).
+     */
+    public void adicionar(Acao acao) {
+        mapa.adicionar(acao);
+    }
+
+    /**
+     * Renderiza a grade ao vivo, no máximo uma vez a cada INTERVALO_MIN_RENDER_MS.
+     */
+    public void atualizarAoVivo() {
+        if (System.currentTimeMillis() - ultimaRenderizacaoMs >= INTERVALO_MIN_RENDER_MS) {
+            renderizar();
+        }
+    }
+
+    /**
+     * Constrói o mapa de uma gravação completa fora da EDT.
+     */
+    public void carregar(List<Acao> acoes) {
+        if (trabalhoAtual != null) {
+            trabalhoAtual.cancel(false);
+        }
+        lblSituacao.setText("Processando " + acoes.size() + " ações...");
+        MapaCalor.Modo modo = (MapaCalor.Modo) cmbModo.getSelectedItem();
+        SwingWorker<BufferedImage, Void> trabalho = new SwingWorker<>() {
+            private MapaCalor construido;
+
+            @Override
+            protected BufferedImage doInBackground() {
+                construido = MapaCalor.construir(acoes, tela.width, tela.height);
+                return construido.renderizar(modo, RAIO_DESFOQUE);
+            }
+
+            @Override
+            protected void done() {
+                if (trabalhoAtual == this) {
+                    trabalhoAtual = null;
+                }
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    mapa = construido;
+                    exibir(get(), "Ações processadas: " + acoes.size());
+                } catch (Exception e) {
+                    lblSituacao.setText("Erro no mapa de calor: " + e.getMessage());
+                }
+            }
+        };
+        trabalhoAtual = trabalho;
+        trabalho.execute();
+    }
+
+    private void renderizar() {
+        if (trabalhoAtual != null) {
+            renderizacaoPendente = true;
+            return;
+        }
+        ultimaRenderizacaoMs = System.currentTimeMillis();
+        MapaCalor copia = mapa.copia(); // a EDT continua incrementando o original
+        MapaCalor.Modo modo = (MapaCalor.Modo) cmbModo.getSelectedItem();
+        SwingWorker<BufferedImage, Void> trabalho = new SwingWorker<>() {
+            @Override
+            protected BufferedImage doInBackground() {
+                return copia.renderizar(modo, RAIO_DESFOQUE);
+            }
+
+            @Override
+            protected void done() {
+                if (trabalhoAtual == this) {
+                    trabalhoAtual = null;
+                }
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    exibir(get(), null);
+                } catch (Exception e) {
+                    lblSituacao.setText("Erro no mapa de calor: " + e.getMessage());
+                }
+                if (renderizacaoPendente) {
+                    renderizacaoPendente = false;
+                    renderizar();
+                }
+            }
+        };
+        trabalhoAtual = trabalho;
+        trabalho.execute();
+    }
+
+    private void exibir(BufferedImage novaImagem, String situacao) {
+        imagem = novaImagem;
+        if (situacao != null) {
+            lblSituacao.setText(situacao);
+        }
+        areaImagem.repaint();
+    }
+
+    private void desenhar(Graphics2D g, int largura, int altura) {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, largura, altura);
+        if (imagem == null) {
+            return;
+        }
+        // Manter a proporção da tela
+        double escala = Math.min((double) largura / tela.width, (double) altura / tela.height);
+        int w = (int) (tela.width * escala);
+        int h = (int) (tela.height * escala);
+        int x = (largura - w) / 2;
+        int y = (altura - h) / 2;
+        g.setColor(new Color(0x303030));
+        g.drawRect(x, y, w - 1, h - 1);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(imagem, x, y, w, h, null);
+    }
+}
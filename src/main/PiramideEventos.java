@@ -0,0 +1,220 @@
+package main;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pirâmide de densidade de eventos por tipo, construída incrementalmente.
+ * O nível 0 conta eventos em intervalos de BUCKET_BASE_MS; cada nível acima
+ * agrupa dois intervalos do nível anterior guardando soma, mínimo e máximo.
+ * Assim qualquer zoom é desenhado com um número constante de intervalos.
+ *
+ * O nível 0 tem no máximo INTERVALOS_BASE_MAXIMO intervalos: quando a
+ * gravação passa disso, o intervalo base dobra e os pares são fundidos,
+ * mantendo a memória limitada em sessões de horas ou dias.
+ */
+class PiramideEventos {
+
+    public static final long BUCKET_BASE_MS = 50;
+    static final int INTERVALOS_BASE_MAXIMO = 1 << 16; // ~55 min a 50 ms
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final int TIPOS = Acao.TipoAcao.values().length;
+
+    private static class Nivel {
+        int[][] soma = new int[TIPOS][CAPACIDADE_INICIAL];
+        int[][] min = new int[TIPOS][CAPACIDADE_INICIAL];
+        int[][] max = new int[TIPOS][CAPACIDADE_INICIAL];
+        int tamanho;
+
+        void garantirTamanho(int novoTamanho) {
+            if (novoTamanho > soma[0].length) {
+                int capacidade = Math.max(novoTamanho, Math.min(soma[0].length * 2, INTERVALOS_BASE_MAXIMO));
+                for (int t = 0; t < TIPOS; t++) {
+                    soma[t] = Arrays.copyOf(soma[t], capacidade);
+                    min[t] = Arrays.copyOf(min[t], capacidade);
+                    max[t] = Arrays.copyOf(max[t], capacidade);
+                }
+            }
+            tamanho = Math.max(tamanho, novoTamanho);
+        }
+    }
+
+    private final List<Nivel> niveis = new ArrayList<>();
+    private LocalDateTime inicio;
+    private long intervaloBaseMs = BUCKET_BASE_MS;
+    private long duracaoMs;
+    private long total;
+
+    public PiramideEventos() {
+        niveis.add(new Nivel());
+    }
+
+    public static PiramideEventos construir(List<Acao> acoes) {
+        PiramideEventos piramide = new PiramideEventos();
+        for (Acao acao : acoes) {
+            piramide.adicionar(acao);
+        }
+        return piramide;
+    }
+
+    public void limpar() {
+        niveis.clear();
+        niveis.add(new Nivel());
+        inicio = null;
+        intervaloBaseMs = BUCKET_BASE_MS;
+        duracaoMs = 0;
+        total = 0;
+    }
+
+    public void adicionar(Acao acao) {
+        if (inicio == null) {
+            inicio = acao.getTimestamp();
+        }
+        long offset = Math.max(0, Duration.between(inicio, acao.getTimestamp()).toMillis());
+        adicionar(acao.getTipo(), offset);
+    }
+
+    public void adicionar(Acao.TipoAcao tipo, long offsetMs) {
+        int t = tipo.ordinal();
+        while (offsetMs / intervaloBaseMs >= INTERVALOS_BASE_MAXIMO) {
+            engrossarBase();
+        }
+        int indice = (int) (offsetMs / intervaloBaseMs);
+        duracaoMs = Math.max(duracaoMs, offsetMs);
+        total++;
+
+        Nivel base = niveis.get(0);
+        base.garantirTamanho(indice + 1);
+        int valor = ++base.soma[t][indice];
+        base.min[t][indice] = valor;
+        base.max[t][indice] = valor;
+
+        // Propagar para os níveis superiores até restar um único intervalo
+        int nivel = 1;
+        while (niveis.get(nivel - 1).tamanho > 1) {
+            Nivel abaixo = niveis.get(nivel - 1);
+            indice >>= 1;
+            if (nivel == niveis.size()) {
+                criarNivel(nivel); // já reflete o evento atual
+            } else {
+                Nivel atual = niveis.get(nivel);
+                atual.garantirTamanho((abaixo.tamanho + 1) >> 1);
+                atual.soma[t][indice]++;
+                atual.max[t][indice] = Math.max(atual.max[t][indice], valor);
+                atual.min[t][indice] = minimoFilhos(abaixo, t, indice);
+            }
+            nivel++;
+        }
+    }
+
+    private void criarNivel(int nivel) {
+        // Reconstroi o novo nível a partir do anterior (ocorre O(log n) vezes)
+        Nivel abaixo = niveis.get(nivel - 1);
+        Nivel novo = new Nivel();
+        novo.garantirTamanho((abaixo.tamanho + 1) >> 1);
+        for (int t = 0; t < TIPOS; t++) {
+            for (int i = 0; i < novo.tamanho; i++) {
+                int esq = 2 * i;
+                int dir = esq + 1;
+                int somaDir = dir < abaixo.tamanho ? abaixo.soma[t][dir] : 0;
+                int maxDir = dir < abaixo.tamanho ? abaixo.max[t][dir] : 0;
+                novo.soma[t][i] = abaixo.soma[t][esq] + somaDir;
+                novo.max[t][i] = Math.max(abaixo.max[t][esq], maxDir);
+                novo.min[t][i] = minimoFilhos(abaixo, t, i);
+            }
+        }
+        niveis.add(novo);
+    }
+
+    /**
+     * Dobra o intervalo base: cada par do nível 0 vira um intervalo, e os
+     * níveis acima são refeitos a partir dele (ocorre O(log duração) vezes).
+     */
+    private void engrossarBase() {
+        Nivel antiga = niveis.get(0);
+        Nivel nova = new Nivel();
+        nova.garantirTamanho((antiga.tamanho + 1) >> 1);
+        for (int t = 0; t < TIPOS; t++) {
+            for (int i = 0; i < nova.tamanho; i++) {
+                int esq = 2 * i;
+                int dir = esq + 1;
+                int valor = antiga.soma[t][esq] + (dir < antiga.tamanho ? antiga.soma[t][dir] : 0);
+                nova.soma[t][i] = valor;
+                nova.min[t][i] = valor;
+                nova.max[t][i] = valor;
+            }
+        }
+        intervaloBaseMs *= 2;
+        niveis.clear();
+        niveis.add(nova);
+        while (niveis.get(niveis.size() - 1).tamanho > 1) {
+            criarNivel(niveis.size());
+        }
+    }
+
+    private static int minimoFilhos(Nivel abaixo, int t, int indice) {
+        int esq = 2 * indice;
+        int dir = esq + 1;
+        int minDir = dir < abaixo.tamanho ? abaixo.min[t][dir] : 0;
+        return Math.min(abaixo.min[t][esq], minDir);
+    }
+
+    // ===== CONSULTAS =====
+
+    /**
+     * Menor nível cujo intervalo cobre pelo menos msPorColuna milissegundos.
+     */
+    public int nivelPara(double msPorColuna) {
+        int nivel = 0;
+        while (nivel < niveis.size() - 1 && duracaoIntervalo(nivel) < msPorColuna) {
+            nivel++;
+        }
+        return nivel;
+    }
+
+    public long duracaoIntervalo(int nivel) {
+        return intervaloBaseMs << nivel;
+    }
+
+    public int tamanho(int nivel) {
+        return niveis.get(nivel).tamanho;
+    }
+
+    public int soma(int nivel, Acao.TipoAcao tipo, int indice) {
+        Nivel n = niveis.get(nivel);
+        return indice < n.tamanho ? n.soma[tipo.ordinal()][indice] : 0;
+    }
+
+    public int minimo(int nivel, Acao.TipoAcao tipo, int indice) {
+        Nivel n = niveis.get(nivel);
+        return indice < n.tamanho ? n.min[tipo.ordinal()][indice] : 0;
+    }
+
+    public int maximo(int nivel, Acao.TipoAcao tipo, int indice) {
+        Nivel n = niveis.get(nivel);
+        return indice < n.tamanho ? n.max[tipo.ordinal()][indice] : 0;
+    }
+
+    /**
+     * Maior contagem em um intervalo base para o tipo, em toda a gravação.
+     */
+    public int picoGlobal(Acao.TipoAcao tipo) {
+        Nivel topo = niveis.get(niveis.size() - 1);
+        int pico = 0;
+        for (int i = 0; i < topo.tamanho; i++) {
+            pico = Math.max(pico, topo.max[tipo.ordinal()][i]);
+        }
+        return pico;
+    }
+
+    public long getIntervaloBaseMs() { return intervaloBaseMs; }
+
+    public long getDuracaoMs() { return duracaoMs; }
+
+    public long getTotal() { return total; }
+
+    public LocalDateTime getInicio() { return inicio; }
+}
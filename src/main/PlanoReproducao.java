@@ -0,0 +1,284 @@
+package main;
+
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plano de reprodução pré-compilado: os detalhes textuais de cada ação
+ * (botão, cliques, direção, teclas e modificadores) são interpretados uma
+ * única vez, e a reprodução apenas percorre os passos já resolvidos.
+ * Planos são imutáveis e podem ser reutilizados entre execuções.
+ */
+final class PlanoReproducao {
+
+    /**
+     * Ação já resolvida para chamadas diretas ao Robot.
+     */
+    static final class Passo {
+        final Acao acao;
+        final Acao.TipoAcao tipo;
+        final long delay;
+        final int x;
+        final int y;
+        final int mascaraBotao;   // MOUSE_CLICK e início de arraste
+        final int repeticoes;     // cliques (MOUSE_CLICK) ou passos (SCROLL)
+        final int direcao;        // SCROLL: -1 cima, 1 baixo
+        final int[] modificadores; // KEY_PRESS/KEY_RELEASE: VK_CONTROL, VK_ALT, VK_SHIFT, VK_META
+        final int tecla;          // keyCode principal ou -1
+        final int[] digitacao;    // KEY_TYPE: keyCode de cada caractere, com MARCA_SHIFT nas maiúsculas
+        final boolean digitavel;  // KEY_TYPE: todos os caracteres têm tecla própria (ASCII)
+
+        private Passo(Acao acao, int mascaraBotao, int repeticoes, int direcao, int[] modificadores, int tecla) {
+            this(acao, mascaraBotao, repeticoes, direcao, modificadores, tecla, SEM_MODIFICADORES);
+        }
+
+        private Passo(Acao acao, int mascaraBotao, int repeticoes, int direcao, int[] modificadores, int tecla,
+                      int[] digitacao) {
+            this.acao = acao;
+            this.tipo = acao.getTipo();
+            this.delay = acao.getDelay();
+            this.x = acao.getX();
+            this.y = acao.getY();
+            this.mascaraBotao = mascaraBotao;
+            this.repeticoes = repeticoes;
+            this.direcao = direcao;
+            this.modificadores = modificadores;
+            this.tecla = tecla;
+            this.digitacao = digitacao;
+            this.digitavel = digitacao.length == acao.getDetalhes().length() && ascii(acao.getDetalhes());
+        }
+    }
+
+    static final int MARCA_SHIFT = 1 << 16;
+    /** Detalhes do MOUSE_MOVE que pressiona o botão no início de um arraste, seguido do nome do botão. */
+    static final String INICIO_ARRASTE = "DRAG_INICIO_";
+    private static final int[] SEM_MODIFICADORES = new int[0];
+
+    private final Passo[] passos;
+    private final long duracaoPlanejadaMs;
+
+    private PlanoReproducao(Passo[] passos) {
+        this.passos = passos;
+        long total = 0;
+        for (Passo passo : passos) {
+            total += Math.max(0, passo.delay);
+        }
+        this.duracaoPlanejadaMs = total;
+    }
+
+    public static PlanoReproducao compilar(List<Acao> acoes) {
+        Passo[] passos = new Passo[acoes.size()];
+        int i = 0;
+        for (Acao acao : acoes) {
+            passos[i++] = compilar(acao);
+        }
+        return new PlanoReproducao(passos);
+    }
+
+    static Passo compilar(Acao acao) {
+        return switch (acao.getTipo()) {
+            case MOUSE_CLICK -> {
+                String[] partes = acao.getDetalhes().split("_");
+                yield new Passo(acao, mascaraBotao(partes[0]), Integer.parseInt(partes[1]), 0, SEM_MODIFICADORES, -1);
+            }
+            case SCROLL -> {
+                String[] partes = acao.getDetalhes().split("_");
+                int direcao = partes[0].equals("CIMA") ? -1 : 1;
+                yield new Passo(acao, 0, Integer.parseInt(partes[1]), direcao, SEM_MODIFICADORES, -1);
+            }
+            case KEY_PRESS, KEY_RELEASE -> compilarTecla(acao);
+            case KEY_TYPE -> new Passo(acao, 0, 0, 0, SEM_MODIFICADORES, -1, compilarTexto(acao.getDetalhes()));
+            case MOUSE_MOVE -> new Passo(acao, inicioArraste(acao)
+                ? mascaraBotao(acao.getDetalhes().substring(INICIO_ARRASTE.length())) : 0,
+                0, 0, SEM_MODIFICADORES, -1);
+        };
+    }
+
+    static boolean inicioArraste(Acao acao) {
+        return acao.getTipo() == Acao.TipoAcao.MOUSE_MOVE && acao.getDetalhes().startsWith(INICIO_ARRASTE);
+    }
+
+    private static int mascaraBotao(String botao) {
+        return switch (botao) {
+            case "ESQUERDO" -> InputEvent.BUTTON1_DOWN_MASK;
+            case "DIREITO" -> InputEvent.BUTTON3_DOWN_MASK;
+            case "MEIO" -> InputEvent.BUTTON2_DOWN_MASK;
+            default -> InputEvent.BUTTON1_DOWN_MASK;
+        };
+    }
+
+    /**
+     * Resolve cada caractere do bloco de texto para o keyCode da tecla;
+     * maiúsculas levam MARCA_SHIFT. Caracteres sem tecla são ignorados.
+     */
+    private static int[] compilarTexto(String texto) {
+        int[] codigos = new int[texto.length()];
+        int n = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            int keyCode = getKeyCode(String.valueOf(c));
+            if (keyCode == -1 || keyCode == KeyEvent.VK_UNDEFINED) {
+                continue;
+            }
+            codigos[n++] = Character.isUpperCase(c) ? keyCode | MARCA_SHIFT : keyCode;
+        }
+        return n == codigos.length ? codigos : Arrays.copyOf(codigos, n);
+    }
+
+    private static boolean ascii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0x7E) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Passo compilarTecla(Acao acao) {
+        String detalhes = acao.getDetalhes();
+        String[] partes = detalhes.split("\\+");
+        
+        // Processar modificadores
+        boolean ctrl = false, alt = false, shift = false, meta = false;
+        String teclaFinal = detalhes;
+        
+        for (String parte : partes) {
+            switch (parte) {
+                case "CTRL" -> ctrl = true;
+                case "ALT" -> alt = true;
+                case "SHIFT" -> shift = true;
+                case "META" -> meta = true;
+                default -> teclaFinal = parte;
+            }
+        }
+        
+        List<Integer> modificadores = new ArrayList<>(4);
+        if (ctrl) modificadores.add(KeyEvent.VK_CONTROL);
+        if (alt) modificadores.add(KeyEvent.VK_ALT);
+        if (shift) modificadores.add(KeyEvent.VK_SHIFT);
+        if (meta) modificadores.add(KeyEvent.VK_META);
+        int[] codigos = modificadores.isEmpty() ? SEM_MODIFICADORES
+            : modificadores.stream().mapToInt(Integer::intValue).toArray();
+        return new Passo(acao, 0, 0, 0, codigos, getKeyCode(teclaFinal));
+    }
+    
+    /**
+     * Converte string da tecla para keyCode do Java AWT
+     */
+    static int getKeyCode(String tecla) {
+        // Para caracteres únicos, usar o próprio caractere
+        if (tecla.length() == 1) {
+            char c = tecla.charAt(0);
+            
+            // Letras (converter para maiúscula para o keyCode)
+            if (c >= 'a' && c <= 'z') {
+                return KeyEvent.VK_A + (c - 'a');
+            }
+            if (c >= 'A' && c <= 'Z') {
+                return KeyEvent.VK_A + (c - 'A');
+            }
+            
+            // Números
+            if (c >= '0' && c <= '9') {
+                return KeyEvent.VK_0 + (c - '0');
+            }
+            
+            // Símbolos e caracteres especiais
+            switch (c) {
+                case ' ' -> { return KeyEvent.VK_SPACE; }
+                case '-' -> { return KeyEvent.VK_MINUS; }
+                case '=' -> { return KeyEvent.VK_EQUALS; }
+                case '[' -> { return KeyEvent.VK_OPEN_BRACKET; }
+                case ']' -> { return KeyEvent.VK_CLOSE_BRACKET; }
+                case '\\' -> { return KeyEvent.VK_BACK_SLASH; }
+                case ';' -> { return KeyEvent.VK_SEMICOLON; }
+                case '\'' -> { return KeyEvent.VK_QUOTE; }
+                case ',' -> { return KeyEvent.VK_COMMA; }
+                case '.' -> { return KeyEvent.VK_PERIOD; }
+                case '/' -> { return KeyEvent.VK_SLASH; }
+                case '`' -> { return KeyEvent.VK_BACK_QUOTE; }
+                case '*' -> { return KeyEvent.VK_MULTIPLY; }
+                case '+' -> { return KeyEvent.VK_PLUS; }
+                
+                // Caracteres acentuados e especiais do português
+                case 'ç' -> { return KeyEvent.VK_C; } // Será tratado com combinação
+                case 'Ç' -> { return KeyEvent.VK_C; }
+                case 'á', 'à', 'ã', 'â' -> { return KeyEvent.VK_A; }
+                case 'Á', 'À', 'Ã', 'Â' -> { return KeyEvent.VK_A; }
+                case 'é', 'ê' -> { return KeyEvent.VK_E; }
+                case 'É', 'Ê' -> { return KeyEvent.VK_E; }
+                case 'í' -> { return KeyEvent.VK_I; }
+                case 'Í' -> { return KeyEvent.VK_I; }
+                case 'ó', 'ô', 'õ' -> { return KeyEvent.VK_O; }
+                case 'Ó', 'Ô', 'Õ' -> { return KeyEvent.VK_O; }
+                case 'ú' -> { return KeyEvent.VK_U; }
+                case 'Ú' -> { return KeyEvent.VK_U; }
+                case '~' -> { return KeyEvent.VK_DEAD_TILDE; }
+                case '?' -> { return KeyEvent.VK_SLASH; } // Com shift
+                default -> { return KeyEvent.getExtendedKeyCodeForChar(c); }
+            }
+        }
+        
+        // Para nomes de teclas especiais
+        return switch (tecla.toUpperCase()) {
+            case "ENTER" -> KeyEvent.VK_ENTER;
+            case "TAB" -> KeyEvent.VK_TAB;
+            case "ESCAPE" -> KeyEvent.VK_ESCAPE;
+            case "BACKSPACE" -> KeyEvent.VK_BACK_SPACE;
+            case "DELETE" -> KeyEvent.VK_DELETE;
+            case "INSERT" -> KeyEvent.VK_INSERT;
+            case "HOME" -> KeyEvent.VK_HOME;
+            case "END" -> KeyEvent.VK_END;
+            case "PAGE_UP" -> KeyEvent.VK_PAGE_UP;
+            case "PAGE_DOWN" -> KeyEvent.VK_PAGE_DOWN;
+            case "UP" -> KeyEvent.VK_UP;
+            case "DOWN" -> KeyEvent.VK_DOWN;
+            case "LEFT" -> KeyEvent.VK_LEFT;
+            case "RIGHT" -> KeyEvent.VK_RIGHT;
+            case "F1" -> KeyEvent.VK_F1;
+            case "F2" -> KeyEvent.VK_F2;
+            case "F3" -> KeyEvent.VK_F3;
+            case "F4" -> KeyEvent.VK_F4;
+            case "F5" -> KeyEvent.VK_F5;
+            case "F6" -> KeyEvent.VK_F6;
+            case "F7" -> KeyEvent.VK_F7;
+            case "F8" -> KeyEvent.VK_F8;
+            case "F9" -> KeyEvent.VK_F9;
+            case "F10" -> KeyEvent.VK_F10;
+            case "F11" -> KeyEvent.VK_F11;
+            case "F12" -> KeyEvent.VK_F12;
+            case "CAPS_LOCK" -> KeyEvent.VK_CAPS_LOCK;
+            case "NUM_LOCK" -> KeyEvent.VK_NUM_LOCK;
+            case "SCROLL_LOCK" -> KeyEvent.VK_SCROLL_LOCK;
+            case "PRINT_SCREEN" -> KeyEvent.VK_PRINTSCREEN;
+            case "PAUSE" -> KeyEvent.VK_PAUSE;
+            default -> -1;
+        };
+    }
+
+    // ===== ACESSO =====
+
+    public int tamanho() {
+        return passos.length;
+    }
+
+    Passo getPasso(int indice) {
+        return passos[indice];
+    }
+
+    public long getDuracaoPlanejadaMs() {
+        return duracaoPlanejadaMs;
+    }
+
+    public List<Acao> getAcoes() {
+        List<Acao> acoes = new ArrayList<>(passos.length);
+        for (Passo passo : passos) {
+            acoes.add(passo.acao);
+        }
+        return Collections.unmodifiableList(acoes);
+    }
+}
@@ -0,0 +1,174 @@
+package main;
+
+import java.util.Locale;
+
+/**
+ * Política para pausas longas (operador atendeu o telefone, saiu da mesa):
+ * nenhuma pausa passa de maximoMs. No modelo MEDIANA_POR_TIPO, a pausa longa
+ * é trocada pela mediana das pausas normais daquele tipo de ação, em vez de
+ * ficar exatamente no limite.
+ *
+ * As medianas vêm de um histograma de 1 ms por faixa, alimentado pelas
+ * próprias pausas conforme passam (ou antes, por calibrar), então a política
+ * funciona em fluxo: na captura, na exportação ou durante a reprodução.
+ * Cada instância guarda estado; use uma por gravação.
+ *
+ * Configuração: -Dmapeador.pausas.maximoMs=5000 (sem ela, nenhuma política)
+ * e -Dmapeador.pausas.modelo=limite (padrão) ou mediana.
+ */
+final class PoliticaPausas {
+
+    enum Modelo { LIMITE, MEDIANA_POR_TIPO }
+
+    private static final int FAIXAS_MAXIMAS = 60_000;
+    private static final int RECALCULO_A_CADA = 256;
+
+    private final long maximoMs;
+    private final Modelo modelo;
+    private final long[][] histograma;
+    private final long[] amostras;
+    private final long[] mediana;
+    private final long[] desdeRecalculo;
+    private boolean calibrada;
+
+    private long pausasAjustadas;
+    private long tempoEconomizadoMs;
+
+    PoliticaPausas(long maximoMs, Modelo modelo) {
+        if (maximoMs <= 0) {
+            throw new IllegalArgumentException("Pausa máxima deve ser positiva: " + maximoMs);
+        }
+        this.maximoMs = maximoMs;
+        this.modelo = modelo;
+        int tipos = Acao.TipoAcao.values().length;
+        int faixas = (int) Math.min(maximoMs + 1, FAIXAS_MAXIMAS);
+        this.histograma = modelo == Modelo.MEDIANA_POR_TIPO ? new long[tipos][faixas] : null;
+        this.amostras = new long[tipos];
+        this.mediana = new long[tipos];
+        this.desdeRecalculo = new long[tipos];
+        for (int t = 0; t < tipos; t++) {
+            mediana[t] = maximoMs;
+        }
+    }
+
+    /**
+     * Política definida pelas propriedades do sistema, ou null se
+     * -Dmapeador.pausas.maximoMs não foi informado.
+     */
+    static PoliticaPausas doSistema() {
+        long maximo = Long.getLong("mapeador.pausas.maximoMs", 0);
+        return maximo > 0 ? new PoliticaPausas(maximo, modeloDoSistema()) : null;
+    }
+
+    /**
+     * Como doSistema(), mas com um limite padrão quando nada foi configurado.
+     */
+    static PoliticaPausas doSistema(long maximoPadraoMs) {
+        PoliticaPausas politica = doSistema();
+        return politica != null ? politica : new PoliticaPausas(maximoPadraoMs, modeloDoSistema());
+    }
+
+    private static Modelo modeloDoSistema() {
+        String modelo = System.getProperty("mapeador.pausas.modelo", "limite");
+        return modelo.equalsIgnoreCase("mediana") ? Modelo.MEDIANA_POR_TIPO : Modelo.LIMITE;
+    }
+
+    public long getMaximoMs() {
+        return maximoMs;
+    }
+
+    public Modelo getModelo() {
+        return modelo;
+    }
+
+    /**
+     * Pré-alimenta as medianas com a gravação inteira, para que as primeiras
+     * pausas longas já usem a mediana final. Opcional; não altera as ações.
+     */
+    PoliticaPausas calibrar(Iterable<Acao> acoes) {
+        if (histograma != null) {
+            for (Acao acao : acoes) {
+                observar(acao.getTipo().ordinal(), acao.getDelay());
+            }
+            for (int t = 0; t < mediana.length; t++) {
+                recalcular(t);
+            }
+            calibrada = true;
+        }
+        return this;
+    }
+
+    // ===== APLICAÇÃO =====
+
+    /**
+     * Pausa a usar no lugar de {@code delayMs} para uma ação do tipo dado.
+     * Registra o tempo economizado.
+     */
+    long ajustar(Acao.TipoAcao tipo, long delayMs) {
+        int t = tipo.ordinal();
+        if (delayMs <= maximoMs) {
+            if (histograma != null && !calibrada) {
+                observar(t, delayMs);
+            }
+            return delayMs;
+        }
+        long novo = modelo == Modelo.MEDIANA_POR_TIPO && amostras[t] > 0 ? Math.min(mediana[t], maximoMs) : maximoMs;
+        pausasAjustadas++;
+        tempoEconomizadoMs += delayMs - novo;
+        return novo;
+    }
+
+    /**
+     * Ajusta o delay da própria ação.
+     */
+    void aplicar(Acao acao) {
+        long ajustado = ajustar(acao.getTipo(), acao.getDelay());
+        if (ajustado != acao.getDelay()) {
+            acao.setDelay(ajustado);
+        }
+    }
+
+    private void observar(int tipo, long delayMs) {
+        if (delayMs < 0 || delayMs > maximoMs) {
+            return; // pausas longas não entram no modelo
+        }
+        histograma[tipo][(int) Math.min(delayMs, histograma[tipo].length - 1)]++;
+        amostras[tipo]++;
+        if (++desdeRecalculo[tipo] >= RECALCULO_A_CADA || amostras[tipo] < RECALCULO_A_CADA) {
+            recalcular(tipo);
+        }
+    }
+
+    private void recalcular(int tipo) {
+        desdeRecalculo[tipo] = 0;
+        long alvo = (amostras[tipo] + 1) / 2;
+        if (alvo == 0) {
+            return;
+        }
+        long acumulado = 0;
+        long[] faixas = histograma[tipo];
+        for (int i = 0; i < faixas.length; i++) {
+            acumulado += faixas[i];
+            if (acumulado >= alvo) {
+                mediana[tipo] = i;
+                return;
+            }
+        }
+    }
+
+    // ===== RESULTADO =====
+
+    public long getPausasAjustadas() {
+        return pausasAjustadas;
+    }
+
+    public long getTempoEconomizadoMs() {
+        return tempoEconomizadoMs;
+    }
+
+    public String resumo() {
+        return String.format(Locale.ROOT, "%d pausas acima de %d ms ajustadas (%s), %.1f s economizados",
+            pausasAjustadas, maximoMs, modelo == Modelo.LIMITE ? "limite" : "mediana por tipo",
+            tempoEconomizadoMs / 1000.0);
+    }
+}
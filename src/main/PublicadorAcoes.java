@@ -0,0 +1,251 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+/**
+ * Distribui as ações capturadas a vários assinantes sem prender a thread do
+ * hook. Cada assinatura tem um buffer circular próprio, de capacidade fixa,
+ * e é entregue numa thread de entrega, respeitando a demanda (request) do
+ * assinante. Quando o buffer enche, vale a política escolhida na assinatura:
+ *
+ * - DESCARTAR_ANTIGAS: a ação mais antiga do buffer dá lugar à nova;
+ * - AMOSTRAR: a nova substitui a mais recente do buffer, então o assinante
+ *   sempre recebe o estado mais novo (bom para interface e métricas);
+ * - BLOQUEAR: o publicador espera espaço. Não perde nada, mas um assinante
+ *   lento passa a segurar a captura; use só para quem precisa de tudo.
+ *
+ * Cada assinatura conta as ações descartadas (getDescartadas).
+ */
+final class PublicadorAcoes implements Flow.Publisher<Acao> {
+
+    static final int CAPACIDADE_PADRAO = 1024;
+
+    enum Transbordo { DESCARTAR_ANTIGAS, AMOSTRAR, BLOQUEAR }
+
+    private static final ExecutorService ENTREGA = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mapeador-assinante");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Assinatura[] assinaturas = new Assinatura[0];
+    private boolean fechado;
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Acao> assinante) {
+        assinar(assinante, CAPACIDADE_PADRAO, Transbordo.DESCARTAR_ANTIGAS);
+    }
+
+    synchronized Assinatura assinar(Flow.Subscriber<? super Acao> assinante, int capacidade, Transbordo transbordo) {
+        Objects.requireNonNull(assinante, "assinante");
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva: " + capacidade);
+        }
+        Assinatura assinatura = new Assinatura(assinante, capacidade, transbordo);
+        assinante.onSubscribe(assinatura);
+        if (fechado) {
+            assinatura.concluir();
+        } else {
+            Assinatura[] atuais = Arrays.copyOf(assinaturas, assinaturas.length + 1);
+            atuais[atuais.length - 1] = assinatura;
+            assinaturas = atuais;
+        }
+        return assinatura;
+    }
+
+    /**
+     * Chamado pela thread do hook. Sem assinantes, custa uma leitura volátil.
+     */
+    void publicar(Acao acao) {
+        for (Assinatura assinatura : assinaturas) {
+            assinatura.oferecer(acao);
+        }
+    }
+
+    /**
+     * Entrega o que ainda está nos buffers e encerra as assinaturas (onComplete).
+     */
+    synchronized void fechar() {
+        fechado = true;
+        for (Assinatura assinatura : assinaturas) {
+            assinatura.concluir();
+        }
+        assinaturas = new Assinatura[0];
+    }
+
+    int getAssinantes() {
+        return assinaturas.length;
+    }
+
+    private synchronized void remover(Assinatura assinatura) {
+        Assinatura[] atuais = assinaturas;
+        for (int i = 0; i < atuais.length; i++) {
+            if (atuais[i] == assinatura) {
+                Assinatura[] novas = new Assinatura[atuais.length - 1];
+                System.arraycopy(atuais, 0, novas, 0, i);
+                System.arraycopy(atuais, i + 1, novas, i, atuais.length - i - 1);
+                assinaturas = novas;
+                return;
+            }
+        }
+    }
+
+    // ===== ASSINATURA =====
+
+    /**
+     * Buffer e demanda de um assinante. Uma única tarefa de entrega por vez,
+     * então onNext nunca é chamado em paralelo para o mesmo assinante.
+     */
+    final class Assinatura implements Flow.Subscription {
+        private final Flow.Subscriber<? super Acao> assinante;
+        private final Transbordo transbordo;
+        private final Acao[] buffer;
+        private int inicio;
+        private int quantidade;
+        private long demanda;
+        private boolean agendada;
+        private boolean cancelada;
+        private boolean concluida;
+        private boolean encerrada; // onComplete/onError já enviado
+        private volatile long descartadas;
+
+        private Assinatura(Flow.Subscriber<? super Acao> assinante, int capacidade, Transbordo transbordo) {
+            this.assinante = assinante;
+            this.transbordo = transbordo;
+            this.buffer = new Acao[capacidade];
+        }
+
+        private synchronized void oferecer(Acao acao) {
+            if (cancelada || concluida) {
+                return;
+            }
+            if (quantidade == buffer.length) {
+                switch (transbordo) {
+                    case DESCARTAR_ANTIGAS -> {
+                        buffer[inicio] = null;
+                        inicio = (inicio + 1) % buffer.length;
+                        quantidade--;
+                        descartadas++;
+                    }
+                    case AMOSTRAR -> {
+                        buffer[(inicio + quantidade - 1) % buffer.length] = acao;
+                        descartadas++;
+                        agendar();
+                        return;
+                    }
+                    case BLOQUEAR -> {
+                        while (quantidade == buffer.length && !cancelada) {
+                            try {
+                                wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                descartadas++;
+                                return;
+                            }
+                        }
+                        if (cancelada) {
+                            return;
+                        }
+                    }
+                }
+            }
+            buffer[(inicio + quantidade) % buffer.length] = acao;
+            quantidade++;
+            agendar();
+        }
+
+        private synchronized void concluir() {
+            concluida = true;
+            agendar();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                synchronized (this) {
+                    cancelada = true;
+                    encerrada = true;
+                    notifyAll();
+                }
+                remover(this);
+                assinante.onError(new IllegalArgumentException("request deve ser positivo: " + n));
+                return;
+            }
+            synchronized (this) {
+                demanda = demanda + n < 0 ? Long.MAX_VALUE : demanda + n;
+                agendar();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelada = true;
+                Arrays.fill(buffer, null);
+                quantidade = 0;
+                notifyAll();
+            }
+            remover(this);
+        }
+
+        public long getDescartadas() {
+            return descartadas;
+        }
+
+        /**
+         * Agenda a entrega se houver o que entregar e nenhuma estiver em curso.
+         */
+        private void agendar() {
+            boolean entregar = quantidade > 0 && demanda > 0;
+            boolean encerrar = concluida && quantidade == 0 && !encerrada;
+            if (!agendada && !cancelada && (entregar || encerrar)) {
+                agendada = true;
+                ENTREGA.execute(this::entregar);
+            }
+        }
+
+        private void entregar() {
+            while (true) {
+                Acao acao;
+                synchronized (this) {
+                    if (cancelada) {
+                        agendada = false;
+                        return;
+                    }
+                    if (quantidade == 0 || demanda == 0) {
+                        agendada = false;
+                        if (!(concluida && quantidade == 0 && !encerrada)) {
+                            return;
+                        }
+                        encerrada = true;
+                        acao = null;
+                    } else {
+                        acao = buffer[inicio];
+                        buffer[inicio] = null;
+                        inicio = (inicio + 1) % buffer.length;
+                        quantidade--;
+                        if (demanda != Long.MAX_VALUE) {
+                            demanda--;
+                        }
+                        notifyAll(); // libera publicador em BLOQUEAR
+                    }
+                }
+                if (acao == null) {
+                    assinante.onComplete();
+                    return;
+                }
+                try {
+                    assinante.onNext(acao);
+                } catch (Throwable t) {
+                    cancel();
+                    assinante.onError(t);
+                    return;
+                }
+            }
+        }
+    }
+}
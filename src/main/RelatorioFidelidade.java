@@ -0,0 +1,251 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fidelidade temporal de uma reprodução: para cada ação executada, o
+ * deslocamento planejado, o real e o custo das chamadas ao Robot. Os
+ * buffers são primitivos e alocados no início, então registrar um passo
+ * não aloca nada; toda a análise acontece depois, em analisar().
+ */
+class RelatorioFidelidade {
+
+    // Limites superiores das faixas do histograma de jitter (ms); a última é "acima de"
+    static final long[] FAIXAS_JITTER_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500};
+    private static final int MAIS_LENTAS = 10;
+
+    private final PlanoReproducao plano;
+    private final long[] planejadoNs;
+    private final long[] realNs;
+    private final long[] custoNs;
+    private volatile int executadas; // publicado depois dos valores do passo
+
+    // ===== RESULTADOS (preenchidos por analisar) =====
+    private boolean analisado;
+    private int analisadas;
+    private long derivaFinalNs;
+    private long derivaMaximaNs;
+    private long[] jitterNs;
+    private long[] histogramaJitter;
+    private int[] maisLentas;
+    private long[][] custoPorTipo;
+
+    RelatorioFidelidade(PlanoReproducao plano) {
+        this.plano = plano;
+        int total = plano.tamanho();
+        this.planejadoNs = new long[total];
+        this.realNs = new long[total];
+        this.custoNs = new long[total];
+    }
+
+    /**
+     * Registra o passo seguinte. Chamado pela thread de reprodução.
+     */
+    void registrar(long planejado, long real, long custo) {
+        int i = executadas;
+        planejadoNs[i] = planejado;
+        realNs[i] = real;
+        custoNs[i] = custo;
+        executadas = i + 1;
+    }
+
+    public int getExecutadas() {
+        return executadas;
+    }
+
+    public int getPlanejadas() {
+        return planejadoNs.length;
+    }
+
+    // ===== ANÁLISE =====
+
+    /**
+     * Calcula deriva, jitter entre ações consecutivas, histograma, ações mais
+     * lentas e latência por tipo. Deve ser chamado depois do fim da reprodução.
+     */
+    public synchronized RelatorioFidelidade analisar() {
+        if (analisado) {
+            return this;
+        }
+        int n = executadas;
+        analisadas = n;
+        jitterNs = new long[n];
+        histogramaJitter = new long[FAIXAS_JITTER_MS.length + 1];
+        for (int i = 0; i < n; i++) {
+            long deriva = realNs[i] - planejadoNs[i];
+            derivaMaximaNs = Math.max(derivaMaximaNs, Math.abs(deriva));
+            // Jitter: intervalo real entre ações consecutivas menos o planejado
+            jitterNs[i] = i == 0 ? deriva
+                : (realNs[i] - realNs[i - 1]) - (planejadoNs[i] - planejadoNs[i - 1]);
+            histogramaJitter[faixa(Math.abs(jitterNs[i]))]++;
+        }
+        derivaFinalNs = n == 0 ? 0 : realNs[n - 1] - planejadoNs[n - 1];
+
+        maisLentas = maisLentas(n);
+
+        Acao.TipoAcao[] tipos = Acao.TipoAcao.values();
+        int[] quantidades = new int[tipos.length];
+        for (int i = 0; i < n; i++) {
+            quantidades[plano.getPasso(i).tipo.ordinal()]++;
+        }
+        custoPorTipo = new long[tipos.length][];
+        for (int t = 0; t < tipos.length; t++) {
+            custoPorTipo[t] = new long[quantidades[t]];
+            quantidades[t] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            int t = plano.getPasso(i).tipo.ordinal();
+            custoPorTipo[t][quantidades[t]++] = custoNs[i];
+        }
+        for (long[] custos : custoPorTipo) {
+            Arrays.sort(custos);
+        }
+        analisado = true;
+        return this;
+    }
+
+    private static int faixa(long jitterNs) {
+        long ms = jitterNs / 1_000_000;
+        for (int f = 0; f < FAIXAS_JITTER_MS.length; f++) {
+            if (ms < FAIXAS_JITTER_MS[f]) {
+                return f;
+            }
+        }
+        return FAIXAS_JITTER_MS.length;
+    }
+
+    /**
+     * Índices das ações com maior custo de execução, do maior para o menor.
+     */
+    private int[] maisLentas(int n) {
+        int quantidade = Math.min(MAIS_LENTAS, n);
+        int[] indices = new int[quantidade];
+        int preenchidos = 0;
+        for (int i = 0; i < n; i++) {
+            if (preenchidos < quantidade) {
+                indices[preenchidos++] = i;
+            } else if (custoNs[i] > custoNs[indices[quantidade - 1]]) {
+                indices[quantidade - 1] = i;
+            } else {
+                continue;
+            }
+            // Inserção ordenada na pequena lista
+            for (int j = preenchidos - 1; j > 0 && custoNs[indices[j]] > custoNs[indices[j - 1]]; j--) {
+                int troca = indices[j];
+                indices[j] = indices[j - 1];
+                indices[j - 1] = troca;
+            }
+        }
+        return indices;
+    }
+
+    private static double ms(long ns) {
+        return ns / 1_000_000.0;
+    }
+
+    private static long percentil(long[] ordenados, double fracao) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(ordenados.length * fracao) - 1;
+        return ordenados[Math.max(0, Math.min(ordenados.length - 1, indice))];
+    }
+
+    private static String rotuloFaixa(int f) {
+        if (f == FAIXAS_JITTER_MS.length) {
+            return "≥ " + FAIXAS_JITTER_MS[f - 1] + " ms";
+        }
+        long inicio = f == 0 ? 0 : FAIXAS_JITTER_MS[f - 1];
+        return inicio + "–" + FAIXAS_JITTER_MS[f] + " ms";
+    }
+
+    // ===== SAÍDA =====
+
+    public String resumo() {
+        analisar();
+        long[] jitterAbs = new long[analisadas];
+        for (int i = 0; i < analisadas; i++) {
+            jitterAbs[i] = Math.abs(jitterNs[i]);
+        }
+        Arrays.sort(jitterAbs);
+        return String.format(Locale.ROOT,
+            "%d/%d ações | deriva final %.1f ms (máx %.1f ms) | jitter p50 %.2f ms, p99 %.2f ms",
+            analisadas, getPlanejadas(), ms(derivaFinalNs), ms(derivaMaximaNs),
+            ms(percentil(jitterAbs, 0.50)), ms(percentil(jitterAbs, 0.99)));
+    }
+
+    /**
+     * Uma linha por ação executada.
+     */
+    public void exportarCSV(Path arquivo) throws IOException {
+        analisar();
+        try (PrintWriter saida = new PrintWriter(Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8))) {
+            saida.println("indice;id;tipo;detalhes;planejado_ms;real_ms;deriva_ms;jitter_ms;custo_ms");
+            for (int i = 0; i < analisadas; i++) {
+                Acao acao = plano.getPasso(i).acao;
+                saida.printf(Locale.ROOT, "%d;%d;%s;%s;%.3f;%.3f;%.3f;%.3f;%.3f%n", i + 1, acao.getId(),
+                    acao.getTipo(), acao.getDetalhes().replace(';', ','), ms(planejadoNs[i]), ms(realNs[i]),
+                    ms(realNs[i] - planejadoNs[i]), ms(jitterNs[i]), ms(custoNs[i]));
+            }
+        }
+    }
+
+    /**
+     * Página única com o resumo, o histograma de jitter, as ações mais lentas
+     * e a latência do Robot por tipo de ação.
+     */
+    public void exportarHTML(Path arquivo) throws IOException {
+        analisar();
+        try (PrintWriter saida = new PrintWriter(Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8))) {
+            saida.println("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Fidelidade da reprodução</title>");
+            saida.println("<style>body{font-family:sans-serif;margin:2em}table{border-collapse:collapse;margin-bottom:2em}"
+                + "td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}th{background:#eee}"
+                + ".barra{background:#4a90d9;height:14px}</style></head><body>");
+            saida.println("<h1>Fidelidade da reprodução</h1>");
+            saida.printf("<p>%s</p>%n", escapar(resumo()));
+
+            saida.println("<h2>Jitter entre ações consecutivas</h2><table><tr><th>Faixa</th><th>Ações</th><th></th></tr>");
+            long maior = Math.max(1, Arrays.stream(histogramaJitter).max().orElse(1));
+            for (int f = 0; f < histogramaJitter.length; f++) {
+                saida.printf("<tr><td>%s</td><td>%d</td><td style=\"text-align:left;width:300px\">"
+                    + "<div class=\"barra\" style=\"width:%dpx\"></div></td></tr>%n",
+                    rotuloFaixa(f), histogramaJitter[f], histogramaJitter[f] * 300 / maior);
+            }
+            saida.println("</table>");
+
+            saida.println("<h2>Ações mais lentas</h2><table><tr><th>#</th><th>Tipo</th><th>Detalhes</th>"
+                + "<th>Custo (ms)</th><th>Deriva (ms)</th></tr>");
+            for (int i : maisLentas) {
+                Acao acao = plano.getPasso(i).acao;
+                saida.printf(Locale.ROOT, "<tr><td>%d</td><td>%s</td><td>%s</td><td>%.2f</td><td>%.2f</td></tr>%n",
+                    i + 1, acao.getTipo(), escapar(acao.getDetalhes()), ms(custoNs[i]), ms(realNs[i] - planejadoNs[i]));
+            }
+            saida.println("</table>");
+
+            saida.println("<h2>Latência do Robot por tipo</h2><table><tr><th>Tipo</th><th>Ações</th>"
+                + "<th>Média (ms)</th><th>p50 (ms)</th><th>p99 (ms)</th><th>Máx (ms)</th></tr>");
+            Acao.TipoAcao[] tipos = Acao.TipoAcao.values();
+            for (int t = 0; t < tipos.length; t++) {
+                long[] custos = custoPorTipo[t];
+                if (custos.length == 0) {
+                    continue;
+                }
+                saida.printf(Locale.ROOT,
+                    "<tr><td>%s</td><td>%d</td><td>%.2f</td><td>%.2f</td><td>%.2f</td><td>%.2f</td></tr>%n",
+                    tipos[t], custos.length, ms(Arrays.stream(custos).sum()) / custos.length,
+                    ms(percentil(custos, 0.50)), ms(percentil(custos, 0.99)), ms(custos[custos.length - 1]));
+            }
+            saida.println("</table></body></html>");
+        }
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -1,17 +1,37 @@
 package main;
 
-import java.awt.Robot;
+import java.awt.GraphicsDevice;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-
-import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 class ReprodutorEventos {
-    private Robot robot;
-    private boolean reproduzindo;
+    // Uma reprodução por vez no processo, qualquer que seja a tela: todos os Robots
+    // movem o mesmo cursor e digitam no mesmo teclado (interface, FilaReproducao e lote)
+    private static final Semaphore ENTRADA = new Semaphore(1, true);
+    
+    // Pausa entre caracteres de um bloco KEY_TYPE (-Dmapeador.digitacao.intervaloMs)
+    static final int INTERVALO_DIGITACAO_PADRAO_MS = Integer.getInteger("mapeador.digitacao.intervaloMs", 30);
+    // Blocos KEY_TYPE a partir deste tamanho são colados (-Dmapeador.colagem.minimo; 0 desliga)
+    static final int MINIMO_COLAGEM_PADRAO = Integer.getInteger("mapeador.colagem.minimo", 0);
+    // Cliques rápidos: todo clique segura o botão só por este tempo (-Dmapeador.cliques.rapidoMs; 0 usa o gravado)
+    static final int CLIQUE_RAPIDO_PADRAO_MS = Integer.getInteger("mapeador.cliques.rapidoMs", 0);
+    // Tempo pressionado para cliques sem duração gravada (gravações antigas)
+    private static final int DURACAO_CLIQUE_PADRAO_MS = 50;
+    
+    private SaidaEntrada saida;
+    private volatile int intervaloDigitacaoMs = INTERVALO_DIGITACAO_PADRAO_MS;
+    private volatile int minimoColagem = MINIMO_COLAGEM_PADRAO;
+    private volatile int cliqueRapidoMs = CLIQUE_RAPIDO_PADRAO_MS;
+    private volatile PoliticaPausas politicaPausas;
+    private volatile boolean reproduzindo;
+    private int botoesArrastando; // só a thread da reprodução usa
     private ReprodutorListener listener;
+    private volatile RelatorioFidelidade ultimoRelatorio;
     
     public interface ReprodutorListener {
         void onAcaoExecutada(Acao acao, int progresso, int total);
@@ -20,7 +40,21 @@ class ReprodutorEventos {
     }
     
     public ReprodutorEventos() throws Exception {
-        this.robot = new Robot();
+        this(SaidaEntrada.robot((GraphicsDevice) null));
+    }
+    
+    /**
+     * Reprodutor ligado a uma tela específica (coordenadas relativas a ela).
+     */
+    public ReprodutorEventos(GraphicsDevice tela) throws Exception {
+        this(SaidaEntrada.robot(tela));
+    }
+    
+    /**
+     * Reprodutor com destino de entradas arbitrário (ex.: SaidaEntrada.NULA).
+     */
+    public ReprodutorEventos(SaidaEntrada saida) {
+        this.saida = saida;
         this.reproduzindo = false;
     }
     
@@ -28,252 +62,272 @@ class ReprodutorEventos {
         this.listener = listener;
     }
     
+    /**
+     * Ritmo de digitação dos blocos KEY_TYPE, em milissegundos entre caracteres.
+     */
+    public void setIntervaloDigitacaoMs(int intervaloMs) {
+        this.intervaloDigitacaoMs = Math.max(0, intervaloMs);
+    }
+    
+    public int getIntervaloDigitacaoMs() {
+        return intervaloDigitacaoMs;
+    }
+    
+    /**
+     * Ativa a colagem pela área de transferência para blocos KEY_TYPE com pelo
+     * menos {@code caracteres} caracteres, ou com caracteres que a digitação
+     * não reproduz (acentos, fora do ASCII). Zero desativa.
+     */
+    public void setMinimoColagem(int caracteres) {
+        this.minimoColagem = Math.max(0, caracteres);
+    }
+    
+    /**
+     * Modo rápido: cada clique segura o botão por {@code duracaoMs}, em vez do
+     * tempo gravado. Zero volta a usar a duração real de cada clique.
+     */
+    public void setCliqueRapidoMs(int duracaoMs) {
+        this.cliqueRapidoMs = Math.max(0, duracaoMs);
+    }
+    
+    public int getCliqueRapidoMs() {
+        return cliqueRapidoMs;
+    }
+    
+    public int getMinimoColagem() {
+        return minimoColagem;
+    }
+    
+    /**
+     * Política de pausas aplicada durante a reprodução, sem alterar o plano
+     * (null reproduz as pausas como gravadas). Use uma instância por reprodução.
+     */
+    public void setPoliticaPausas(PoliticaPausas politica) {
+        this.politicaPausas = politica;
+    }
+    
+    public PoliticaPausas getPoliticaPausas() {
+        return politicaPausas;
+    }
+    
+    /**
+     * Medições da reprodução mais recente (inclusive se interrompida), ou null.
+     */
+    public RelatorioFidelidade getUltimoRelatorio() {
+        return ultimoRelatorio;
+    }
+    
     public CompletableFuture<Void> reproduzirAcoes(List<Acao> acoes) {
-        return CompletableFuture.runAsync(() -> {
-            reproduzindo = true;
-            
-            try {
-                for (int i = 0; i < acoes.size() && reproduzindo; i++) {
-                    Acao acao = acoes.get(i);
-                    
-                    // Aguardar delay antes da execuÃ§Ã£o
-                    if (acao.getDelay() > 0) {
-                        Thread.sleep(acao.getDelay());
-                    }
-                    
-                    executarAcao(acao);
-                    
-                    if (listener != null) {
-                        listener.onAcaoExecutada(acao, i + 1, acoes.size());
-                    }
-                }
-                
+        reproduzindo = true; // antes da tarefa: um pararReproducao() anterior ao início não se perde
+        // Compilada dentro de executarPlano: uma ação malformada chega ao listener como erro
+        return CompletableFuture.runAsync(() -> executarPlano(() -> PlanoReproducao.compilar(acoes)));
+    }
+    
+    /**
+     * Reproduz um plano já compilado (por exemplo, mantido em CachePlanos).
+     */
+    public CompletableFuture<Void> reproduzirPlano(PlanoReproducao plano) {
+        reproduzindo = true;
+        return CompletableFuture.runAsync(() -> executarPlano(() -> plano));
+    }
+    
+    private void executarPlano(Supplier<PlanoReproducao> fonte) {
+        boolean comEntrada = false;
+        try {
+            comEntrada = aguardarEntrada();
+            if (!comEntrada) {
+                // Parada enquanto outra reprodução usava mouse e teclado
                 if (listener != null) {
                     listener.onReproducaoCompleta();
                 }
+                return;
+            }
+            PlanoReproducao plano = fonte.get();
+            int total = plano.tamanho();
+            PoliticaPausas politica = politicaPausas;
+            Metricas.INSTANCIA.reproducaoIniciada(total);
+            RelatorioFidelidade relatorio = new RelatorioFidelidade(plano);
+            ultimoRelatorio = relatorio;
+            long inicio = System.nanoTime();
+            long inicioAnterior = inicio;
+            long planejadoMs = 0;
+            for (int i = 0; i < total && reproduzindo; i++) {
+                PlanoReproducao.Passo passo = plano.getPasso(i);
+                
+                // Aguardar delay antes da execução
+                long delay = politica != null ? politica.ajustar(passo.tipo, passo.delay) : passo.delay;
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                planejadoMs += Math.max(0, delay);
+                
+                long agora = System.nanoTime();
+                long realMs = (agora - inicio) / 1_000_000;
+                long erroAgendamentoNs = i == 0 ? 0 : agora - inicioAnterior - delay * 1_000_000L;
+                inicioAnterior = agora;
+                Metricas.INSTANCIA.passoReproduzido(i + 1, realMs - planejadoMs, erroAgendamentoNs);
+                EventosJFR.PassoReproducao evento = new EventosJFR.PassoReproducao();
+                evento.begin();
+                executarPasso(passo);
+                evento.end();
+                relatorio.registrar(planejadoMs * 1_000_000L, agora - inicio, System.nanoTime() - agora);
+                if (evento.shouldCommit()) {
+                    evento.indice = i;
+                    evento.tipo = passo.tipo.name();
+                    evento.planejadoMs = planejadoMs;
+                    evento.realMs = realMs;
+                    evento.atrasoMs = realMs - planejadoMs;
+                    evento.commit();
+                }
                 
-            } catch (Exception e) {
                 if (listener != null) {
-                    listener.onErro("Erro durante reproduÃ§Ã£o: " + e.getMessage());
+                    listener.onAcaoExecutada(passo.acao, i + 1, total);
                 }
-            } finally {
-                reproduzindo = false;
             }
-        });
-    }
-    
-    public void pararReproducao() {
-        reproduzindo = false;
+            
+            if (listener != null) {
+                listener.onReproducaoCompleta();
+            }
+            
+        } catch (Exception e) {
+            if (listener != null) {
+                listener.onErro("Erro durante reprodução: " + e.getMessage());
+            }
+        } finally {
+            reproduzindo = false;
+            if (comEntrada) {
+                soltarBotoesArrastando(); // reprodução parada no meio de um arraste
+                Metricas.INSTANCIA.reproducaoFinalizada();
+                ENTRADA.release();
+            }
+        }
     }
     
-    private void executarAcao(Acao acao) throws InterruptedException {
-        switch (acao.getTipo()) {
-            case MOUSE_CLICK -> executarClickMouse(acao);
-            case MOUSE_MOVE -> executarMovimentoMouse(acao);
-            case SCROLL -> executarScroll(acao);
-            case KEY_PRESS -> executarTeclaPressionada(acao);
-            case KEY_RELEASE -> executarTeclaLiberada(acao);
-            case KEY_TYPE -> executarTeclaDigitada(acao);
+    /**
+     * Espera a vez de usar mouse e teclado; false se a reprodução for parada antes.
+     */
+    private boolean aguardarEntrada() throws InterruptedException {
+        while (reproduzindo) {
+            if (ENTRADA.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                if (reproduzindo) {
+                    return true;
+                }
+                ENTRADA.release();
+            }
         }
+        return false;
     }
     
-    private void executarClickMouse(Acao acao) {
-        robot.mouseMove(acao.getX(), acao.getY());
-        robot.delay(50);
-        
-        String[] partes = acao.getDetalhes().split("_");
-        String botao = partes[0];
-        int clicks = Integer.parseInt(partes[1]);
-        
-        int botaoMask = switch (botao) {
-            case "ESQUERDO" -> InputEvent.BUTTON1_DOWN_MASK;
-            case "DIREITO" -> InputEvent.BUTTON3_DOWN_MASK;
-            case "MEIO" -> InputEvent.BUTTON2_DOWN_MASK;
-            default -> InputEvent.BUTTON1_DOWN_MASK;
-        };
-        
-        for (int i = 0; i < clicks; i++) {
-            robot.mousePress(botaoMask);
-            robot.delay(50);
-            robot.mouseRelease(botaoMask);
-            if (i < clicks - 1) robot.delay(100);
+    private void soltarBotoesArrastando() {
+        for (int mascara : new int[] {InputEvent.BUTTON1_DOWN_MASK, InputEvent.BUTTON2_DOWN_MASK,
+                InputEvent.BUTTON3_DOWN_MASK}) {
+            if ((botoesArrastando & mascara) != 0) {
+                saida.mouseRelease(mascara);
+            }
         }
+        botoesArrastando = 0;
     }
     
-    private void executarMovimentoMouse(Acao acao) {
-        robot.mouseMove(acao.getX(), acao.getY());
+    public void pararReproducao() {
+        reproduzindo = false;
     }
     
-    private void executarScroll(Acao acao) {
-        robot.mouseMove(acao.getX(), acao.getY());
-        robot.delay(50);
-        
-        String[] partes = acao.getDetalhes().split("_");
-        String direcao = partes[0];
-        int passos = Integer.parseInt(partes[1]);
-        
-        int scrollDirection = direcao.equals("CIMA") ? -1 : 1;
-        for (int i = 0; i < passos; i++) {
-            robot.mouseWheel(scrollDirection);
-            robot.delay(50);
+    private void executarPasso(PlanoReproducao.Passo passo) {
+        switch (passo.tipo) {
+            case MOUSE_CLICK -> executarClickMouse(passo);
+            case MOUSE_MOVE -> executarMovimento(passo);
+            case SCROLL -> executarScroll(passo);
+            case KEY_PRESS -> pressionarTecla(passo, true);
+            case KEY_RELEASE -> pressionarTecla(passo, false);
+            case KEY_TYPE -> executarTeclaDigitada(passo);
         }
     }
     
-    private void executarTeclaPressionada(Acao acao) {
-        pressionarTecla(acao.getDetalhes(), true);
+    private void executarMovimento(PlanoReproducao.Passo passo) {
+        saida.mouseMove(passo.x, passo.y);
+        if (passo.mascaraBotao != 0) {
+            // Início de arraste: o botão fica pressionado até o MOUSE_CLICK que o solta
+            saida.mousePress(passo.mascaraBotao);
+            botoesArrastando |= passo.mascaraBotao;
+        }
     }
     
-    private void executarTeclaLiberada(Acao acao) {
-        pressionarTecla(acao.getDetalhes(), false);
+    private void executarClickMouse(PlanoReproducao.Passo passo) {
+        saida.mouseMove(passo.x, passo.y);
+        if ((botoesArrastando & passo.mascaraBotao) != 0) {
+            saida.mouseRelease(passo.mascaraBotao);
+            botoesArrastando &= ~passo.mascaraBotao;
+            return;
+        }
+        saida.delay(50);
+        
+        // Mesmo tempo pressionado e solto entre os cliques de um duplo clique
+        int duracao = duracaoClique(passo.acao);
+        for (int i = 0; i < passo.repeticoes; i++) {
+            saida.mousePress(passo.mascaraBotao);
+            saida.delay(duracao);
+            saida.mouseRelease(passo.mascaraBotao);
+            if (i < passo.repeticoes - 1) saida.delay(duracao);
+        }
     }
     
-    private void executarTeclaDigitada(Acao acao) {
-        char c = acao.getDetalhes().charAt(0);
-        int keyCode = KeyEvent.getExtendedKeyCodeForChar(c);
-        if (keyCode != KeyEvent.VK_UNDEFINED) {
-            robot.keyPress(keyCode);
-            robot.delay(50);
-            robot.keyRelease(keyCode);
+    private int duracaoClique(Acao acao) {
+        int rapido = cliqueRapidoMs;
+        if (rapido > 0) {
+            return rapido;
         }
+        long gravada = acao.getDuracao();
+        // Robot.delay aceita no máximo 60 s
+        return gravada > 0 ? (int) Math.min(gravada, 60_000) : DURACAO_CLIQUE_PADRAO_MS;
     }
     
-    private void pressionarTecla(String detalhes, boolean pressionar) {
-        String[] partes = detalhes.split("\\+");
-        
-        // Processar modificadores
-        boolean ctrl = false, alt = false, shift = false, meta = false;
-        String teclaFinal = detalhes;
+    private void executarScroll(PlanoReproducao.Passo passo) {
+        saida.mouseMove(passo.x, passo.y);
+        saida.delay(50);
         
-        for (String parte : partes) {
-            switch (parte) {
-                case "CTRL" -> ctrl = true;
-                case "ALT" -> alt = true;
-                case "SHIFT" -> shift = true;
-                case "META" -> meta = true;
-                default -> teclaFinal = parte;
-            }
+        for (int i = 0; i < passo.repeticoes; i++) {
+            saida.mouseWheel(passo.direcao);
+            saida.delay(50);
         }
-        
-        // Aplicar modificadores
-        if (ctrl) {
-            if (pressionar) robot.keyPress(KeyEvent.VK_CONTROL);
-            else robot.keyRelease(KeyEvent.VK_CONTROL);
-        }
-        if (alt) {
-            if (pressionar) robot.keyPress(KeyEvent.VK_ALT);
-            else robot.keyRelease(KeyEvent.VK_ALT);
+    }
+    
+    private void executarTeclaDigitada(PlanoReproducao.Passo passo) {
+        int minimo = minimoColagem;
+        String texto = passo.acao.getDetalhes();
+        if (minimo > 0 && (texto.length() >= minimo || !passo.digitavel)
+                && AreaTransferencia.colar(saida, texto)) {
+            return;
         }
-        if (shift) {
-            if (pressionar) robot.keyPress(KeyEvent.VK_SHIFT);
-            else robot.keyRelease(KeyEvent.VK_SHIFT);
+        int intervalo = intervaloDigitacaoMs;
+        int[] digitacao = passo.digitacao;
+        for (int i = 0; i < digitacao.length && reproduzindo; i++) {
+            int codigo = digitacao[i];
+            boolean shift = (codigo & PlanoReproducao.MARCA_SHIFT) != 0;
+            int tecla = codigo & ~PlanoReproducao.MARCA_SHIFT;
+            if (shift) saida.keyPress(KeyEvent.VK_SHIFT);
+            saida.keyPress(tecla);
+            saida.keyRelease(tecla);
+            if (shift) saida.keyRelease(KeyEvent.VK_SHIFT);
+            if (intervalo > 0 && i < digitacao.length - 1) {
+                saida.delay(intervalo);
+            }
         }
-        if (meta) {
-            if (pressionar) robot.keyPress(KeyEvent.VK_META);
-            else robot.keyRelease(KeyEvent.VK_META);
+    }
+    
+    private void pressionarTecla(PlanoReproducao.Passo passo, boolean pressionar) {
+        // Aplicar modificadores
+        for (int modificador : passo.modificadores) {
+            if (pressionar) saida.keyPress(modificador);
+            else saida.keyRelease(modificador);
         }
         
         // Aplicar tecla principal
-        int keyCode = getKeyCode(teclaFinal);
-        if (keyCode != -1) {
+        if (passo.tecla != -1) {
             if (pressionar) {
-                robot.keyPress(keyCode);
+                saida.keyPress(passo.tecla);
             } else {
-                robot.keyRelease(keyCode);
-            }
-        }
-    }
-    
-    /**
-     * Converte string da tecla para keyCode do Java AWT
-     */
-    private int getKeyCode(String tecla) {
-        // Para caracteres únicos, usar o próprio caractere
-        if (tecla.length() == 1) {
-            char c = tecla.charAt(0);
-            
-            // Letras (converter para maiúscula para o keyCode)
-            if (c >= 'a' && c <= 'z') {
-                return KeyEvent.VK_A + (c - 'a');
-            }
-            if (c >= 'A' && c <= 'Z') {
-                return KeyEvent.VK_A + (c - 'A');
-            }
-            
-            // Números
-            if (c >= '0' && c <= '9') {
-                return KeyEvent.VK_0 + (c - '0');
-            }
-            
-            // Símbolos e caracteres especiais
-            switch (c) {
-                case ' ' -> { return KeyEvent.VK_SPACE; }
-                case '-' -> { return KeyEvent.VK_MINUS; }
-                case '=' -> { return KeyEvent.VK_EQUALS; }
-                case '[' -> { return KeyEvent.VK_OPEN_BRACKET; }
-                case ']' -> { return KeyEvent.VK_CLOSE_BRACKET; }
-                case '\\' -> { return KeyEvent.VK_BACK_SLASH; }
-                case ';' -> { return KeyEvent.VK_SEMICOLON; }
-                case '\'' -> { return KeyEvent.VK_QUOTE; }
-                case ',' -> { return KeyEvent.VK_COMMA; }
-                case '.' -> { return KeyEvent.VK_PERIOD; }
-                case '/' -> { return KeyEvent.VK_SLASH; }
-                case '`' -> { return KeyEvent.VK_BACK_QUOTE; }
-                case '*' -> { return KeyEvent.VK_MULTIPLY; }
-                case '+' -> { return KeyEvent.VK_PLUS; }
-                
-                // Caracteres acentuados e especiais do português
-                case 'ç' -> { return KeyEvent.VK_C; } // Será tratado com combinação
-                case 'Ç' -> { return KeyEvent.VK_C; }
-                case 'á', 'à', 'ã', 'â' -> { return KeyEvent.VK_A; }
-                case 'Á', 'À', 'Ã', 'Â' -> { return KeyEvent.VK_A; }
-                case 'é', 'ê' -> { return KeyEvent.VK_E; }
-                case 'É', 'Ê' -> { return KeyEvent.VK_E; }
-                case 'í' -> { return KeyEvent.VK_I; }
-                case 'Í' -> { return KeyEvent.VK_I; }
-                case 'ó', 'ô', 'õ' -> { return KeyEvent.VK_O; }
-                case 'Ó', 'Ô', 'Õ' -> { return KeyEvent.VK_O; }
-                case 'ú' -> { return KeyEvent.VK_U; }
-                case 'Ú' -> { return KeyEvent.VK_U; }
-                case '~' -> { return KeyEvent.VK_DEAD_TILDE; }
-                case '?' -> { return KeyEvent.VK_SLASH; } // Com shift
-                default -> { return KeyEvent.getExtendedKeyCodeForChar(c); }
+                saida.keyRelease(passo.tecla);
             }
         }
-        
-        // Para nomes de teclas especiais
-        return switch (tecla.toUpperCase()) {
-            case "ENTER" -> KeyEvent.VK_ENTER;
-            case "TAB" -> KeyEvent.VK_TAB;
-            case "ESCAPE" -> KeyEvent.VK_ESCAPE;
-            case "BACKSPACE" -> KeyEvent.VK_BACK_SPACE;
-            case "DELETE" -> KeyEvent.VK_DELETE;
-            case "INSERT" -> KeyEvent.VK_INSERT;
-            case "HOME" -> KeyEvent.VK_HOME;
-            case "END" -> KeyEvent.VK_END;
-            case "PAGE_UP" -> KeyEvent.VK_PAGE_UP;
-            case "PAGE_DOWN" -> KeyEvent.VK_PAGE_DOWN;
-            case "UP" -> KeyEvent.VK_UP;
-            case "DOWN" -> KeyEvent.VK_DOWN;
-            case "LEFT" -> KeyEvent.VK_LEFT;
-            case "RIGHT" -> KeyEvent.VK_RIGHT;
-            case "F1" -> KeyEvent.VK_F1;
-            case "F2" -> KeyEvent.VK_F2;
-            case "F3" -> KeyEvent.VK_F3;
-            case "F4" -> KeyEvent.VK_F4;
-            case "F5" -> KeyEvent.VK_F5;
-            case "F6" -> KeyEvent.VK_F6;
-            case "F7" -> KeyEvent.VK_F7;
-            case "F8" -> KeyEvent.VK_F8;
-            case "F9" -> KeyEvent.VK_F9;
-            case "F10" -> KeyEvent.VK_F10;
-            case "F11" -> KeyEvent.VK_F11;
-            case "F12" -> KeyEvent.VK_F12;
-            case "CAPS_LOCK" -> KeyEvent.VK_CAPS_LOCK;
-            case "NUM_LOCK" -> KeyEvent.VK_NUM_LOCK;
-            case "SCROLL_LOCK" -> KeyEvent.VK_SCROLL_LOCK;
-            case "PRINT_SCREEN" -> KeyEvent.VK_PRINTSCREEN;
-            case "PAUSE" -> KeyEvent.VK_PAUSE;
-            default -> -1;
-        };
     }
 }
\ No newline at end of file
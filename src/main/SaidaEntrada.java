@@ -0,0 +1,46 @@
+package main;
+
+import java.awt.GraphicsDevice;
+import java.awt.Robot;
+
+/**
+ * Destino das entradas sintéticas da reprodução. A implementação padrão
+ * delega ao java.awt.Robot; NULA descarta tudo e serve para medir o custo
+ * da própria reprodução (benchmarks, simulações).
+ */
+interface SaidaEntrada {
+
+    void mouseMove(int x, int y);
+    void mousePress(int botoes);
+    void mouseRelease(int botoes);
+    void mouseWheel(int passos);
+    void keyPress(int keyCode);
+    void keyRelease(int keyCode);
+    void delay(int ms);
+
+    SaidaEntrada NULA = new SaidaEntrada() {
+        @Override public void mouseMove(int x, int y) { }
+        @Override public void mousePress(int botoes) { }
+        @Override public void mouseRelease(int botoes) { }
+        @Override public void mouseWheel(int passos) { }
+        @Override public void keyPress(int keyCode) { }
+        @Override public void keyRelease(int keyCode) { }
+        @Override public void delay(int ms) { }
+    };
+
+    static SaidaEntrada robot(Robot robot) {
+        return new SaidaEntrada() {
+            @Override public void mouseMove(int x, int y) { robot.mouseMove(x, y); }
+            @Override public void mousePress(int botoes) { robot.mousePress(botoes); }
+            @Override public void mouseRelease(int botoes) { robot.mouseRelease(botoes); }
+            @Override public void mouseWheel(int passos) { robot.mouseWheel(passos); }
+            @Override public void keyPress(int keyCode) { robot.keyPress(keyCode); }
+            @Override public void keyRelease(int keyCode) { robot.keyRelease(keyCode); }
+            @Override public void delay(int ms) { robot.delay(ms); }
+        };
+    }
+
+    static SaidaEntrada robot(GraphicsDevice tela) throws Exception {
+        return robot(tela != null ? new Robot(tela) : new Robot());
+    }
+}
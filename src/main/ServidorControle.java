@@ -0,0 +1,335 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API HTTP local (somente loopback) para disparar reproduções a partir de
+ * outro processo, como um orquestrador de testes.
+ *
+ * POST   /reproducoes?arquivo=CAMINHO[&tela=N]  enfileira e devolve o trabalho
+ * GET    /reproducoes                          lista os trabalhos
+ * GET    /reproducoes/{id}                     estado/resultado do trabalho
+ * GET    /reproducoes/{id}/progresso           progresso em NDJSON até o fim
+ * DELETE /reproducoes/{id}                     cancela
+ *
+ * A API injeta mouse e teclado, então loopback não basta:
+ * - toda requisição leva "Authorization: Bearer TOKEN". O token vem de
+ *   MAPEADOR_CONTROLE_TOKEN ou é sorteado a cada execução e gravado em
+ *   ~/.mapeador/controle.token, só para o dono;
+ * - requisições com Origin (navegador) ou com Host diferente de
+ *   127.0.0.1:PORTA / localhost:PORTA são recusadas (DNS rebinding);
+ * - "arquivo" é relativo à pasta de gravações (-Dmapeador.controle.gravacoes,
+ *   padrão ~/.mapeador/gravacoes) e não pode sair dela.
+ */
+class ServidorControle {
+
+    public static final String PROPRIEDADE_PORTA = "mapeador.controle.porta";
+    public static final String PROPRIEDADE_GRAVACOES = "mapeador.controle.gravacoes";
+    public static final String VARIAVEL_TOKEN = "MAPEADOR_CONTROLE_TOKEN";
+    private static final String PREFIXO = "/reproducoes";
+    private static final long ESPERA_PROGRESSO_S = 15; // keep-alive do stream
+    private static final Set<PosixFilePermission> PASTA_DONO = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> ARQUIVO_DONO = PosixFilePermissions.fromString("rw-------");
+
+    private final HttpServer servidor;
+    private final FilaReproducao fila;
+    private final ExecutorService executor;
+    private final byte[] token;
+    private final Path arquivoToken; // null se o token veio do ambiente
+    private final Path gravacoes;
+    private final Set<String> hostsAceitos;
+
+    public ServidorControle(int porta, FilaReproducao fila) throws IOException {
+        this.fila = fila;
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        int real = servidor.getAddress().getPort();
+        this.hostsAceitos = Set.of("127.0.0.1:" + real, "localhost:" + real, "[::1]:" + real);
+        Path base = Path.of(System.getProperty("user.home"), ".mapeador");
+        String doAmbiente = System.getenv(VARIAVEL_TOKEN);
+        if (doAmbiente != null && !doAmbiente.isBlank()) {
+            this.token = doAmbiente.getBytes(StandardCharsets.UTF_8);
+            this.arquivoToken = null;
+        } else {
+            byte[] sorteado = new byte[32];
+            new SecureRandom().nextBytes(sorteado);
+            String texto = HexFormat.of().formatHex(sorteado);
+            this.token = texto.getBytes(StandardCharsets.UTF_8);
+            this.arquivoToken = base.resolve("controle.token");
+            gravarSomenteDono(arquivoToken, texto);
+        }
+        String configurada = System.getProperty(PROPRIEDADE_GRAVACOES);
+        Path pasta = configurada != null ? Path.of(configurada) : base.resolve("gravacoes");
+        criarPastaSomenteDono(pasta);
+        this.gravacoes = pasta.toRealPath();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mapeador-controle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        servidor.setExecutor(executor);
+        servidor.createContext(PREFIXO, this::tratar);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    public void parar() {
+        servidor.stop(0);
+        executor.shutdownNow();
+        fila.encerrar();
+        if (arquivoToken != null) {
+            try {
+                Files.deleteIfExists(arquivoToken);
+            } catch (IOException e) {
+                // o próximo início sobrescreve
+            }
+        }
+    }
+
+    /**
+     * Arquivo com o token desta execução, ou null se veio de MAPEADOR_CONTROLE_TOKEN.
+     */
+    public Path getArquivoToken() {
+        return arquivoToken;
+    }
+
+    public Path getGravacoes() {
+        return gravacoes;
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    private void tratar(HttpExchange troca) throws IOException {
+        try {
+            if (troca.getRequestHeaders().containsKey("Origin")) {
+                responder(troca, 403, erro("Requisições de navegador não são aceitas"));
+                return;
+            }
+            if (!hostsAceitos.contains(troca.getRequestHeaders().getFirst("Host"))) {
+                responder(troca, 403, erro("Host não aceito"));
+                return;
+            }
+            if (!autorizado(troca.getRequestHeaders().getFirst("Authorization"))) {
+                troca.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                responder(troca, 401, erro("Token ausente ou inválido"));
+                return;
+            }
+            String metodo = troca.getRequestMethod();
+            String[] partes = troca.getRequestURI().getPath().substring(PREFIXO.length()).split("/");
+            // partes[0] é vazio; partes[1] = id; partes[2] = "progresso"
+            if (partes.length <= 1) {
+                switch (metodo) {
+                    case "POST" -> enfileirar(troca);
+                    case "GET" -> listar(troca);
+                    default -> responder(troca, 405, erro("Método não suportado"));
+                }
+                return;
+            }
+
+            Integer id = inteiro(partes[1]);
+            if (id == null) {
+                responder(troca, 400, erro("Identificador inválido: " + partes[1]));
+                return;
+            }
+            FilaReproducao.Trabalho trabalho = fila.obter(id);
+            if (trabalho == null) {
+                responder(troca, 404, erro("Trabalho inexistente: " + partes[1]));
+            } else if (partes.length == 3 && partes[2].equals("progresso") && metodo.equals("GET")) {
+                transmitirProgresso(troca, trabalho);
+            } else if (partes.length == 2 && metodo.equals("GET")) {
+                responder(troca, 200, trabalho.toJson());
+            } else if (partes.length == 2 && metodo.equals("DELETE")) {
+                boolean cancelado = fila.cancelar(trabalho.getId());
+                responder(troca, cancelado ? 200 : 409, trabalho.toJson());
+            } else {
+                responder(troca, 404, erro("Rota inexistente"));
+            }
+        } catch (IllegalArgumentException e) {
+            responder(troca, 400, erro(e.getMessage()));
+        } catch (RuntimeException e) {
+            responder(troca, 500, erro(e.toString()));
+        } finally {
+            troca.close();
+        }
+    }
+
+    private void enfileirar(HttpExchange troca) throws IOException {
+        Map<String, String> parametros = parametros(troca.getRequestURI().getRawQuery());
+        String arquivo = parametros.get("arquivo");
+        if (arquivo == null || arquivo.isBlank()) {
+            responder(troca, 400, erro("Parâmetro 'arquivo' é obrigatório"));
+            return;
+        }
+        String textoTela = parametros.getOrDefault("tela", "0");
+        Integer tela = inteiro(textoTela);
+        if (tela == null) {
+            responder(troca, 400, erro("Parâmetro 'tela' deve ser um número inteiro: " + textoTela));
+            return;
+        }
+        Path gravacao = gravacao(arquivo);
+        if (gravacao == null) {
+            responder(troca, 403, erro("Parâmetro 'arquivo' deve estar na pasta de gravações: " + arquivo));
+            return;
+        }
+        FilaReproducao.Trabalho trabalho = fila.enfileirar(gravacao.toString(), tela);
+        troca.getResponseHeaders().set("Location", PREFIXO + "/" + trabalho.getId());
+        responder(troca, 202, trabalho.toJson());
+    }
+
+    private void listar(HttpExchange troca) throws IOException {
+        List<FilaReproducao.Trabalho> trabalhos = fila.listar();
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < trabalhos.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(trabalhos.get(i).toJson());
+        }
+        responder(troca, 200, sb.append(']').toString());
+    }
+
+    private void transmitirProgresso(HttpExchange troca, FilaReproducao.Trabalho trabalho) throws IOException {
+        BlockingQueue<String> linhas = trabalho.assinar();
+        troca.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        troca.sendResponseHeaders(200, 0); // chunked
+        try (OutputStream saida = troca.getResponseBody()) {
+            while (true) {
+                String linha = linhas.poll(ESPERA_PROGRESSO_S, TimeUnit.SECONDS);
+                if (linha == null) {
+                    saida.write('\n'); // manter a conexão viva
+                } else {
+                    saida.write((linha + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                if (linhas.isEmpty()) {
+                    saida.flush();
+                }
+                if (trabalho.isResultado(linha)) {
+                    saida.flush();
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            trabalho.cancelarAssinatura(linhas);
+        }
+    }
+
+    private static void responder(HttpExchange troca, int status, String json) throws IOException {
+        byte[] corpo = json.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, corpo.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+
+    private boolean autorizado(String autorizacao) {
+        if (autorizacao == null || !autorizacao.startsWith("Bearer ")) {
+            return false;
+        }
+        byte[] recebido = autorizacao.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(recebido, token);
+    }
+
+    /**
+     * Caminho real da gravação, se estiver dentro da pasta de gravações
+     * (também depois de seguir links); senão null.
+     */
+    private Path gravacao(String arquivo) throws IOException {
+        Path alvo = gravacoes.resolve(arquivo).normalize();
+        if (!alvo.startsWith(gravacoes)) {
+            return null;
+        }
+        try {
+            Path real = alvo.toRealPath();
+            return real.startsWith(gravacoes) ? real : null;
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Arquivo inexistente: " + arquivo);
+        }
+    }
+
+    private static void criarPastaSomenteDono(Path pasta) throws IOException {
+        if (Files.isDirectory(pasta)) {
+            return;
+        }
+        if (pasta.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(pasta, PosixFilePermissions.asFileAttribute(PASTA_DONO));
+        } else {
+            Files.createDirectories(pasta);
+        }
+    }
+
+    private static void gravarSomenteDono(Path arquivo, String conteudo) throws IOException {
+        criarPastaSomenteDono(arquivo.toAbsolutePath().getParent());
+        Set<StandardOpenOption> opcoes = EnumSet.of(StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        boolean posix = arquivo.getFileSystem().supportedFileAttributeViews().contains("posix");
+        try (FileChannel canal = posix
+                ? FileChannel.open(arquivo, opcoes, PosixFilePermissions.asFileAttribute(ARQUIVO_DONO))
+                : FileChannel.open(arquivo, opcoes)) {
+            if (posix) {
+                Files.setPosixFilePermissions(arquivo, ARQUIVO_DONO); // arquivo já existente não recebe o atributo
+            }
+            canal.write(ByteBuffer.wrap(conteudo.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static Integer inteiro(String texto) {
+        try {
+            return Integer.valueOf(texto);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String erro(String mensagem) {
+        return "{\"erro\":" + Json.texto(mensagem) + "}";
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> resultado = new HashMap<>();
+        if (consulta == null) {
+            return resultado;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) {
+                resultado.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                    URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,135 @@
+package main;
+
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.Dialog;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Exportação ou importação fora da EDT, com um diálogo de progresso que
+ * mostra ações/s e MB/s e permite cancelar. Cancelar interrompe a thread da
+ * tarefa; o GerenciadorXML para no próximo aviso de progresso.
+ *
+ * O resultado chega na EDT: (valor, null) em caso de sucesso, (null, erro)
+ * em caso de falha e (null, CancellationException) se o usuário cancelou.
+ */
+final class TarefaArquivo<T> extends SwingWorker<T, Void> {
+
+    /**
+     * O trabalho em si, na thread da tarefa.
+     */
+    interface Operacao<T> {
+        T executar(GerenciadorXML.Progresso progresso) throws Exception;
+    }
+
+    private static final int ATUALIZACAO_MS = 200;
+    private static final int ESCALA = 1000;
+
+    private final Operacao<T> operacao;
+    private final long totalAcoes;
+    private final long totalBytes;
+    private final BiConsumer<T, Throwable> conclusao;
+
+    private final JDialog dialogo;
+    private final JProgressBar barra = new JProgressBar(0, ESCALA);
+    private final JLabel lblVazao = new JLabel(" ");
+    private final Timer timer;
+    private final long inicioNs = System.nanoTime();
+
+    // Escritos pela thread da tarefa, lidos pelo timer na EDT
+    private volatile long acoes;
+    private volatile long bytes;
+
+    /**
+     * @param totalAcoes total esperado de ações, ou 0 se desconhecido
+     * @param totalBytes tamanho esperado do arquivo, ou 0 se desconhecido;
+     *                   quando conhecido, é a base da barra de progresso
+     */
+    TarefaArquivo(Window dono, String titulo, long totalAcoes, long totalBytes,
+                  Operacao<T> operacao, BiConsumer<T, Throwable> conclusao) {
+        this.operacao = operacao;
+        this.totalAcoes = totalAcoes;
+        this.totalBytes = totalBytes;
+        this.conclusao = conclusao;
+
+        dialogo = new JDialog(dono, titulo, Dialog.ModalityType.APPLICATION_MODAL);
+        dialogo.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        barra.setStringPainted(true);
+        barra.setIndeterminate(totalAcoes <= 0 && totalBytes <= 0);
+        JButton btnCancelar = new JButton("Cancelar");
+        btnCancelar.addActionListener(e -> {
+            btnCancelar.setEnabled(false);
+            lblVazao.setText("Cancelando...");
+            cancel(true);
+        });
+
+        JPanel painel = new JPanel(new BorderLayout(5, 5));
+        painel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        painel.add(barra, BorderLayout.NORTH);
+        painel.add(lblVazao, BorderLayout.CENTER);
+        JPanel botoes = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        botoes.add(btnCancelar);
+        painel.add(botoes, BorderLayout.SOUTH);
+        dialogo.setContentPane(painel);
+        dialogo.setSize(420, 140);
+        dialogo.setLocationRelativeTo(dono);
+
+        timer = new Timer(ATUALIZACAO_MS, e -> atualizarDialogo());
+    }
+
+    /**
+     * Inicia a tarefa e exibe o diálogo até ela terminar. Chamar na EDT.
+     */
+    void iniciar() {
+        timer.start();
+        execute();
+        if (!isDone()) {
+            dialogo.setVisible(true); // modal: a EDT segue tratando eventos enquanto espera
+        }
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        return operacao.executar((acoes, bytes) -> {
+            this.acoes = acoes;
+            this.bytes = bytes;
+        });
+    }
+
+    @Override
+    protected void done() {
+        timer.stop();
+        dialogo.dispose();
+        if (isCancelled()) {
+            conclusao.accept(null, new CancellationException("Operação cancelada"));
+            return;
+        }
+        try {
+            conclusao.accept(get(), null);
+        } catch (ExecutionException e) {
+            conclusao.accept(null, e.getCause());
+        } catch (InterruptedException e) {
+            conclusao.accept(null, e);
+        }
+    }
+
+    private void atualizarDialogo() {
+        long acoesAtual = acoes;
+        long bytesAtual = bytes;
+        if (totalBytes > 0) {
+            barra.setValue((int) Math.min(ESCALA, bytesAtual * ESCALA / totalBytes));
+        } else if (totalAcoes > 0) {
+            barra.setValue((int) Math.min(ESCALA, acoesAtual * ESCALA / totalAcoes));
+        }
+        if (isCancelled()) {
+            return;
+        }
+        double segundos = Math.max(1e-3, (System.nanoTime() - inicioNs) / 1e9);
+        lblVazao.setText(String.format("%,d ações  •  %,.0f ações/s  •  %.1f MB/s",
+            acoesAtual, acoesAtual / segundos, bytesAtual / segundos / (1024 * 1024)));
+    }
+}
@@ -0,0 +1,372 @@
+package main;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Transmite as ações capturadas, ao vivo, para outros processos da mesma
+ * máquina (ver LeitorTransmissao). Escuta só em loopback TCP ou num socket
+ * Unix; cada cliente conectado vira uma assinatura do PublicadorAcoes.
+ *
+ * Quadro: [int bytes seguintes][int ações][long descartadas] + ações no
+ * formato do CodificadorAcoes, com a tabela de textos reiniciada a cada
+ * quadro. Quadros saem ao juntar LOTE ações ou a cada DESCARGA_MS.
+ *
+ * Cada cliente tem uma thread de escrita própria. Cliente lento: a escrita
+ * dele atrasa só a própria entrega, o buffer da assinatura enche e as ações
+ * mais antigas são descartadas; o total descartado segue no cabeçalho. A
+ * captura nunca espera. Um cliente que cai pode reconectar a qualquer
+ * momento e recebe dali em diante.
+ *
+ * Acesso: o socket Unix fica só para o dono (600) e recusa processos de
+ * outro usuário. Em TCP qualquer usuário local alcança a porta; em máquina
+ * compartilhada, defina -Dmapeador.transmissao.token (o mesmo no leitor),
+ * que o cliente envia ao conectar: [int bytes][token em UTF-8].
+ *
+ * Configuração: -Dmapeador.transmissao=tcp:PORTA ou unix:CAMINHO
+ */
+final class TransmissorCaptura implements AutoCloseable {
+
+    static final String PROPRIEDADE = "mapeador.transmissao";
+    static final String PROPRIEDADE_TOKEN = "mapeador.transmissao.token";
+    static final int CABECALHO = 4 + 4 + 8;
+    static final int TAMANHO_QUADRO = 256 * 1024;
+    static final int LOTE = 512;
+    static final int CAPACIDADE_CONEXAO = 65_536;
+    static final int TOKEN_MAXIMO = 1024;
+    private static final long DESCARGA_MS = 50;
+    private static final int ESPERA_TOKEN_MS = 2_000;
+
+    private final PublicadorAcoes publicador;
+    private final ServerSocketChannel servidor;
+    private final SocketAddress endereco;
+    private final byte[] token;
+    private final UserPrincipal dono; // socket Unix: o único usuário aceito
+    private final Set<Conexao> conexoes = ConcurrentHashMap.newKeySet();
+    // Aceite e uma thread de escrita por cliente: um cliente lento não segura os outros
+    private final ExecutorService tarefas = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "mapeador-transmissao");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean fechado;
+
+    TransmissorCaptura(PublicadorAcoes publicador, SocketAddress endereco) throws IOException {
+        this(publicador, endereco, null);
+    }
+
+    /**
+     * @param token exigido dos clientes TCP, ou null para aceitar sem token
+     */
+    TransmissorCaptura(PublicadorAcoes publicador, SocketAddress endereco, String token) throws IOException {
+        this.publicador = publicador;
+        this.token = token == null || token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+        if (endereco instanceof UnixDomainSocketAddress unix) {
+            Path caminho = unix.getPath();
+            if (socket(caminho)) {
+                Files.delete(caminho); // socket de uma execução anterior; outro arquivo qualquer fica e o bind falha
+            }
+            this.servidor = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            servidor.bind(endereco);
+            if (caminho.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(caminho, PosixFilePermissions.fromString("rw-------"));
+            }
+            this.dono = Files.getOwner(caminho);
+        } else {
+            this.servidor = ServerSocketChannel.open();
+            // Reiniciar o mapeador na mesma porta com clientes ainda em TIME_WAIT
+            servidor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            servidor.bind(endereco);
+            this.dono = null;
+        }
+        this.endereco = servidor.getLocalAddress();
+    }
+
+    /**
+     * Transmissor configurado por -Dmapeador.transmissao, já iniciado, ou null.
+     */
+    static TransmissorCaptura doSistema(PublicadorAcoes publicador) throws IOException {
+        String configuracao = System.getProperty(PROPRIEDADE);
+        if (configuracao == null || configuracao.isBlank()) {
+            return null;
+        }
+        TransmissorCaptura transmissor = new TransmissorCaptura(publicador, endereco(configuracao),
+            System.getProperty(PROPRIEDADE_TOKEN));
+        transmissor.iniciar();
+        return transmissor;
+    }
+
+    /**
+     * "unix:CAMINHO", "tcp:PORTA" ou só a porta; TCP sempre em loopback.
+     */
+    static SocketAddress endereco(String texto) {
+        if (texto.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(Path.of(texto.substring("unix:".length())));
+        }
+        String porta = texto.startsWith("tcp:") ? texto.substring("tcp:".length()) : texto;
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(porta));
+    }
+
+    private static boolean socket(Path caminho) throws IOException {
+        if (!Files.exists(caminho, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        // Nem arquivo, nem diretório, nem link: no caminho de um socket, é um socket
+        return Files.readAttributes(caminho, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+    }
+
+    void iniciar() {
+        tarefas.execute(this::aceitar);
+    }
+
+    SocketAddress getEndereco() {
+        return endereco;
+    }
+
+    int getConexoes() {
+        return conexoes.size();
+    }
+
+    private void aceitar() {
+        while (!fechado) {
+            try {
+                SocketChannel canal = servidor.accept();
+                tarefas.execute(new Conexao(canal));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Transmissão: falha ao aceitar conexão: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Socket Unix: só o usuário dono do socket. TCP com token: o cliente
+     * precisa enviá-lo antes de receber qualquer ação.
+     */
+    private boolean autorizado(SocketChannel canal) throws IOException {
+        if (dono != null) {
+            if (!canal.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+                return true; // sem credenciais do par: vale a permissão 600 do arquivo
+            }
+            UnixDomainPrincipal par = canal.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            return dono.equals(par.user());
+        }
+        if (token == null) {
+            return true;
+        }
+        canal.socket().setSoTimeout(ESPERA_TOKEN_MS);
+        DataInputStream entrada = new DataInputStream(canal.socket().getInputStream());
+        int tamanho = entrada.readInt();
+        if (tamanho < 0 || tamanho > TOKEN_MAXIMO) {
+            return false;
+        }
+        byte[] recebido = entrada.readNBytes(tamanho);
+        return MessageDigest.isEqual(recebido, token);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fechado = true;
+        servidor.close();
+        conexoes.forEach(Conexao::fechar);
+        tarefas.shutdownNow();
+        if (endereco instanceof UnixDomainSocketAddress unix && socket(unix.getPath())) {
+            Files.delete(unix.getPath());
+        }
+    }
+
+    // ===== CONEXÃO =====
+
+    /**
+     * Um cliente. A entrega da assinatura monta quadros num buffer direto; a
+     * thread da conexão (run) escreve o quadro fechado no canal enquanto o
+     * próximo é montado no outro buffer.
+     */
+    private final class Conexao implements Flow.Subscriber<Acao>, Runnable {
+        private final SocketChannel canal;
+        private final CodificadorAcoes codificador = new CodificadorAcoes();
+        private ByteBuffer quadro = ByteBuffer.allocateDirect(TAMANHO_QUADRO);
+        private ByteBuffer livre = ByteBuffer.allocateDirect(TAMANHO_QUADRO);
+        private ByteBuffer pronto; // fechado, na fila ou sendo escrito; volta a ser o livre depois
+        private PublicadorAcoes.Assinatura assinatura;
+        private int quantidade;
+        private boolean concluida;
+        private boolean fechada;
+
+        Conexao(SocketChannel canal) {
+            this.canal = canal;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!autorizado(canal)) {
+                    fechar();
+                    return;
+                }
+                conexoes.add(this);
+                publicador.assinar(this, CAPACIDADE_CONEXAO, PublicadorAcoes.Transbordo.DESCARTAR_ANTIGAS);
+                ByteBuffer saida;
+                while ((saida = proximo()) != null) {
+                    while (saida.hasRemaining()) {
+                        canal.write(saida);
+                    }
+                    synchronized (this) {
+                        livre = saida;
+                        pronto = null;
+                        notifyAll();
+                    }
+                }
+            } catch (IOException e) {
+                // cliente desconectou (ou não se identificou); ele pode voltar com outra conexão
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // transmissor fechado
+            }
+            fechar();
+        }
+
+        /**
+         * Próximo quadro a escrever: o que a entrega fechou ou, passado
+         * DESCARGA_MS, o que estiver montado. null ao encerrar.
+         */
+        private synchronized ByteBuffer proximo() throws InterruptedException {
+            long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DESCARGA_MS);
+            while (!fechada) {
+                if (pronto != null) {
+                    return pronto;
+                }
+                long resta = prazo - System.nanoTime();
+                if (resta <= 0 || concluida) {
+                    if (quantidade > 0) {
+                        fecharQuadro();
+                    } else if (concluida) {
+                        return null;
+                    }
+                    prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DESCARGA_MS);
+                    continue;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, resta);
+            }
+            return null;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription assinatura) {
+            this.assinatura = (PublicadorAcoes.Assinatura) assinatura;
+            assinatura.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized void onNext(Acao acao) {
+            if (fechada) {
+                return;
+            }
+            if (quantidade == 0) {
+                iniciarQuadro();
+            }
+            if (!codificador.escrever(acao, quadro)) {
+                if (!fecharQuadro()) {
+                    return;
+                }
+                iniciarQuadro();
+                if (!codificador.escrever(acao, quadro)) {
+                    return; // detalhes maiores que um quadro: não transmitida
+                }
+            }
+            quantidade++;
+            if (quantidade >= LOTE) {
+                fecharQuadro();
+            }
+        }
+
+        private void iniciarQuadro() {
+            quadro.clear();
+            quadro.position(CABECALHO);
+            codificador.reiniciar();
+        }
+
+        /**
+         * Passa o quadro montado à thread da conexão. Se o anterior ainda
+         * não saiu, a entrega espera aqui, e o buffer da assinatura absorve
+         * (ou descarta) o que chegar enquanto isso.
+         */
+        private boolean fecharQuadro() {
+            while (pronto != null && !fechada) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (fechada) {
+                return false;
+            }
+            quadro.putInt(0, quadro.position() - 4);
+            quadro.putInt(4, quantidade);
+            quadro.putLong(8, assinatura.getDescartadas());
+            quadro.flip();
+            pronto = quadro;
+            quadro = livre;
+            livre = null;
+            quantidade = 0;
+            notifyAll();
+            return true;
+        }
+
+        void fechar() {
+            synchronized (this) {
+                fechada = true;
+                notifyAll();
+            }
+            conexoes.remove(this);
+            if (assinatura != null) {
+                assinatura.cancel();
+            }
+            try {
+                canal.close(); // também solta uma escrita presa num cliente parado
+            } catch (IOException e) {
+                // já fechado
+            }
+        }
+
+        @Override
+        public void onError(Throwable erro) {
+            fechar();
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            // A thread da conexão escreve o que falta e fecha
+            concluida = true;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package main.jmx;
+
+import java.util.Map;
+
+/**
+ * Atributos expostos via JMX (JConsole, VisualVM ou jmxterm) sob o nome
+ * main:type=MapeadorAtividades. Ver Metricas. Fica num pacote à parte
+ * porque o JMX chama a interface por reflexão de fora do módulo: só ela é
+ * exportada, não o pacote main inteiro.
+ */
+public interface MetricasMXBean {
+
+    // ===== CAPTURA =====
+    Map<String, Long> getCapturadasPorTipo();
+    Map<String, Double> getCapturadasPorSegundo();
+    long getCapturadasTotal();
+    long getMovimentosDescartados();
+    long getRepeticoesDescartadas();
+    long getEventosPerdidos();
+
+    // ===== REPRODUÇÃO =====
+    boolean isReproduzindo();
+    int getIndiceReproducao();
+    int getTotalReproducao();
+    long getAtrasoReproducaoMs();
+    long getPassosReproduzidos();
+    double getErroAgendamentoP50Ms();
+    double getErroAgendamentoP99Ms();
+    double getErroAgendamentoMaximoMs();
+
+    void zerar();
+}
@@ -6,5 +6,12 @@
  */
 module MapeadorAtividades {
 	requires java.desktop;
+	requires java.management;
+	requires jdk.jfr;
+	requires jdk.httpserver;
+	requires jdk.net;
 	requires com.github.kwhat.jnativehook;
+
+	// Necessário para o JMX acessar a interface MetricasMXBean
+	exports main.jmx;
 }
\ No newline at end of file